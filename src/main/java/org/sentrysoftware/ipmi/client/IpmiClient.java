@@ -31,6 +31,7 @@ import java.util.concurrent.TimeoutException;
 import org.sentrysoftware.ipmi.client.model.Fru;
 import org.sentrysoftware.ipmi.client.model.Sensor;
 import org.sentrysoftware.ipmi.client.runner.GetChassisStatusRunner;
+import org.sentrysoftware.ipmi.client.runner.GetFrusAndSensorsRunner;
 import org.sentrysoftware.ipmi.client.runner.GetFrusRunner;
 import org.sentrysoftware.ipmi.client.runner.GetSensorsRunner;
 import org.sentrysoftware.ipmi.core.coding.commands.chassis.GetChassisStatusResponseData;
@@ -109,7 +110,8 @@ public class IpmiClient {
 	}
 
 	/**
-	 * Run the FRUs and Sensors request then convert the result to a String value
+	 * Run the FRUs and Sensors request in a single session, reading the SDR once, then convert the result to a String
+	 * value
 	 *
 	 * @param ipmiConfiguration Wraps the IPMI device hostname and the credentials
 	 * @return All sensors (FRUs, Sensors readings and Sensors states) as String value
@@ -119,6 +121,8 @@ public class IpmiClient {
 	 */
 	public static String getFrusAndSensorsAsStringResult(final IpmiClientConfiguration ipmiConfiguration)
 			throws InterruptedException, ExecutionException, TimeoutException {
-		return IpmiResultConverter.convertResult(getFrus(ipmiConfiguration), getSensors(ipmiConfiguration));
+		try (GetFrusAndSensorsRunner runner = new GetFrusAndSensorsRunner(ipmiConfiguration)) {
+			return execute(runner, ipmiConfiguration.getTimeout() * 1000);
+		}
 	}
 }
@@ -36,6 +36,9 @@ public class IpmiClientConfiguration {
 	private boolean skipAuth;
 	private long timeout;
 	private long pingPeriod = -1;
+	private boolean pipelinedSensorReadings;
+	private SdrCache sdrCache;
+	private IpmiSessionPool sessionPool;
 
 	/**
 	 * Instantiates a new {@link IpmiClientConfiguration} in order to query the IPMI host.
@@ -75,6 +78,18 @@ public class IpmiClientConfiguration {
 		this.pingPeriod = pingPeriod;
 	}
 
+	/**
+	 * Instantiates a copy of the given {@link IpmiClientConfiguration}.
+	 * 
+	 * @param other The configuration to copy
+	 */
+	public IpmiClientConfiguration(IpmiClientConfiguration other) {
+		this(other.hostname, other.username, other.password, other.bmcKey, other.skipAuth, other.timeout, other.pingPeriod);
+		this.pipelinedSensorReadings = other.pipelinedSensorReadings;
+		this.sdrCache = other.sdrCache;
+		this.sessionPool = other.sessionPool;
+	}
+
 	/**
 	 * Returns the IP Address or host name of the remote IPMI host.
 	 * 
@@ -211,4 +226,56 @@ public class IpmiClientConfiguration {
 		this.pingPeriod = pingPeriod;
 	}
 
+	/**
+	 * @return whether the sensor readings are requested concurrently once all the sensor records have been read
+	 */
+	public boolean isPipelinedSensorReadings() {
+		return pipelinedSensorReadings;
+	}
+
+	/**
+	 * When enabled, the sensors runner first collects all the sensor records, then sends all the
+	 * <em>Get Sensor Reading</em> requests at once. The number of requests waiting for an answer at
+	 * the same time is bounded by the window of the connection.
+	 * 
+	 * @param pipelinedSensorReadings whether the sensor readings should be requested concurrently
+	 */
+	public void setPipelinedSensorReadings(boolean pipelinedSensorReadings) {
+		this.pipelinedSensorReadings = pipelinedSensorReadings;
+	}
+
+	/**
+	 * @return the cache of the SDR repositories, <code>null</code> if the SDR is read on each request
+	 */
+	public SdrCache getSdrCache() {
+		return sdrCache;
+	}
+
+	/**
+	 * Set the cache used to skip the SDR walk when the repository of the host did not change. The same instance
+	 * should be shared by all the configurations.
+	 * 
+	 * @param sdrCache {@link SdrCache} instance or <code>null</code> to read the SDR on each request
+	 */
+	public void setSdrCache(SdrCache sdrCache) {
+		this.sdrCache = sdrCache;
+	}
+
+	/**
+	 * @return the pool of the sessions reused across calls, <code>null</code> if each call opens its own session
+	 */
+	public IpmiSessionPool getSessionPool() {
+		return sessionPool;
+	}
+
+	/**
+	 * Set the pool keeping the sessions open between calls. When set, the ping period of the pool applies instead of
+	 * {@link #getPingPeriod()}.
+	 * 
+	 * @param sessionPool {@link IpmiSessionPool} instance or <code>null</code> to open a new session on each call
+	 */
+	public void setSessionPool(IpmiSessionPool sessionPool) {
+		this.sessionPool = sessionPool;
+	}
+
 }
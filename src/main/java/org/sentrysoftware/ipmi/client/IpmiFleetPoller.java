@@ -0,0 +1,489 @@
+package org.sentrysoftware.ipmi.client;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.sentrysoftware.ipmi.client.runner.AbstractIpmiRunner;
+
+/**
+ * Polls many IPMI hosts at once. The runners of all the hosts share the transport of one {@link IpmiSessionPool} (one
+ * UDP socket and one timer thread), and the sessions stay open between sweeps.<br>
+ * At most <em>maxConcurrency</em> hosts are polled at the same time, and at most <em>maxConcurrencyPerSubnet</em>
+ * hosts of the same subnet (/24 for IPv4, /64 for IPv6), so a sweep does not flood a single management network.
+ * Results are delivered to the consumer as soon as each host is done. On Java 21 and later, each host is polled on a
+ * virtual thread, so <em>maxConcurrency</em> can reach tens of thousands of hosts.
+ *
+ * <pre>
+ * try (IpmiSessionPool sessionPool = new IpmiSessionPool(pingPeriod, idleTimeout);
+ * 		IpmiFleetPoller poller = new IpmiFleetPoller(sessionPool, 256, 16)) {
+ * 	poller.poll(configurations, GetSensorsRunner::new, result -> ...).join();
+ * }
+ * </pre>
+ */
+public class IpmiFleetPoller implements AutoCloseable {
+
+	/**
+	 * Number of host names resolved at the same time
+	 */
+	private static final int RESOLVER_THREADS = 4;
+
+	private final IpmiSessionPool sessionPool;
+
+	private final int maxConcurrency;
+
+	private final int maxConcurrencyPerSubnet;
+
+	private final ExecutorService executor;
+
+	/**
+	 * Resolves the host names, so slow lookups do not hold polling threads and polls start before all the names are
+	 * resolved
+	 */
+	private final ExecutorService resolver;
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	private final Object lock = new Object();
+
+	/**
+	 * Hosts waiting for a free slot, in submission order. Hosts whose name is being resolved are skipped.
+	 */
+	private final Deque<Task<?>> pendingTasks = new ArrayDeque<>();
+
+	/**
+	 * Number of hosts being polled, per subnet
+	 */
+	private final Map<String, Integer> runningTasksPerSubnet = new HashMap<>();
+
+	/**
+	 * Hosts whose result has not been delivered yet, cancelled by {@link #close()} unless already running
+	 */
+	private final Set<Task<?>> unfinishedTasks = new HashSet<>();
+
+	private int runningTasks = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * Instantiates a new {@link IpmiFleetPoller}
+	 *
+	 * @param sessionPool             The pool of sessions used for all the hosts, not closed by the poller. <code>null</code> to open
+	 *                                a new connector for each host.
+	 * @param maxConcurrency          The maximum number of hosts polled at the same time
+	 * @param maxConcurrencyPerSubnet The maximum number of hosts of the same subnet polled at the same time
+	 */
+	public IpmiFleetPoller(final IpmiSessionPool sessionPool, final int maxConcurrency, final int maxConcurrencyPerSubnet) {
+		if (maxConcurrency < 1 || maxConcurrencyPerSubnet < 1) {
+			throw new IllegalArgumentException("Concurrency limits must be positive");
+		}
+
+		this.sessionPool = sessionPool;
+		this.maxConcurrency = maxConcurrency;
+		this.maxConcurrencyPerSubnet = maxConcurrencyPerSubnet;
+
+		// Polls are only submitted when a slot is free, they never wait in the queue of the executor
+		executor = RunnerThreads.newExecutor("ipmi-fleet-poller", maxConcurrency);
+		resolver = RunnerThreads.newExecutor("ipmi-fleet-poller-resolver", RESOLVER_THREADS);
+
+		timer = new ScheduledThreadPoolExecutor(1, daemonThreadFactory("ipmi-fleet-poller-timer"));
+		timer.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Poll all the given hosts in the background. The host names are resolved by a few dedicated threads to group the
+	 * hosts by subnet, so this method returns immediately and the first hosts are polled while the others are resolved.
+	 *
+	 * @param <T>               The data type returned by the runners
+	 * @param configurations    The configuration of each host. The configurations are copied, the session pool of the poller applies.
+	 * @param runnerFactory     Creates the runner polling a host, e.g. <code>GetSensorsRunner::new</code>
+	 * @param resultConsumer    Receives the result of each host as soon as it is available. Called by the polling threads.
+	 * @return a future completed when all the results have been delivered. When the poller is closed, the hosts not
+	 *         polled yet are delivered with a {@link CancellationException}.
+	 * @throws IllegalStateException if the poller is closed
+	 */
+	public <T> CompletableFuture<Void> poll(final Collection<IpmiClientConfiguration> configurations,
+			final Function<IpmiClientConfiguration, ? extends AbstractIpmiRunner<T>> runnerFactory,
+			final Consumer<HostResult<T>> resultConsumer) {
+
+		final CompletableFuture<Void> completion = new CompletableFuture<>();
+		if (configurations.isEmpty()) {
+			completion.complete(null);
+			return completion;
+		}
+
+		final AtomicInteger remaining = new AtomicInteger(configurations.size());
+
+		final List<Task<T>> tasks = new ArrayList<>(configurations.size());
+		for (IpmiClientConfiguration configuration : configurations) {
+			tasks.add(new Task<>(configuration, runnerFactory, result -> {
+				try {
+					resultConsumer.accept(result);
+				} catch (RuntimeException e) {
+					// The consumer failure must not stop the sweep
+				}
+				if (remaining.decrementAndGet() == 0) {
+					completion.complete(null);
+				}
+			}));
+		}
+
+		synchronized (lock) {
+			if (closed) {
+				throw new IllegalStateException("The poller is closed");
+			}
+			pendingTasks.addAll(tasks);
+			unfinishedTasks.addAll(tasks);
+		}
+
+		for (Task<T> task : tasks) {
+			resolver.execute(() -> resolve(task));
+		}
+
+		return completion;
+	}
+
+	/**
+	 * Resolve the subnet of the task, so it can be started
+	 *
+	 * @param task The pending task
+	 */
+	private void resolve(final Task<?> task) {
+		final String subnet = getSubnet(task.configuration.getHostname());
+
+		synchronized (lock) {
+			task.subnet = subnet;
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * Start the pending tasks allowed by the concurrency limits
+	 */
+	private void dispatch() {
+		final List<Task<?>> tasksToStart = new ArrayList<>();
+
+		synchronized (lock) {
+			final Iterator<Task<?>> iterator = pendingTasks.iterator();
+			while (runningTasks < maxConcurrency && iterator.hasNext()) {
+				final Task<?> task = iterator.next();
+				if (task.subnet == null) {
+					continue;
+				}
+
+				final int runningInSubnet = runningTasksPerSubnet.getOrDefault(task.subnet, 0);
+				if (runningInSubnet < maxConcurrencyPerSubnet) {
+					iterator.remove();
+					runningTasks++;
+					runningTasksPerSubnet.put(task.subnet, runningInSubnet + 1);
+					tasksToStart.add(task);
+				}
+			}
+		}
+
+		for (Task<?> task : tasksToStart) {
+			start(task);
+		}
+	}
+
+	/**
+	 * Run the task in the executor and interrupt it when the timeout of its configuration expires
+	 *
+	 * @param task The task to run
+	 */
+	private void start(final Task<?> task) {
+		executor.execute(() -> {
+			try {
+				// The timeout starts once the task runs, not while it waits for a free slot
+				task.deadline = timer.schedule(task::timeout, task.configuration.getTimeout() * 1000, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// The poller is being closed, the task is cancelled unless it already started
+			}
+			try {
+				task.run();
+			} finally {
+				finished(task);
+			}
+		});
+	}
+
+	/**
+	 * Release the slot of the task and start the next tasks
+	 *
+	 * @param task The finished task
+	 */
+	private void finished(final Task<?> task) {
+		synchronized (lock) {
+			unfinishedTasks.remove(task);
+			runningTasks--;
+			runningTasksPerSubnet.computeIfPresent(task.subnet, (subnet, count) -> count > 1 ? count - 1 : null);
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * @return the number of hosts waiting to be polled
+	 */
+	public int getPendingCount() {
+		synchronized (lock) {
+			return pendingTasks.size();
+		}
+	}
+
+	/**
+	 * Stop the polling threads. Hosts not polled yet are dropped and delivered with a {@link CancellationException},
+	 * the hosts being polled are interrupted.
+	 */
+	@Override
+	public void close() {
+		final List<Task<?>> tasks;
+		synchronized (lock) {
+			closed = true;
+			pendingTasks.clear();
+			tasks = new ArrayList<>(unfinishedTasks);
+			unfinishedTasks.clear();
+		}
+		resolver.shutdownNow();
+		executor.shutdownNow();
+		timer.shutdownNow();
+
+		for (Task<?> task : tasks) {
+			task.cancel();
+		}
+	}
+
+	/**
+	 * Get the subnet of the given host: the first 3 bytes of an IPv4 address, the first 8 bytes of an IPv6 address.
+	 *
+	 * @param hostname IP Address or host name
+	 * @return the subnet or the host name itself if it cannot be resolved
+	 */
+	static String getSubnet(final String hostname) {
+		try {
+			final byte[] address = InetAddress.getByName(hostname).getAddress();
+			final int prefixLength = address.length == 4 ? 3 : 8;
+
+			final StringBuilder subnet = new StringBuilder();
+			for (int i = 0; i < prefixLength; i++) {
+				subnet.append(String.format("%02x", address[i]));
+			}
+			return subnet.toString();
+
+		} catch (UnknownHostException e) {
+			return hostname;
+		}
+	}
+
+	private static ThreadFactory daemonThreadFactory(final String name) {
+		return runnable -> {
+			final Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Poll of a single host
+	 */
+	private class Task<T> {
+
+		private final IpmiClientConfiguration configuration;
+
+		/**
+		 * Subnet of the host, <code>null</code> until resolved. Guarded by the lock of the poller.
+		 */
+		private String subnet;
+
+		private final Function<IpmiClientConfiguration, ? extends AbstractIpmiRunner<T>> runnerFactory;
+		private final Consumer<HostResult<T>> resultConsumer;
+		private volatile ScheduledFuture<?> deadline;
+
+		/**
+		 * Thread running the task, guarded by the task monitor
+		 */
+		private Thread thread;
+
+		private boolean timedOut = false;
+
+		/**
+		 * Whether the task started or was cancelled, guarded by the task monitor
+		 */
+		private boolean started = false;
+		private boolean cancelled = false;
+
+		private Task(IpmiClientConfiguration configuration,
+				Function<IpmiClientConfiguration, ? extends AbstractIpmiRunner<T>> runnerFactory,
+				Consumer<HostResult<T>> resultConsumer) {
+			this.configuration = configuration;
+			this.runnerFactory = runnerFactory;
+			this.resultConsumer = resultConsumer;
+		}
+
+		/**
+		 * Interrupt the task, called when its timeout expires
+		 */
+		private synchronized void timeout() {
+			timedOut = true;
+			if (thread != null) {
+				thread.interrupt();
+			}
+		}
+
+		/**
+		 * Deliver the cancellation of the task, unless it already started
+		 */
+		private void cancel() {
+			synchronized (this) {
+				if (started || cancelled) {
+					return;
+				}
+				cancelled = true;
+			}
+
+			resultConsumer.accept(new HostResult<>(configuration, null,
+					new CancellationException("Polling " + configuration.getHostname() + " was cancelled")));
+		}
+
+		private void run() {
+			synchronized (this) {
+				if (cancelled) {
+					return;
+				}
+				started = true;
+
+				if (timedOut) {
+					resultConsumer.accept(new HostResult<>(configuration, null,
+							new TimeoutException("Polling " + configuration.getHostname() + " timed out")));
+					return;
+				}
+				thread = Thread.currentThread();
+			}
+
+			final IpmiClientConfiguration pooledConfiguration = new IpmiClientConfiguration(configuration);
+			pooledConfiguration.setSessionPool(sessionPool);
+
+			T result = null;
+			Exception exception = null;
+
+			try (AbstractIpmiRunner<T> runner = runnerFactory.apply(pooledConfiguration)) {
+				try {
+					result = runner.call();
+				} catch (Exception e) {
+					// The session may be broken (e.g. closed by the BMC), do not reuse it
+					runner.invalidateSession();
+					exception = e;
+				}
+			} catch (Exception e) {
+				exception = e;
+			}
+
+			if (deadline != null) {
+				deadline.cancel(false);
+			}
+
+			synchronized (this) {
+				thread = null;
+
+				// Clear the interruption so it does not leak to the next task of this thread
+				Thread.interrupted();
+
+				if (exception != null && timedOut) {
+					exception = new TimeoutException("Polling " + configuration.getHostname() + " timed out");
+				}
+			}
+
+			resultConsumer.accept(new HostResult<>(configuration, result, exception));
+		}
+	}
+
+	/**
+	 * Result of the poll of a single host
+	 *
+	 * @param <T> The data type returned by the runner
+	 */
+	public static class HostResult<T> {
+
+		private final IpmiClientConfiguration configuration;
+		private final T result;
+		private final Exception exception;
+
+		HostResult(IpmiClientConfiguration configuration, T result, Exception exception) {
+			this.configuration = configuration;
+			this.result = result;
+			this.exception = exception;
+		}
+
+		/**
+		 * @return the configuration of the host, as given to {@link IpmiFleetPoller#poll(Collection, Function, Consumer)}
+		 */
+		public IpmiClientConfiguration getConfiguration() {
+			return configuration;
+		}
+
+		/**
+		 * @return the data returned by the runner, <code>null</code> if the poll failed
+		 */
+		public T getResult() {
+			return result;
+		}
+
+		/**
+		 * @return the reason of the failure, <code>null</code> if the poll succeeded
+		 */
+		public Exception getException() {
+			return exception;
+		}
+
+		/**
+		 * @return whether the poll succeeded
+		 */
+		public boolean isSuccess() {
+			return exception == null;
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package org.sentrysoftware.ipmi.client;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.sentrysoftware.ipmi.core.api.async.ConnectionHandle;
+import org.sentrysoftware.ipmi.core.api.sync.IpmiConnector;
+import org.sentrysoftware.ipmi.core.coding.commands.PrivilegeLevel;
+
+/**
+ * Keeps the authenticated IPMI sessions opened by the runners so that the following {@link IpmiClient} calls to the same
+ * host reuse them instead of running the whole handshake (cipher suites discovery, RAKP) again.<br>
+ * All the sessions share one {@link IpmiConnector}, which sends the keep-alive messages every <em>pingPeriod</em> ms.
+ * A session that stays idle longer than <em>idleTimeout</em> ms is closed. A session whose request failed, or that
+ * the BMC closed, is not reused: the next call establishes a new one.
+ * <p>
+ * The pool is enabled with {@link IpmiClientConfiguration#setSessionPool(IpmiSessionPool)}. The same instance should be
+ * shared by all the configurations, and closed when the application no longer polls the hosts.
+ */
+public class IpmiSessionPool implements AutoCloseable {
+
+	private static final int DEFAULT_LOCAL_UDP_PORT = 0;
+
+	/**
+	 * Shortest period of the idle sessions eviction
+	 */
+	private static final long MIN_EVICTION_PERIOD = 1000;
+
+	private final IpmiConnector connector;
+
+	private final long idleTimeout;
+
+	private final Map<SessionKey, Deque<IdleSession>> idleSessions = new HashMap<>();
+
+	private final ScheduledExecutorService evictionScheduler;
+
+	private boolean closed = false;
+
+	/**
+	 * Instantiates a new {@link IpmiSessionPool} listening on an ephemeral UDP port
+	 *
+	 * @param pingPeriod  The period in milliseconds of the keep-alive messages sent within the sessions, 0 to disable them
+	 * @param idleTimeout The time in milliseconds after which an unused session is closed
+	 * @throws IOException If the UDP socket cannot be opened
+	 */
+	public IpmiSessionPool(final long pingPeriod, final long idleTimeout) throws IOException {
+		this.connector = new IpmiConnector(DEFAULT_LOCAL_UDP_PORT, pingPeriod);
+		this.idleTimeout = idleTimeout;
+
+		evictionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "ipmi-session-pool");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		final long evictionPeriod = Math.max(idleTimeout / 2, MIN_EVICTION_PERIOD);
+		evictionScheduler.scheduleWithFixedDelay(this::evictIdleSessions, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return the {@link IpmiConnector} used to open the pooled sessions
+	 */
+	public IpmiConnector getConnector() {
+		return connector;
+	}
+
+	/**
+	 * Take an idle session opened with the credentials of the given configuration
+	 *
+	 * @param ipmiConfiguration The configuration of the host
+	 * @param privilegeLevel    The privilege level of the session
+	 * @return the {@link ConnectionHandle} of a valid session or <code>null</code> if a new session has to be opened
+	 */
+	public ConnectionHandle acquire(final IpmiClientConfiguration ipmiConfiguration, final PrivilegeLevel privilegeLevel) {
+		final SessionKey key = new SessionKey(ipmiConfiguration, privilegeLevel);
+		final List<ConnectionHandle> invalidHandles = new ArrayList<>();
+
+		ConnectionHandle handle = null;
+
+		synchronized (idleSessions) {
+			final Deque<IdleSession> sessions = idleSessions.get(key);
+
+			while (sessions != null && !sessions.isEmpty() && handle == null) {
+				final IdleSession session = sessions.pollLast();
+
+				// The password or the BMC key may have changed since the session was opened
+				if (session.matches(ipmiConfiguration) && connector.isSessionValid(session.handle)) {
+					handle = session.handle;
+				} else {
+					invalidHandles.add(session.handle);
+				}
+			}
+
+			if (sessions != null && sessions.isEmpty()) {
+				idleSessions.remove(key);
+			}
+		}
+
+		invalidHandles.forEach(this::closeSession);
+
+		return handle;
+	}
+
+	/**
+	 * Give back a session taken with {@link #acquire(IpmiClientConfiguration, PrivilegeLevel)} or opened with
+	 * {@link #getConnector()}
+	 *
+	 * @param ipmiConfiguration The configuration of the host
+	 * @param handle            The {@link ConnectionHandle} of the session
+	 * @param reusable          Whether the session can be used again, <code>false</code> if one of its requests failed
+	 */
+	public void release(final IpmiClientConfiguration ipmiConfiguration, final ConnectionHandle handle, final boolean reusable) {
+		if (reusable && connector.isSessionValid(handle)) {
+			synchronized (idleSessions) {
+				if (!closed) {
+					idleSessions
+						.computeIfAbsent(new SessionKey(ipmiConfiguration, handle.getPrivilegeLevel()), key -> new ArrayDeque<>())
+						.addLast(new IdleSession(ipmiConfiguration, handle));
+					return;
+				}
+			}
+		}
+
+		closeSession(handle);
+	}
+
+	/**
+	 * @return the number of sessions waiting to be reused
+	 */
+	public int getIdleSessionCount() {
+		synchronized (idleSessions) {
+			return idleSessions.values().stream().mapToInt(Deque::size).sum();
+		}
+	}
+
+	/**
+	 * Close the sessions that have not been used for <em>idleTimeout</em> ms
+	 */
+	void evictIdleSessions() {
+		final long now = System.currentTimeMillis();
+		final List<ConnectionHandle> expiredHandles = new ArrayList<>();
+
+		synchronized (idleSessions) {
+			final Iterator<Deque<IdleSession>> iterator = idleSessions.values().iterator();
+			while (iterator.hasNext()) {
+				final Deque<IdleSession> sessions = iterator.next();
+
+				// The oldest sessions are at the head of the queue
+				while (!sessions.isEmpty() && now - sessions.peekFirst().releaseTime >= idleTimeout) {
+					expiredHandles.add(sessions.pollFirst().handle);
+				}
+
+				if (sessions.isEmpty()) {
+					iterator.remove();
+				}
+			}
+		}
+
+		expiredHandles.forEach(this::closeSession);
+	}
+
+	/**
+	 * Close the session and release its connection
+	 *
+	 * @param handle The {@link ConnectionHandle} of the session
+	 */
+	private void closeSession(final ConnectionHandle handle) {
+		try {
+			connector.closeSession(handle);
+		} catch (Exception e) {
+			// Ignore
+		}
+
+		try {
+			connector.closeConnection(handle);
+		} catch (Exception e) {
+			// Ignore
+		}
+	}
+
+	/**
+	 * Close all the idle sessions and release the UDP port. Sessions in use are closed when they are released.
+	 */
+	@Override
+	public void close() {
+		final List<ConnectionHandle> handles = new ArrayList<>();
+
+		synchronized (idleSessions) {
+			closed = true;
+			idleSessions.values().forEach(sessions -> sessions.forEach(session -> handles.add(session.handle)));
+			idleSessions.clear();
+		}
+
+		evictionScheduler.shutdownNow();
+
+		handles.forEach(this::closeSession);
+
+		connector.tearDown();
+	}
+
+	/**
+	 * Host, user and privilege level of a session
+	 */
+	private static class SessionKey {
+
+		private final String hostname;
+		private final String username;
+		private final PrivilegeLevel privilegeLevel;
+
+		private SessionKey(final IpmiClientConfiguration ipmiConfiguration, final PrivilegeLevel privilegeLevel) {
+			this.hostname = ipmiConfiguration.getHostname();
+			this.username = ipmiConfiguration.getUsername();
+			this.privilegeLevel = privilegeLevel;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(hostname, username, privilegeLevel);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof SessionKey)) {
+				return false;
+			}
+			final SessionKey other = (SessionKey) obj;
+			return Objects.equals(hostname, other.hostname)
+					&& Objects.equals(username, other.username)
+					&& privilegeLevel == other.privilegeLevel;
+		}
+	}
+
+	/**
+	 * Session waiting to be reused, with the credentials it was opened with
+	 */
+	private static class IdleSession {
+
+		private final ConnectionHandle handle;
+		private final char[] password;
+		private final byte[] bmcKey;
+		private final long releaseTime;
+
+		private IdleSession(final IpmiClientConfiguration ipmiConfiguration, final ConnectionHandle handle) {
+			this.handle = handle;
+			this.password = ipmiConfiguration.getPassword();
+			this.bmcKey = ipmiConfiguration.getBmcKey();
+			this.releaseTime = System.currentTimeMillis();
+		}
+
+		/**
+		 * @param ipmiConfiguration The configuration of the host
+		 * @return whether the session was opened with the credentials of the given configuration
+		 */
+		private boolean matches(final IpmiClientConfiguration ipmiConfiguration) {
+			return Arrays.equals(password, ipmiConfiguration.getPassword()) && Arrays.equals(bmcKey, ipmiConfiguration.getBmcKey());
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package org.sentrysoftware.ipmi.client;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sentrysoftware.ipmi.client.runner.AbstractIpmiRunner;
+
+/**
+ * Creates the threads running the {@link AbstractIpmiRunner} callables.<br>
+ * This implementation uses platform threads. On Java 21 and later, the multi-release JAR replaces it with the one of
+ * <code>src/main/java21</code>, which runs the callables on virtual threads.
+ */
+final class RunnerThreads {
+
+	private RunnerThreads() {}
+
+	/**
+	 * Create an {@link ExecutorService} for the runners
+	 *
+	 * @param name       The prefix of the names of the threads, followed by their number
+	 * @param maxThreads The maximum number of tasks running at the same time, further tasks are queued
+	 * @return a new {@link ExecutorService} to shut down once the tasks are done
+	 */
+	static ExecutorService newExecutor(final String name, final int maxThreads) {
+		final AtomicInteger threadCount = new AtomicInteger();
+
+		return new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			final Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
@@ -0,0 +1,271 @@
+package org.sentrysoftware.ipmi.client;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sentrysoftware.ipmi.core.coding.commands.sdr.GetSdrRepositoryInfoResponseData;
+
+/**
+ * Cache of the Sensor Data Record (SDR) repositories, keyed by host name. An entry stays valid as long as the
+ * repository reports the same record count and the same addition and deletion timestamps, so the runners can
+ * skip the SDR walk after a single <em>Get SDR Repository Info</em> request.<br>
+ * Entries are kept in memory. When a directory is given, each entry is also written to a file so it survives
+ * restarts of the application.
+ */
+public class SdrCache {
+
+	/**
+	 * Identifies the files written by this class
+	 */
+	private static final int FILE_MAGIC = 0x53445243;
+
+	private static final int FILE_VERSION = 1;
+
+	private static final String FILE_EXTENSION = ".sdr";
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final File directory;
+
+	/**
+	 * Instantiates an in-memory {@link SdrCache}
+	 */
+	public SdrCache() {
+		this(null);
+	}
+
+	/**
+	 * Instantiates a {@link SdrCache} persisted in the given directory
+	 *
+	 * @param directory The directory where the SDR repositories are stored, <code>null</code> to keep them in memory only
+	 */
+	public SdrCache(final File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the directory where the SDR repositories are stored, <code>null</code> if they are kept in memory only
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Get the SDR records of the given host if they are still up to date
+	 *
+	 * @param hostname The host name of the BMC
+	 * @param info     The current state of the SDR repository
+	 * @return the raw records in repository order (not to be modified) or <code>null</code> if they are not cached or outdated
+	 */
+	public List<byte[]> get(final String hostname, final GetSdrRepositoryInfoResponseData info) {
+		Entry entry = entries.get(hostname);
+
+		if (entry == null && directory != null) {
+			entry = load(hostname);
+			if (entry != null) {
+				entries.putIfAbsent(hostname, entry);
+			}
+		}
+
+		if (entry == null || !entry.isValid(info)) {
+			return null;
+		}
+
+		return entry.records;
+	}
+
+	/**
+	 * Store the SDR records read from the given host
+	 *
+	 * @param hostname The host name of the BMC
+	 * @param info     The state of the SDR repository, as read before the records
+	 * @param records  The raw records in repository order
+	 */
+	public void put(final String hostname, final GetSdrRepositoryInfoResponseData info, final List<byte[]> records) {
+		final Entry entry = new Entry(info.getRecordCount(), info.getAddTimestamp(), info.getDelTimestamp(),
+				Collections.unmodifiableList(new ArrayList<>(records)));
+
+		entries.put(hostname, entry);
+
+		if (directory != null) {
+			store(hostname, entry);
+		}
+	}
+
+	/**
+	 * Remove the SDR records of the given host
+	 *
+	 * @param hostname The host name of the BMC
+	 */
+	public void invalidate(final String hostname) {
+		entries.remove(hostname);
+
+		if (directory != null) {
+			try {
+				Files.deleteIfExists(getFile(hostname));
+			} catch (IOException e) {
+				// Nothing can be done
+			}
+		}
+	}
+
+	/**
+	 * Read the entry of the given host from its file
+	 *
+	 * @param hostname The host name of the BMC
+	 * @return {@link Entry} instance or <code>null</code> if the file is missing or cannot be read
+	 */
+	private Entry load(final String hostname) {
+		final Path file = getFile(hostname);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		try (InputStream inputStream = Files.newInputStream(file);
+				DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream))) {
+
+			if (input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION || !hostname.equals(input.readUTF())) {
+				return null;
+			}
+
+			final int recordCount = input.readInt();
+			final int addTimestamp = input.readInt();
+			final int delTimestamp = input.readInt();
+
+			final int size = input.readInt();
+			final List<byte[]> records = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				final byte[] record = new byte[input.readUnsignedShort()];
+				input.readFully(record);
+				records.add(record);
+			}
+
+			return new Entry(recordCount, addTimestamp, delTimestamp, Collections.unmodifiableList(records));
+
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Write the entry of the given host to its file. The file is replaced atomically when the file system allows it.
+	 *
+	 * @param hostname The host name of the BMC
+	 * @param entry    The entry to write
+	 */
+	private void store(final String hostname, final Entry entry) {
+		final Path file = getFile(hostname);
+		Path temporaryFile = null;
+
+		try {
+			Files.createDirectories(directory.toPath());
+			temporaryFile = Files.createTempFile(directory.toPath(), file.getFileName().toString(), ".tmp");
+
+			try (OutputStream outputStream = Files.newOutputStream(temporaryFile);
+					DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream))) {
+
+				output.writeInt(FILE_MAGIC);
+				output.writeInt(FILE_VERSION);
+				output.writeUTF(hostname);
+				output.writeInt(entry.recordCount);
+				output.writeInt(entry.addTimestamp);
+				output.writeInt(entry.delTimestamp);
+
+				output.writeInt(entry.records.size());
+				for (byte[] record : entry.records) {
+					output.writeShort(record.length);
+					output.write(record);
+				}
+			}
+
+			try {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		} catch (IOException e) {
+			// The entry stays in memory, nothing else can be done
+			if (temporaryFile != null) {
+				try {
+					Files.deleteIfExists(temporaryFile);
+				} catch (IOException ignored) {
+					// Nothing can be done
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param hostname The host name of the BMC
+	 * @return the path of the file storing the SDR records of the given host
+	 */
+	private Path getFile(final String hostname) {
+		return directory.toPath().resolve(hostname.replaceAll("[^A-Za-z0-9._-]", "_") + FILE_EXTENSION);
+	}
+
+	/**
+	 * SDR records of a host and the state of the repository they were read from
+	 */
+	private static class Entry {
+
+		private final int recordCount;
+		private final int addTimestamp;
+		private final int delTimestamp;
+		private final List<byte[]> records;
+
+		private Entry(int recordCount, int addTimestamp, int delTimestamp, List<byte[]> records) {
+			this.recordCount = recordCount;
+			this.addTimestamp = addTimestamp;
+			this.delTimestamp = delTimestamp;
+			this.records = records;
+		}
+
+		/**
+		 * @param info The current state of the SDR repository
+		 * @return whether the repository did not change since the records were read
+		 */
+		private boolean isValid(final GetSdrRepositoryInfoResponseData info) {
+			return info.getRecordCount() == recordCount
+					&& info.getAddTimestamp() == addTimestamp
+					&& info.getDelTimestamp() == delTimestamp;
+		}
+	}
+}
@@ -25,7 +25,6 @@ package org.sentrysoftware.ipmi.client;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -86,7 +85,7 @@ public class Utils {
 	public static <T> T execute(final AbstractIpmiRunner<T> callable, long timeout)
 			throws InterruptedException, ExecutionException, TimeoutException {
 
-		final ExecutorService executorService = Executors.newSingleThreadExecutor();
+		final ExecutorService executorService = RunnerThreads.newExecutor("ipmi-runner", 1);
 		final Future<T> future = executorService.submit(callable);
 
 		try {
@@ -96,6 +95,11 @@ public class Utils {
 			throw e;
 		} catch (TimeoutException e) {
 			future.cancel(true);
+			callable.invalidateSession();
+			throw e;
+		} catch (ExecutionException e) {
+			// The session may be broken (e.g. closed by the BMC), do not reuse it
+			callable.invalidateSession();
 			throw e;
 		} finally {
 			executorService.shutdownNow();
@@ -23,16 +23,23 @@ package org.sentrysoftware.ipmi.client.runner;
  */
 
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 
 import org.sentrysoftware.ipmi.client.IpmiClientConfiguration;
+import org.sentrysoftware.ipmi.client.IpmiSessionPool;
+import org.sentrysoftware.ipmi.client.SdrCache;
 import org.sentrysoftware.ipmi.core.api.async.ConnectionHandle;
 import org.sentrysoftware.ipmi.core.api.sync.IpmiConnector;
 import org.sentrysoftware.ipmi.core.coding.commands.IpmiVersion;
 import org.sentrysoftware.ipmi.core.coding.commands.PrivilegeLevel;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.GetSdr;
+import org.sentrysoftware.ipmi.core.coding.commands.sdr.GetSdrRepositoryInfo;
+import org.sentrysoftware.ipmi.core.coding.commands.sdr.GetSdrRepositoryInfoResponseData;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.GetSdrResponseData;
+import org.sentrysoftware.ipmi.core.coding.commands.sdr.ReserveSdrRepository;
+import org.sentrysoftware.ipmi.core.coding.commands.sdr.ReserveSdrRepositoryResponseData;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.record.SensorRecord;
 import org.sentrysoftware.ipmi.core.coding.payload.CompletionCode;
 import org.sentrysoftware.ipmi.core.coding.payload.lan.IPMIException;
@@ -50,6 +57,11 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 
 	private static final int DEFAULT_LOCAL_UDP_PORT = 0;
 
+	/**
+	 * Privilege level requested for the sessions
+	 */
+	private static final PrivilegeLevel PRIVILEGE_LEVEL = PrivilegeLevel.User;
+
 	/**
 	 * This is the value of Last Record ID (FFFFh). In order to retrieve the full set of SDR records, client must repeat reading SDR records
 	 * until MAX_REPO_RECORD_ID is returned as next record ID. For further information see section 33.12 of the IPMI specification ver. 2.0
@@ -64,9 +76,34 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 	/**
 	 * Chunk size depending on buffer size of the IPMI server. Bigger values will improve performance. If server is returning "Cannot return
 	 * number of requested data bytes." error during GetSdr command, CHUNK_SIZE should be decreased.
+	 * 
+	 * @deprecated The chunk size is now negotiated with each BMC, between {@link #INITIAL_CHUNK_SIZE} and {@link #MAX_CHUNK_SIZE}
 	 */
+	@Deprecated
 	protected static final int CHUNK_SIZE = 16;
 
+	/**
+	 * Largest IPMI message that BMCs are expected to send over LAN
+	 */
+	private static final int MAX_LAN_MESSAGE_SIZE = 255;
+
+	/**
+	 * Size of the GetSdr response around the record data: IPMI LAN message header and checksums (7 bytes), completion
+	 * code (1 byte) and next record ID (2 bytes)
+	 */
+	private static final int GET_SDR_RESPONSE_OVERHEAD = 10;
+
+	/**
+	 * Largest number of bytes that can be requested by a single GetSdr command. It must stay below FFh, which requests
+	 * the entire record.
+	 */
+	protected static final int MAX_CHUNK_SIZE = MAX_LAN_MESSAGE_SIZE - GET_SDR_RESPONSE_OVERHEAD;
+
+	/**
+	 * Largest GetSdr chunk size accepted by each BMC. Bigger chunks save round trips.
+	 */
+	private static final ReadSizeLimit SDR_CHUNK_SIZES = new ReadSizeLimit(INITIAL_CHUNK_SIZE, MAX_CHUNK_SIZE);
+
 	/**
 	 * Size of SDR record header
 	 */
@@ -80,6 +117,23 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 
 	protected int nextRecId;
 
+	/**
+	 * Whether the session can be given back to the {@link IpmiSessionPool}
+	 */
+	private volatile boolean sessionReusable = true;
+
+	/**
+	 * Whether {@link #close()} was called, guarded by the runner monitor
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Whether {@link #startSession()} is running, guarded by the runner monitor. The runner is then released by
+	 * {@link #startSession()} itself when it is closed meanwhile, e.g. by {@link org.sentrysoftware.ipmi.client.Utils}
+	 * after a timeout.
+	 */
+	private boolean starting = false;
+
 	protected AbstractIpmiRunner(IpmiClientConfiguration ipmiConfiguration) {
 		this.ipmiConfiguration = ipmiConfiguration;
 	}
@@ -91,17 +145,55 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 	 * @throws Exception If an error occurs when starting the session
 	 */
 	protected void startSession() throws Exception {
-		// Create the connector, specify port that will be used to communicate
-		// with the remote host. The UDP layer starts listening at this port, so
-		// no 2 connectors can work at the same time on the same port.
-		connector = new IpmiConnector(DEFAULT_LOCAL_UDP_PORT, ipmiConfiguration.getPingPeriod());
+		synchronized (this) {
+			if (closed) {
+				throw new InterruptedException("The runner is closed");
+			}
+			starting = true;
+		}
+
+		try {
+			openSession();
+		} finally {
+			synchronized (this) {
+				starting = false;
+
+				// The caller gave up while the session was being opened, it cannot release it
+				if (closed) {
+					release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Acquire the session from the pool or open a new one.
+	 * 
+	 * @throws Exception If an error occurs when starting the session
+	 */
+	private void openSession() throws Exception {
+		final IpmiSessionPool sessionPool = ipmiConfiguration.getSessionPool();
+
+		if (sessionPool != null) {
+			// Reuse the session opened by a previous call, if any
+			connector = sessionPool.getConnector();
+			handle = sessionPool.acquire(ipmiConfiguration, PRIVILEGE_LEVEL);
+			if (handle != null) {
+				return;
+			}
+		} else {
+			// Create the connector, specify port that will be used to communicate
+			// with the remote host. The UDP layer starts listening at this port, so
+			// no 2 connectors can work at the same time on the same port.
+			connector = new IpmiConnector(DEFAULT_LOCAL_UDP_PORT, ipmiConfiguration.getPingPeriod());
+		}
 
 		// Should we perform the authentication
 		if (!ipmiConfiguration.isSkipAuth()) {
 			authenticate();
 		} else {
 			handle = connector.createConnection(InetAddress.getByName(ipmiConfiguration.getHostname()),
-					Connection.getDefaultCipherSuite(), PrivilegeLevel.User);
+					Connection.getDefaultCipherSuite(), PRIVILEGE_LEVEL);
 		}
 
 		// Start the session, provide user name and password, and optionally the
@@ -111,6 +203,17 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 				String.valueOf(ipmiConfiguration.getPassword()), ipmiConfiguration.getBmcKey());
 	}
 
+	/**
+	 * Use the session started by the given runner instead of starting a new one. The session remains owned by the
+	 * given runner, which closes it.
+	 * 
+	 * @param owner The runner that started the session
+	 */
+	void shareSession(final AbstractIpmiRunner<?> owner) {
+		connector = owner.connector;
+		handle = owner.handle;
+	}
+
 	/**
 	 * Authenticate IPMI
 	 * 
@@ -130,7 +233,7 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 
 		// Provide chosen cipher suite and privilege level to the remote host.
 		// From now on, your connection handle will contain these information.
-		connector.getChannelAuthenticationCapabilities(handle, cs, PrivilegeLevel.User);
+		connector.getChannelAuthenticationCapabilities(handle, cs, PRIVILEGE_LEVEL);
 	}
 
 	/**
@@ -160,8 +263,44 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 		return suites.get(0);
 	}
 
+	/**
+	 * Prevent the session from being reused by the next calls, e.g. because one of its requests failed or timed out.
+	 * The session is closed with the runner.
+	 */
+	public void invalidateSession() {
+		sessionReusable = false;
+	}
+
+	/**
+	 * Release the session. When the session is still being opened by another thread, it is released once opened.
+	 */
 	@Override
-	public void close() {
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		if (!starting) {
+			release();
+		}
+	}
+
+	/**
+	 * Give the session back to the pool, or close it with the connector. Must be invoked with the runner monitor held,
+	 * once.
+	 */
+	private void release() {
+		final IpmiSessionPool sessionPool = ipmiConfiguration.getSessionPool();
+
+		if (sessionPool != null) {
+			// Give the session back to the pool, which closes it if it cannot be reused
+			if (handle != null) {
+				sessionPool.release(ipmiConfiguration, handle, sessionReusable);
+			}
+			return;
+		}
+
 		if (handle != null) {
 			// Close the session
 			try {
@@ -172,7 +311,100 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 		}
 
 		// Close connection manager and release the listener port.
-		connector.tearDown();
+		if (connector != null) {
+			connector.tearDown();
+		}
+	}
+
+	/**
+	 * Get all the records of the SDR repository. When an {@link SdrCache} is configured, the records are taken from
+	 * the cache if the repository did not change since they were read, otherwise the whole repository is read and
+	 * cached.
+	 * 
+	 * @return the list of {@link SensorRecord} instances in repository order
+	 * @throws Exception if one of the GetSdr requests fails
+	 */
+	protected List<SensorRecord> getSensorRecords() throws Exception {
+		final SdrCache sdrCache = ipmiConfiguration.getSdrCache();
+
+		GetSdrRepositoryInfoResponseData info = null;
+		if (sdrCache != null) {
+			try {
+				info = (GetSdrRepositoryInfoResponseData) connector.sendMessage(handle,
+						new GetSdrRepositoryInfo(IpmiVersion.V20, handle.getCipherSuite(), AuthenticationType.RMCPPlus));
+			} catch (IPMIException e) {
+				// The repository state is unknown, the cache cannot be used
+			}
+		}
+
+		List<byte[]> recordsData = info != null ? sdrCache.get(ipmiConfiguration.getHostname(), info) : null;
+
+		if (recordsData == null) {
+			recordsData = readSdrRepository();
+
+			if (info != null) {
+				sdrCache.put(ipmiConfiguration.getHostname(), info, recordsData);
+			}
+		}
+
+		final List<SensorRecord> sensorRecords = new ArrayList<>(recordsData.size());
+		for (byte[] recordData : recordsData) {
+			sensorRecords.add(SensorRecord.populateSensorRecord(recordData));
+		}
+
+		return sensorRecords;
+	}
+
+	/**
+	 * Read the raw data of all the records of the SDR repository, reserving the repository again when the BMC
+	 * cancels the reservation.
+	 * 
+	 * @return the list of raw records in repository order
+	 * @throws Exception if one of the GetSdr requests fails
+	 */
+	protected List<byte[]> readSdrRepository() throws Exception {
+		final List<byte[]> recordsData = new ArrayList<>();
+
+		// Id 0 indicates first record in SDR. Next IDs can be retrieved from
+		// records - they are organized in a list and there is no BMC command to
+		// get all of them.
+		nextRecId = 0;
+
+		// Some BMCs allow getting sensor records without reservation, so we try
+		// to do it that way first
+		int reservationId = 0;
+		int lastReservationId = -1;
+
+		// We get sensor data until we encounter ID = 65535 which means that
+		// this record is the last one.
+		while (nextRecId < MAX_REPO_RECORD_ID) {
+
+			try {
+				// Get the record data and the ID of the next record in
+				// repository (see #getSensorRecordData for details).
+				recordsData.add(getSensorRecordData(reservationId));
+
+			} catch (IPMIException e) {
+
+				// If getting sensor data failed, we check if it already failed
+				// with this reservation ID, so that we avoid the infinite loop.
+				if (lastReservationId == reservationId || e.getCompletionCode() != CompletionCode.ReservationCanceled) {
+					throw e;
+				}
+
+				lastReservationId = reservationId;
+
+				// If the cause of the failure was canceling of the
+				// reservation, we get new reservationId and retry. This can
+				// happen many times during getting all sensors, since BMC can't
+				// manage parallel sessions and invalidates old one if new one
+				// appears.
+				reservationId = ((ReserveSdrRepositoryResponseData) connector.sendMessage(handle,
+						new ReserveSdrRepository(IpmiVersion.V20, handle.getCipherSuite(), AuthenticationType.RMCPPlus))).getReservationId();
+			}
+		}
+
+		return recordsData;
 	}
 
 	/**
@@ -184,6 +416,18 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 	 * @throws Exception at sendMessage or if the error completion code is CannotRespond or UnspecifiedError
 	 */
 	protected SensorRecord getSensorData(int reservationId) throws Exception {
+		return SensorRecord.populateSensorRecord(getSensorRecordData(reservationId));
+	}
+
+	/**
+	 * Using the reservation id, get the raw data of the next record by running a GetSdr IPMI request.<br>
+	 * When the record cannot be fetched using one request we try a second method, see <em>getSensorRecordDataViaChunks</em>
+	 * 
+	 * @param reservationId The reservation identifier that needs to be sent to the BMC so that it handles correctly the request
+	 * @return the record data
+	 * @throws Exception at sendMessage or if the error completion code is CannotRespond or UnspecifiedError
+	 */
+	protected byte[] getSensorRecordData(int reservationId) throws Exception {
 		try {
 			// BMC capabilities are limited - that means that sometimes the
 			// record size exceeds maximum size of the message. Since we don't
@@ -191,24 +435,21 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 			GetSdrResponseData data = (GetSdrResponseData) connector.sendMessage(handle,
 					new GetSdr(IpmiVersion.V20, handle.getCipherSuite(), AuthenticationType.RMCPPlus, reservationId, nextRecId));
 
-			// If getting whole record succeeded we create SensorRecord from
-			// received data...
-			SensorRecord sensorDataToPopulate = SensorRecord.populateSensorRecord(data.getSensorRecordData());
-
-			// ... and update the ID of the next record
+			// If getting whole record succeeded we update the ID of the next
+			// record
 			nextRecId = data.getNextRecordId();
-			return sensorDataToPopulate;
+			return data.getSensorRecordData();
 
 		} catch (IPMIException e) {
 
 			// The following error codes mean that record is too large to be
 			// sent in one chunk. This means we need to split the data in
 			// smaller parts.
-			if (e.getCompletionCode() != CompletionCode.CannotRespond && e.getCompletionCode() != CompletionCode.UnspecifiedError) {
+			if (!isChunkTooLarge(e) && e.getCompletionCode() != CompletionCode.UnspecifiedError) {
 				throw e;
 			}
 
-			return getSensorViaChunks(reservationId);
+			return getSensorRecordDataViaChunks(reservationId);
 
 		} catch (Exception e) {
 			throw e;
@@ -216,7 +457,7 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 	}
 
 	/**
-	 * Get SDR (sensor data record) by chunks of {@link #CHUNK_SIZE} bytes. We get the full record size from the first request, then
+	 * Get SDR (sensor data record) by chunks. We get the full record size from the first request, then
 	 * we query the IPMI interface to get the remaining parts.
 	 * 
 	 * @param reservationId The reservation identifier that needs to be sent to the BMC so that it handles correctly the request
@@ -224,6 +465,19 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 	 * @throws Exception if one of the sendMessage calls fails
 	 */
 	protected SensorRecord getSensorViaChunks(int reservationId) throws Exception {
+		return SensorRecord.populateSensorRecord(getSensorRecordDataViaChunks(reservationId));
+	}
+
+	/**
+	 * Get the raw data of the next record by chunks. We get the full record size from the first request, then we query
+	 * the IPMI interface to get the remaining parts. The chunk size is the largest accepted by the BMC, found by binary
+	 * search and remembered per host.
+	 * 
+	 * @param reservationId The reservation identifier that needs to be sent to the BMC so that it handles correctly the request
+	 * @return the record data
+	 * @throws Exception if one of the sendMessage calls fails
+	 */
+	protected byte[] getSensorRecordDataViaChunks(int reservationId) throws Exception {
 		// First we get the header of the record to find out its size.
 		GetSdrResponseData data = (GetSdrResponseData) connector.sendMessage(handle, new GetSdr(IpmiVersion.V20, handle.getCipherSuite(),
 				AuthenticationType.RMCPPlus, reservationId, nextRecId, 0, INITIAL_CHUNK_SIZE));
@@ -233,6 +487,10 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 		int recSize = TypeConverter.byteToInt(data.getSensorRecordData()[4]) + HEADER_SIZE;
 		int read = INITIAL_CHUNK_SIZE;
 
+		// The header size is accepted by every BMC
+		final String hostname = ipmiConfiguration.getHostname();
+		SDR_CHUNK_SIZES.accepted(hostname, INITIAL_CHUNK_SIZE);
+
 		byte[] bytes = new byte[recSize];
 
 		System.arraycopy(data.getSensorRecordData(), 0, bytes, 0, data.getSensorRecordData().length);
@@ -242,13 +500,25 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 		// error.
 		while (read < recSize) {
 
-			int bytesToRead = CHUNK_SIZE;
+			int bytesToRead = SDR_CHUNK_SIZES.nextSize(hostname);
 			if (recSize - read < bytesToRead) {
 				bytesToRead = recSize - read;
 			}
 
-			GetSdrResponseData part = (GetSdrResponseData) connector.sendMessage(handle, new GetSdr(IpmiVersion.V20, handle.getCipherSuite(),
-					AuthenticationType.RMCPPlus, reservationId, nextRecId, read, bytesToRead));
+			GetSdrResponseData part;
+			try {
+				part = (GetSdrResponseData) connector.sendMessage(handle, new GetSdr(IpmiVersion.V20, handle.getCipherSuite(),
+						AuthenticationType.RMCPPlus, reservationId, nextRecId, read, bytesToRead));
+			} catch (IPMIException e) {
+
+				// Retry with a smaller chunk if this one was too large
+				if (!isChunkTooLarge(e) || !SDR_CHUNK_SIZES.rejected(hostname, bytesToRead)) {
+					throw e;
+				}
+				continue;
+			}
+
+			SDR_CHUNK_SIZES.accepted(hostname, bytesToRead);
 
 			// Append the new bytes
 			System.arraycopy(part.getSensorRecordData(), 0, bytes, read, bytesToRead);
@@ -256,13 +526,18 @@ public abstract class AbstractIpmiRunner<T> implements AutoCloseable, Callable<T
 			read += bytesToRead;
 		}
 
-		// Finally we populate the sensor record with the gathered
-		// data...
-		SensorRecord sensorDataToPopulate = SensorRecord.populateSensorRecord(bytes);
-
-		// ... and update the ID of the next record
+		// Finally we update the ID of the next record
 		nextRecId = data.getNextRecordId();
 
-		return sensorDataToPopulate;
+		return bytes;
+	}
+
+	/**
+	 * @param e The error returned by the BMC for a GetSdr request
+	 * @return whether the BMC could not return the requested number of bytes
+	 */
+	private static boolean isChunkTooLarge(final IPMIException e) {
+		return e.getCompletionCode() == CompletionCode.CannotRespond
+				|| e.getCompletionCode() == CompletionCode.LengthLimitExceeded;
 	}
 }
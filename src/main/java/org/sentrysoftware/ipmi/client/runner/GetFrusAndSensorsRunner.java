@@ -0,0 +1,57 @@
+package org.sentrysoftware.ipmi.client.runner;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.List;
+
+import org.sentrysoftware.ipmi.client.IpmiClientConfiguration;
+import org.sentrysoftware.ipmi.client.IpmiResultConverter;
+import org.sentrysoftware.ipmi.core.coding.commands.sdr.record.SensorRecord;
+
+/**
+ * Get FRU information and Full and Compact Sensor records using a single session and a single walk through the SDR.
+ * The result is converted to a String value, see {@link IpmiResultConverter#convertResult(List, List)}
+ */
+public class GetFrusAndSensorsRunner extends AbstractIpmiRunner<String> {
+
+	public GetFrusAndSensorsRunner(IpmiClientConfiguration ipmiConfiguration) {
+		super(ipmiConfiguration);
+	}
+
+	@Override
+	public String call() throws Exception {
+
+		super.startSession();
+
+		final List<SensorRecord> sensorRecords = super.getSensorRecords();
+
+		// The FRU records and the sensor records are dispatched to runners sharing our session
+		final GetFrusRunner frusRunner = new GetFrusRunner(ipmiConfiguration);
+		frusRunner.shareSession(this);
+
+		final GetSensorsRunner sensorsRunner = new GetSensorsRunner(ipmiConfiguration);
+		sensorsRunner.shareSession(this);
+
+		return IpmiResultConverter.convertResult(frusRunner.getFrus(sensorRecords), sensorsRunner.getSensors(sensorRecords));
+	}
+}
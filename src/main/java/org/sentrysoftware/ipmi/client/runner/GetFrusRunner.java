@@ -38,8 +38,6 @@ import org.sentrysoftware.ipmi.core.coding.commands.fru.record.BoardInfo;
 import org.sentrysoftware.ipmi.core.coding.commands.fru.record.ChassisInfo;
 import org.sentrysoftware.ipmi.core.coding.commands.fru.record.FruRecord;
 import org.sentrysoftware.ipmi.core.coding.commands.fru.record.ProductInfo;
-import org.sentrysoftware.ipmi.core.coding.commands.sdr.ReserveSdrRepository;
-import org.sentrysoftware.ipmi.core.coding.commands.sdr.ReserveSdrRepositoryResponseData;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.record.CompactSensorRecord;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.record.EntityId;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.record.FruDeviceLocatorRecord;
@@ -59,10 +57,20 @@ public class GetFrusRunner extends AbstractIpmiRunner<List<Fru>> {
 	private static final int DEFAULT_FRU_ID = 0;
 
 	/**
-	 * Size of data transmitted in single ReadFru command. Bigger values will improve performance. If server is returning "Invalid data field in
-	 * Request." error during ReadFru command, FRU_READ_PACKET_SIZE should be decreased.
+	 * Smallest size of data transmitted in single ReadFru command
 	 */
-	private static final int FRU_READ_PACKET_SIZE = 16;
+	private static final int MIN_FRU_READ_PACKET_SIZE = 8;
+
+	/**
+	 * Largest size of data transmitted in single ReadFru command
+	 */
+	private static final int MAX_FRU_READ_PACKET_SIZE = 128;
+
+	/**
+	 * Size of data transmitted in single ReadFru command accepted by each BMC. Bigger values will improve performance. If server is returning
+	 * "Invalid data field in Request." error during ReadFru command, the size is decreased.
+	 */
+	private static final ReadSizeLimit FRU_READ_PACKET_SIZES = new ReadSizeLimit(MIN_FRU_READ_PACKET_SIZE, MAX_FRU_READ_PACKET_SIZE);
 
 	private boolean systemBoardFruUpdated = false;
 
@@ -72,54 +80,25 @@ public class GetFrusRunner extends AbstractIpmiRunner<List<Fru>> {
 
 	@Override
 	public List<Fru> call() throws Exception {
-		final List<Fru> result = new ArrayList<>();
-
 		super.startSession();
 
-		// Id 0 indicates first record in SDR. Next IDs can be retrieved from
-		// records - they are organized in a list and there is no BMC command to
-		// get all of them.
-		nextRecId = 0;
+		return getFrus(super.getSensorRecords());
+	}
 
-		// Some BMCs allow getting sensor records without reservation, so we try
-		// to do it that way first
-		int reservationId = 0;
-		int lastReservationId = -1;
+	/**
+	 * Get the FRUs located by the given SDR records, including the system board FRU
+	 * 
+	 * @param sensorRecords The records of the SDR repository
+	 * @return the list of {@link Fru} instances
+	 * @throws Exception if the system board FRU cannot be read
+	 */
+	List<Fru> getFrus(final List<SensorRecord> sensorRecords) throws Exception {
+		final List<Fru> result = new ArrayList<>();
 
 		List<FruRecord> systemBoardFruRecords = getFruRecords(DEFAULT_FRU_ID);
 
-		// We get sensor data until we encounter ID = 65535 which means that
-		// this record is the last one.
-		while (nextRecId < MAX_REPO_RECORD_ID) {
-
-			SensorRecord sensorRecord = null;
-
-			try {
-				// Populate the sensor record and get ID of the next record in
-				// repository (see #getSensorData for details).
-				sensorRecord = super.getSensorData(reservationId);
-
-				processFruRecord(result, sensorRecord, systemBoardFruRecords);
-
-			} catch (IPMIException e) {
-
-				// If getting sensor data failed, we check if it already failed
-				// with this reservation ID, so that we avoid the infinite loop.
-				if (lastReservationId == reservationId || e.getCompletionCode() != CompletionCode.ReservationCanceled) {
-					throw e;
-				}
-
-				lastReservationId = reservationId;
-
-				// If the cause of the failure was canceling of the
-				// reservation, we get new reservationId and retry. This can
-				// happen many times during getting all sensors, since BMC can't
-				// manage parallel sessions and invalidates old one if new one
-				// appears.
-				reservationId = ((ReserveSdrRepositoryResponseData) connector.sendMessage(handle,
-						new ReserveSdrRepository(IpmiVersion.V20, handle.getCipherSuite(), AuthenticationType.RMCPPlus))).getReservationId();
-			}
-
+		for (SensorRecord sensorRecord : sensorRecords) {
+			processFruRecord(result, sensorRecord, systemBoardFruRecords);
 		}
 
 		return result;
@@ -208,22 +187,35 @@ public class GetFrusRunner extends AbstractIpmiRunner<List<Fru>> {
 		int size = info.getFruInventoryAreaSize();
 		BaseUnit unit = info.getFruUnit();
 
+		final String hostname = ipmiConfiguration.getHostname();
+
 		// since the size of single FRU entry can exceed maximum size of the
-		// message sent via IPMI, it has to be read in chunks
-		for (int i = 0; i < size; i += FRU_READ_PACKET_SIZE) {
-			int fruReadPacketSize = FRU_READ_PACKET_SIZE;
-			if (i + fruReadPacketSize > size) {
-				fruReadPacketSize = size % FRU_READ_PACKET_SIZE;
-			}
+		// message sent via IPMI, it has to be read in chunks, as large as the
+		// BMC accepts
+		int i = 0;
+		while (i < size) {
+			int fruReadPacketSize = Math.min(FRU_READ_PACKET_SIZES.nextSize(hostname), size - i);
 			try {
 				// get single package od FRU data
 				ReadFruDataResponseData data = (ReadFruDataResponseData) connector.sendMessage(handle,
 						new ReadFruData(IpmiVersion.V20, handle.getCipherSuite(), AuthenticationType.RMCPPlus, fruId, unit, i, fruReadPacketSize));
 
+				FRU_READ_PACKET_SIZES.accepted(hostname, fruReadPacketSize);
 				fruData.add(data);
+				i += fruReadPacketSize;
+
+			} catch (IPMIException e) {
+				// Retry with a smaller packet if this one was too large
+				if (isPacketTooLarge(e) && FRU_READ_PACKET_SIZES.rejected(hostname, fruReadPacketSize)) {
+					continue;
+				}
+
+				// Skipping the packet would shift the rest of the data, decode what we have
+				break;
 
 			} catch (Exception e) {
 				// Nothing can be done
+				break;
 			}
 		}
 
@@ -239,4 +231,14 @@ public class GetFrusRunner extends AbstractIpmiRunner<List<Fru>> {
 
 		return new ArrayList<>();
 	}
+
+	/**
+	 * @param e The error returned by the BMC for a ReadFruData request
+	 * @return whether the BMC could not return the requested number of bytes
+	 */
+	private static boolean isPacketTooLarge(final IPMIException e) {
+		return e.getCompletionCode() == CompletionCode.InvalidData
+				|| e.getCompletionCode() == CompletionCode.CannotRespond
+				|| e.getCompletionCode() == CompletionCode.LengthLimitExceeded;
+	}
 }
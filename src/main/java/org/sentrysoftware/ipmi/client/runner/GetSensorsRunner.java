@@ -25,6 +25,8 @@ package org.sentrysoftware.ipmi.client.runner;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import org.sentrysoftware.ipmi.client.IpmiClientConfiguration;
@@ -32,10 +34,9 @@ import org.sentrysoftware.ipmi.client.Utils;
 import org.sentrysoftware.ipmi.client.model.ReadingTypeDescription;
 import org.sentrysoftware.ipmi.client.model.Sensor;
 import org.sentrysoftware.ipmi.core.coding.commands.IpmiVersion;
+import org.sentrysoftware.ipmi.core.coding.commands.ResponseData;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.GetSensorReading;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.GetSensorReadingResponseData;
-import org.sentrysoftware.ipmi.core.coding.commands.sdr.ReserveSdrRepository;
-import org.sentrysoftware.ipmi.core.coding.commands.sdr.ReserveSdrRepositoryResponseData;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.record.CompactSensorRecord;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.record.FullSensorRecord;
 import org.sentrysoftware.ipmi.core.coding.commands.sdr.record.ReadingType;
@@ -59,67 +60,102 @@ public class GetSensorsRunner extends AbstractIpmiRunner<List<Sensor>> {
 	@Override
 	public List<Sensor> call() throws Exception {
 
-		final List<Sensor> result = new ArrayList<>();
-
 		super.startSession();
 
-		// Id 0 indicates first record in SDR. Next IDs can be retrieved from
-		// records - they are organized in a list and there is no BMC command to
-		// get all of them.
-		nextRecId = 0;
+		return getSensors(super.getSensorRecords());
+	}
 
-		// Some BMCs allow getting sensor records without reservation, so we try
-		// to do it that way first
-		int reservationId = 0;
-		int lastReservationId = -1;
+	/**
+	 * Get the reading of each Full and Compact sensor record of the given SDR records
+	 * 
+	 * @param sdrRecords The records of the SDR repository
+	 * @return the list of {@link Sensor} instances
+	 * @throws Exception if a reading fails with an error completion code other than DataNotPresent
+	 */
+	List<Sensor> getSensors(final List<SensorRecord> sdrRecords) throws Exception {
 
-		// We get sensor data until we encounter ID = 65535 which means that
-		// this record is the last one.
-		while (nextRecId < MAX_REPO_RECORD_ID) {
+		// Keep only the records having a reading associated with them
+		final List<SensorRecord> sensorRecords = sdrRecords
+				.stream()
+				.filter(sensorRecord -> sensorRecord instanceof FullSensorRecord || sensorRecord instanceof CompactSensorRecord)
+				.collect(Collectors.toList());
 
-			SensorRecord sensorRecord = null;
+		// In pipelined mode, readings are requested all at once
+		if (ipmiConfiguration.isPipelinedSensorReadings()) {
+			return getSensorsPipelined(sensorRecords);
+		}
 
-			try {
-				// Populate the sensor record and get ID of the next record in
-				// repository (see #getSensorData for details).
-				sensorRecord = super.getSensorData(reservationId);
+		final List<Sensor> result = new ArrayList<>();
 
-				if (sensorRecord instanceof FullSensorRecord || sensorRecord instanceof CompactSensorRecord) {
-					int recordReadingId = getReadingId(sensorRecord);
+		for (SensorRecord sensorRecord : sensorRecords) {
+			int recordReadingId = getReadingId(sensorRecord);
 
-					// If our record has got a reading associated, we get request
-					// for it
-					GetSensorReadingResponseData data = getSensorRecordReading(recordReadingId);
+			// If our record has got a reading associated, we get request
+			// for it
+			GetSensorReadingResponseData data = getSensorRecordReading(recordReadingId);
 
-					// Build the states e.g. deviceName=OK|deviceName=Device Present
-					String states = buildStates(data, sensorRecord);
+			// Build the states e.g. deviceName=OK|deviceName=Device Present
+			String states = buildStates(data, sensorRecord);
 
-					// Add the sensor to the result
-					result.add(new Sensor(sensorRecord, data, states));
-				}
+			// Add the sensor to the result
+			result.add(new Sensor(sensorRecord, data, states));
+		}
 
-			} catch (IPMIException e) {
+		return result;
+	}
 
-				// If getting sensor data failed, we check if it already failed
-				// with this reservation ID, so that we avoid the infinite loop.
-				if (lastReservationId == reservationId || e.getCompletionCode() != CompletionCode.ReservationCanceled) {
-					throw e;
-				}
+	/**
+	 * Send the GetSensorReading requests of all the given records without waiting for the answers, then build the
+	 * sensors in the order of the records. The connection window bounds the number of requests in flight.<br>
+	 * A reading that could not be obtained this way (e.g. lost answer) is requested again with retries.
+	 * 
+	 * @param sensorRecords The {@link FullSensorRecord} and {@link CompactSensorRecord} instances
+	 * @return the list of {@link Sensor} instances
+	 * @throws Exception if a reading fails with an error completion code other than DataNotPresent
+	 */
+	private List<Sensor> getSensorsPipelined(final List<SensorRecord> sensorRecords) throws Exception {
+		final List<CompletableFuture<ResponseData>> readings = new ArrayList<>(sensorRecords.size());
+
+		for (SensorRecord sensorRecord : sensorRecords) {
+			readings.add(connector.submit(handle, new GetSensorReading(IpmiVersion.V20, handle.getCipherSuite(),
+					AuthenticationType.RMCPPlus, getReadingId(sensorRecord))));
+		}
 
-				lastReservationId = reservationId;
+		final List<Sensor> sensors = new ArrayList<>(sensorRecords.size());
 
-				// If the cause of the failure was canceling of the
-				// reservation, we get new reservationId and retry. This can
-				// happen many times during getting all sensors, since BMC can't
-				// manage parallel sessions and invalidates old one if new one
-				// appears.
-				reservationId = ((ReserveSdrRepositoryResponseData) connector.sendMessage(handle,
-						new ReserveSdrRepository(IpmiVersion.V20, handle.getCipherSuite(), AuthenticationType.RMCPPlus))).getReservationId();
-			}
+		for (int i = 0; i < sensorRecords.size(); i++) {
+			final SensorRecord sensorRecord = sensorRecords.get(i);
+			final GetSensorReadingResponseData data = awaitSensorRecordReading(readings.get(i), getReadingId(sensorRecord));
 
+			sensors.add(new Sensor(sensorRecord, data, buildStates(data, sensorRecord)));
 		}
 
-		return result;
+		return sensors;
+	}
+
+	/**
+	 * Wait for the answer of a GetSensorReading request sent by {@link #getSensorsPipelined(List)}
+	 * 
+	 * @param reading         The future answer
+	 * @param recordReadingId the reading identifier of the sensor record, used to send the request again
+	 * @return {@link GetSensorReadingResponseData} instance or <code>null</code> if the data is not present
+	 * @throws Exception if the error completion code is not DataNotPresent or if the request fails again
+	 */
+	private GetSensorReadingResponseData awaitSensorRecordReading(final CompletableFuture<ResponseData> reading,
+			final int recordReadingId) throws Exception {
+		try {
+			return (GetSensorReadingResponseData) reading.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IPMIException) {
+				if (((IPMIException) e.getCause()).getCompletionCode() == CompletionCode.DataNotPresent) {
+					return null;
+				}
+				throw (IPMIException) e.getCause();
+			}
+
+			// Pipelined requests are not retried, fall back to the sequential request
+			return getSensorRecordReading(recordReadingId);
+		}
 	}
 
 	/**
@@ -0,0 +1,121 @@
+package org.sentrysoftware.ipmi.client.runner;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers, per host, the largest number of bytes a BMC accepts to return in a single read command (e.g. GetSdr,
+ * ReadFruData). The limit is found by binary search: each accepted size raises the lower bound, each size rejected
+ * because the answer would be too large lowers the upper bound.
+ */
+class ReadSizeLimit {
+
+	private final int minSize;
+	private final int maxSize;
+
+	private final ConcurrentMap<String, Bounds> bounds = new ConcurrentHashMap<>();
+
+	/**
+	 * @param minSize The size every BMC is expected to accept
+	 * @param maxSize The largest size that can be requested
+	 */
+	ReadSizeLimit(final int minSize, final int maxSize) {
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @param hostname The host name of the BMC
+	 * @return the size to request next from the given host
+	 */
+	int nextSize(final String hostname) {
+		final Bounds current = bounds.get(hostname);
+		if (current == null) {
+			return (minSize + maxSize + 1) / 2;
+		}
+
+		// Probe the middle of the range until the limit is known
+		return current.rejected - current.accepted <= 1 ? current.accepted : (current.accepted + current.rejected) / 2;
+	}
+
+	/**
+	 * Record that the given host returned the requested number of bytes
+	 *
+	 * @param hostname The host name of the BMC
+	 * @param size     The number of bytes requested
+	 */
+	void accepted(final String hostname, final int size) {
+		bounds.compute(hostname, (key, current) -> {
+			if (current == null) {
+				current = new Bounds(minSize, maxSize + 1);
+			}
+			if (size <= current.accepted) {
+				return current;
+			}
+			return new Bounds(size, Math.max(current.rejected, size + 1));
+		});
+	}
+
+	/**
+	 * Record that the given host could not return the requested number of bytes
+	 *
+	 * @param hostname The host name of the BMC
+	 * @param size     The number of bytes requested
+	 * @return <code>false</code> if the size cannot be decreased any further, <code>true</code> if a smaller size should be requested
+	 */
+	boolean rejected(final String hostname, final int size) {
+		if (size <= minSize) {
+			return false;
+		}
+
+		bounds.compute(hostname, (key, current) -> {
+			if (current == null) {
+				current = new Bounds(minSize, maxSize + 1);
+			}
+			if (size >= current.rejected) {
+				return current;
+			}
+
+			// A size accepted earlier is now rejected (e.g. the BMC has been reconfigured), start over
+			return new Bounds(size <= current.accepted ? minSize : current.accepted, size);
+		});
+
+		return true;
+	}
+
+	/**
+	 * Largest size accepted and smallest size rejected by a host
+	 */
+	private static class Bounds {
+
+		private final int accepted;
+		private final int rejected;
+
+		private Bounds(int accepted, int rejected) {
+			this.accepted = accepted;
+			this.rejected = rejected;
+		}
+	}
+}
@@ -39,9 +39,24 @@ public interface InboundMessageListener {
      */
     boolean isPayloadSupported(IpmiPayload payload);
 
+    /**
+     * Checks if given payload, received by the connection with given handle, is supported by this {@link InboundMessageListener} instance.
+     * Listeners bound to a single connection override this method, so that several of them can share the same connector.
+     *
+     * @param payload
+     *          {@link IpmiPayload} instance to check
+     * @param handle
+     *          id of the connection that received the payload
+     * @return true if payload is supported by this object, false otherwise
+     */
+    default boolean isPayloadSupported(IpmiPayload payload, int handle) {
+        return isPayloadSupported(payload);
+    }
+
     /**
      * Notify listener about received inbound message.
      * This method should be invoked only with payload for which {@link InboundMessageListener#isPayloadSupported(IpmiPayload)} returned true.
+     * It is invoked by the thread receiving the messages of all the connections, so it must not block.
      *
      * @param payload
      *          payload extracted from inbound message
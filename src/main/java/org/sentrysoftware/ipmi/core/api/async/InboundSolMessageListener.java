@@ -29,7 +29,7 @@ import org.sentrysoftware.ipmi.core.coding.payload.sol.SolAckState;
 import org.sentrysoftware.ipmi.core.coding.payload.sol.SolInboundMessage;
 import org.sentrysoftware.ipmi.core.coding.payload.sol.SolStatus;
 import org.sentrysoftware.ipmi.core.coding.sol.SolCoder;
-import org.sentrysoftware.ipmi.core.common.ByteBuffer;
+import org.sentrysoftware.ipmi.core.common.ByteRingBuffer;
 
 import java.util.List;
 import java.util.Set;
@@ -46,13 +46,31 @@ public class InboundSolMessageListener implements InboundMessageListener {
 
     static final int BUFFER_CAPACITY = 2048;
 
-    private final ByteBuffer buffer = new ByteBuffer(BUFFER_CAPACITY);
+    /**
+     * Character data received from the remote system. Written by the thread receiving the messages, read by the application.
+     */
+    private final ByteRingBuffer buffer = new ByteRingBuffer(BUFFER_CAPACITY);
+
+    /**
+     * Serializes the reads, since {@link ByteRingBuffer} supports a single reading thread.
+     */
+    private final Object readLock = new Object();
+
+    /**
+     * Guards {@link #waitingMessage}, set by the receiving thread and checked by the reading thread.
+     */
+    private final Object waitingMessageLock = new Object();
     private final IpmiConnector connector;
     private final ConnectionHandle connectionHandle;
     private final List<SolEventListener> eventListeners;
 
     private SolInboundMessage waitingMessage;
 
+    /**
+     * Invoked when character data has been added to the buffer.
+     */
+    private volatile Runnable dataListener;
+
     public InboundSolMessageListener(IpmiConnector connector, ConnectionHandle connectionHandle,
                                      List<SolEventListener> eventListeners) {
         this.connector = connector;
@@ -65,6 +83,26 @@ public class InboundSolMessageListener implements InboundMessageListener {
         return payload instanceof SolInboundMessage;
     }
 
+    /**
+     * Accepts only the SOL payloads received by the connection of this listener,
+     * so that several SOL sessions can share the same {@link IpmiConnector}.
+     */
+    @Override
+    public boolean isPayloadSupported(IpmiPayload payload, int handle) {
+        return isPayloadSupported(payload) && handle == connectionHandle.getHandle();
+    }
+
+    /**
+     * Sets the callback invoked by the receiving thread each time character data is added to the buffer.
+     * The callback must return quickly, typically by scheduling the read of the data on another thread.
+     *
+     * @param dataListener
+     *          callback to invoke, null to remove it
+     */
+    public void setDataListener(Runnable dataListener) {
+        this.dataListener = dataListener;
+    }
+
     @Override
     public void notify(IpmiPayload payload) {
         if (isPayloadSupported(payload)) {
@@ -91,6 +129,11 @@ public class InboundSolMessageListener implements InboundMessageListener {
             buffer.write(characterData);
 
             sendAck(solPayload, characterData);
+
+            Runnable listener = dataListener;
+            if (listener != null) {
+                listener.run();
+            }
         }
     }
 
@@ -119,7 +162,7 @@ public class InboundSolMessageListener implements InboundMessageListener {
                         SolAckState.NACK, connectionHandle.getCipherSuite());
                 connector.sendOneWayMessage(connectionHandle, solNack);
 
-                synchronized (buffer) {
+                synchronized (waitingMessageLock) {
                     waitingMessage = solPayload;
                 }
             } catch (Exception e) {
@@ -135,7 +178,7 @@ public class InboundSolMessageListener implements InboundMessageListener {
                         SolAckState.ACK, connectionHandle.getCipherSuite());
                 connector.sendOneWayMessage(connectionHandle, solAck);
 
-                synchronized (buffer) {
+                synchronized (waitingMessageLock) {
                     waitingMessage = null;
                 }
             } catch (Exception e) {
@@ -155,23 +198,93 @@ public class InboundSolMessageListener implements InboundMessageListener {
     }
 
     /**
-     * Attempts to read given number of bytes from this {@link ByteBuffer}.
+     * Attempts to read given number of bytes from the buffer.
      * If buffer currently contains less bytes than requested, this method reads only available number of bytes.
+     * Concurrent reads are serialized, so each byte is returned to a single reader.
      *
      * @param numberOfBytes
      *          requested number of bytes to read
      * @return actual bytes that could be read from this buffer.
      */
     public byte[] readBytes(int numberOfBytes) {
-        byte[] result = buffer.read(numberOfBytes);
+        byte[] result;
+        synchronized (readLock) {
+            result = buffer.read(numberOfBytes);
+        }
+
+        resumeIfSpaceAvailable();
+
+        return result;
+    }
 
-        synchronized (buffer) {
+    /**
+     * Reads at max given number of bytes from the buffer into given array, without allocating any memory.
+     * If buffer currently contains less bytes than requested, this method reads only available number of bytes.
+     * Concurrent reads are serialized, so each byte is returned to a single reader.
+     *
+     * @param destination
+     *          array where the bytes are copied
+     * @param offset
+     *          position in the array of the first byte read
+     * @param length
+     *          requested number of bytes to read
+     * @return actual number of bytes read
+     */
+    public int readBytes(byte[] destination, int offset, int length) {
+        int count;
+        synchronized (readLock) {
+            count = buffer.read(destination, offset, length);
+        }
+
+        resumeIfSpaceAvailable();
+
+        return count;
+    }
+
+    /**
+     * Acknowledges the message refused because the buffer was full, once enough data has been read.
+     */
+    private void resumeIfSpaceAvailable() {
+        synchronized (waitingMessageLock) {
             if (waitingMessage != null && waitingMessage.getData().length <= buffer.remainingSpace()) {
                 sendResumeAck(waitingMessage);
             }
         }
+    }
 
-        return result;
+    /**
+     * Blocks until given number of bytes is available to read or until given timeout is hit.
+     * The waiting thread is woken up as soon as character data is received, and uses no CPU in between.
+     *
+     * @param numberOfBytes
+     *          number of bytes that we want to be available to read
+     * @param timeout
+     *          maximum time in milliseconds that we want to wait for the bytes
+     * @return true if requested number of bytes is available, false if the timeout was hit, the listener was closed
+     * or the thread was interrupted.
+     */
+    public boolean waitForData(int numberOfBytes, int timeout) {
+        try {
+            return buffer.waitForData(numberOfBytes, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stops waiting for incoming data: threads blocked in {@link #waitForData(int, int)} return immediately.
+     * Bytes already received can still be read.
+     */
+    public void close() {
+        buffer.close();
+    }
+
+    /**
+     * @return true if {@link #close()} has been invoked
+     */
+    public boolean isClosed() {
+        return buffer.isClosed();
     }
 
     /**
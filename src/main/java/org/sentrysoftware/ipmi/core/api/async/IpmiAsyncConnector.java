@@ -45,6 +45,16 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -72,7 +82,15 @@ import org.slf4j.LoggerFactory;
  * <p>
  * To send message register for receiving answers via
  * {@link #registerListener(IpmiResponseListener)} and send message via
- * {@link #sendMessage(ConnectionHandle, PayloadCoder, boolean)}
+ * {@link #sendMessage(ConnectionHandle, PayloadCoder, boolean)}, or send
+ * message via
+ * {@link #sendMessage(ConnectionHandle, PayloadCoder, CompletableFuture)} to
+ * get the answer in the given future
+ * </p>
+ * <br>
+ * <p>
+ * To send message and compose its result asynchronously use
+ * {@link #submit(ConnectionHandle, PayloadCoder)}
  * </p>
  * <br>
  * <p>
@@ -88,6 +106,25 @@ public class IpmiAsyncConnector implements ConnectionListener {
     private final List<IpmiResponseListener> responseListeners;
     private final List<InboundMessageListener> inboundMessageListeners;
 
+    /**
+     * Futures waiting for the response to the given connection and tag, or
+     * responses that arrived before their future was registered.
+     */
+    private final ConcurrentMap<ResponseKey, PendingResponse> pendingResponses = new ConcurrentHashMap<ResponseKey, PendingResponse>();
+
+    /**
+     * Number of requests being sent with a future that is not yet registered,
+     * per connection handle. Early responses are only kept for the handles
+     * present in this map.
+     */
+    private final ConcurrentMap<Integer, Integer> pendingRegistrations = new ConcurrentHashMap<Integer, Integer>();
+
+    /**
+     * Stamps early responses so they are never taken for a request sent
+     * afterwards.
+     */
+    private final AtomicLong responseCounter = new AtomicLong();
+
     private static Logger logger = LoggerFactory.getLogger(IpmiAsyncConnector.class);
 
     /**
@@ -103,7 +140,7 @@ public class IpmiAsyncConnector implements ConnectionListener {
      */
     public IpmiAsyncConnector(int port) throws IOException {
         responseListeners = new ArrayList<IpmiResponseListener>();
-        inboundMessageListeners = new ArrayList<InboundMessageListener>();
+        inboundMessageListeners = new CopyOnWriteArrayList<InboundMessageListener>();
         connectionManager = new ConnectionManager(port);
         sessionManager = new SessionManager();
         loadProperties();
@@ -125,7 +162,7 @@ public class IpmiAsyncConnector implements ConnectionListener {
      */
     public IpmiAsyncConnector(int port, InetAddress address) throws IOException {
         responseListeners = new ArrayList<IpmiResponseListener>();
-        inboundMessageListeners = new ArrayList<InboundMessageListener>();
+        inboundMessageListeners = new CopyOnWriteArrayList<InboundMessageListener>();
         connectionManager = new ConnectionManager(port, address);
         sessionManager = new SessionManager();
         loadProperties();
@@ -144,7 +181,7 @@ public class IpmiAsyncConnector implements ConnectionListener {
 	 */
 	public IpmiAsyncConnector(int port, long pingPeriod) throws IOException {
 		responseListeners = new ArrayList<>();
-		inboundMessageListeners = new ArrayList<>();
+		inboundMessageListeners = new CopyOnWriteArrayList<>();
 		connectionManager = new ConnectionManager(port, pingPeriod);
 		sessionManager = new SessionManager();
 		loadProperties();
@@ -349,8 +386,7 @@ public class IpmiAsyncConnector implements ConnectionListener {
      */
     public void closeSession(ConnectionHandle connectionHandle)
             throws Exception {
-        if (!connectionManager.getConnection(connectionHandle.getHandle())
-                .isSessionValid()) {
+        if (!isSessionValid(connectionHandle)) {
             return;
         }
         int tries = 0;
@@ -383,7 +419,9 @@ public class IpmiAsyncConnector implements ConnectionListener {
      *               - tells whether this message is one way (needs response) or not.
      * @return ID of the message that will be also attached to the response to
      *         pair request with response if queue was not full and message was
-     *         sent, -1 if sending of the message failed.
+     *         sent, -1 if sending of the message failed. Waiting for room in
+     *         the window of the connection lasts at most the timeout of the
+     *         connection over all the tries.
      *
      * @throws ConnectionException
      *             when connection is in the state that does not allow to
@@ -396,16 +434,25 @@ public class IpmiAsyncConnector implements ConnectionListener {
             PayloadCoder request, boolean isOneWay) throws Exception {
         int tries = 0;
         int tag = -1;
+        // waiting for room in the window of the connection, all the tries share the same deadline
+        Connection target = connectionManager.getConnection(connectionHandle.getHandle());
+        long admissionDeadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(target != null ? target.getTimeout() : 0);
         while (tries <= retries && tag < 0) {
             try {
                 ++tries;
-                while (tag < 0) {
-                    tag = connectionManager.getConnection(
-                            connectionHandle.getHandle()).sendMessage(
-                            request, isOneWay);
+                Connection connection = connectionManager.getConnection(connectionHandle.getHandle());
+                if (connection == null) {
+                    throw new ConnectionException("Connection " + connectionHandle.getHandle() + " is closed");
+                }
+                if (isOneWay) {
+                    tag = connection.sendMessage(request, true);
+                } else {
+                    long admissionTimeout = Math.max(0,
+                            TimeUnit.NANOSECONDS.toMillis(admissionDeadline - System.nanoTime()));
+                    tag = connection.sendMessage(request, admissionTimeout);
                     if (tag < 0) {
-                        Thread.sleep(10); // tag < 0 means that MessageQueue is
-                                            // full so we need to wait and retry
+                        throw new ConnectionException("Message queue full");
                     }
                 }
                 logger.debug("Sending message with tag " + tag + ", try "
@@ -440,8 +487,297 @@ public class IpmiAsyncConnector implements ConnectionListener {
         return connectionManager.getConnection(connectionHandle.getHandle()).retry(tag, messagePayloadType);
     }
 
+    /**
+     * Sends the IPMI message to the remote host. Besides being broadcast to
+     * the registered listeners, the answer completes the given future with
+     * {@link IpmiResponseData} or {@link IpmiError} as soon as it arrives.
+     *
+     * @param connectionHandle
+     *            - {@link ConnectionHandle} associated with the remote host.
+     * @param request
+     *            - {@link PayloadCoder} containing the request to be sent
+     * @param response
+     *            - future completed with the answer to the request
+     * @return ID of the message that will be also attached to the response
+     *
+     * @throws ConnectionException
+     *             when connection is in the state that does not allow to
+     *             perform this operation.
+     * @throws Exception
+     *             when sending message to the managed system or initializing
+     *             one of the cipherSuite's algorithms fails
+     */
+    public int sendMessage(ConnectionHandle connectionHandle, PayloadCoder request,
+            CompletableFuture<IpmiResponse> response) throws Exception {
+        long registrationStart = beginRegistration(connectionHandle.getHandle());
+        try {
+            int tag = sendMessage(connectionHandle, request, false);
+            registerPendingResponse(connectionHandle.getHandle(), tag, response, registrationStart);
+            return tag;
+        } finally {
+            endRegistration(connectionHandle.getHandle());
+        }
+    }
+
+    /**
+     * Sends the IPMI message to the remote host and returns its answer as a
+     * future. The deadline is the timeout of the connection.
+     *
+     * @param connectionHandle
+     *            - {@link ConnectionHandle} associated with the remote host.
+     * @param request
+     *            - {@link PayloadCoder} containing the request to be sent
+     * @return future {@link ResponseData} for the <b>request</b>, completed
+     *         exceptionally with {@link ConnectionException} if the connection
+     *         is closed
+     * @see #submit(ConnectionHandle, PayloadCoder, long)
+     */
+    public CompletableFuture<ResponseData> submit(ConnectionHandle connectionHandle, PayloadCoder request) {
+        Connection connection = connectionManager.getConnection(connectionHandle.getHandle());
+        if (connection == null) {
+            return closedConnection(connectionHandle);
+        }
+        return submit(connectionHandle, request, connection.getTimeout());
+    }
+
+    /**
+     * Sends the IPMI message to the remote host and returns its answer as a
+     * future. The invoking thread is not blocked: if the window of the
+     * connection is full the request is sent when an earlier message leaves
+     * it. The message is not retried: the future is completed
+     * exceptionally when sending fails, when the remote host answers with an
+     * error or when no answer arrives before the deadline.<br>
+     * The future is completed by the thread receiving the answer, so
+     * dependent actions that may block should be run with an executor.
+     *
+     * @param connectionHandle
+     *            - {@link ConnectionHandle} associated with the remote host.
+     * @param request
+     *            - {@link PayloadCoder} containing the request to be sent
+     * @param timeout
+     *            - time in ms after which the request fails with
+     *            {@link ConnectionException}
+     * @return future {@link ResponseData} for the <b>request</b>, completed
+     *         exceptionally with {@link ConnectionException} if the connection
+     *         is closed
+     */
+    public CompletableFuture<ResponseData> submit(ConnectionHandle connectionHandle, PayloadCoder request,
+            long timeout) {
+        Connection connection = connectionManager.getConnection(connectionHandle.getHandle());
+        if (connection == null) {
+            return closedConnection(connectionHandle);
+        }
+
+        final CompletableFuture<IpmiResponse> response = new CompletableFuture<IpmiResponse>();
+
+        CompletableFuture<ResponseData> result = response.thenApply(answer -> {
+            if (answer instanceof IpmiResponseData) {
+                return ((IpmiResponseData) answer).getResponseData();
+            }
+            throw new CompletionException(((IpmiError) answer).getException());
+        });
+
+        sendWhenReady(connection, connectionHandle, request, response);
+
+        final ScheduledFuture<?> deadline = connectionManager.getScheduler().schedule(
+                () -> response.completeExceptionally(new ConnectionException("Message timed out")),
+                timeout, TimeUnit.MILLISECONDS);
+
+        response.whenComplete((answer, exception) -> deadline.cancel(false));
+
+        return result;
+    }
+
+    private static CompletableFuture<ResponseData> closedConnection(ConnectionHandle connectionHandle) {
+        CompletableFuture<ResponseData> result = new CompletableFuture<ResponseData>();
+        result.completeExceptionally(
+                new ConnectionException("Connection " + connectionHandle.getHandle() + " is closed"));
+        return result;
+    }
+
+    /**
+     * Sends the request if the window of the connection has room for it,
+     * otherwise tries again when a message leaves the window.
+     */
+    private void sendWhenReady(final Connection connection, final ConnectionHandle connectionHandle,
+            final PayloadCoder request, final CompletableFuture<IpmiResponse> response) {
+        if (response.isDone()) {
+            // deadline passed while waiting for the window
+            return;
+        }
+
+        long registrationStart = beginRegistration(connectionHandle.getHandle());
+        try {
+            int tag = connection.sendMessage(request, false);
+
+            if (tag < 0) {
+                connection.whenReadyToSend(request,
+                        () -> sendWhenReady(connection, connectionHandle, request, response));
+            } else {
+                registerPendingResponse(connectionHandle.getHandle(), tag, response, registrationStart);
+            }
+        } catch (Exception e) {
+            response.completeExceptionally(e);
+        } finally {
+            endRegistration(connectionHandle.getHandle());
+        }
+    }
+
+    /**
+     * Attempts to retry sending a message. The given future is completed
+     * with the answer to the retried message.
+     *
+     * @param connectionHandle
+     *            - {@link ConnectionHandle} associated with the remote host.
+     * @param tag
+     *            - tag of the message to retry
+     * @param messagePayloadType
+     *             - {@link PayloadType} of the message that should be retried
+     * @param response
+     *            - future completed with the answer to the request
+     * @return new tag if message was retried, -1 if operation failed
+     * @throws ConnectionException
+     *             when connection isn't in state where sending commands is
+     *             allowed
+     */
+    public int retry(ConnectionHandle connectionHandle, int tag, PayloadType messagePayloadType,
+            CompletableFuture<IpmiResponse> response) throws ConnectionException {
+        long registrationStart = beginRegistration(connectionHandle.getHandle());
+        try {
+            int newTag = retry(connectionHandle, tag, messagePayloadType);
+            registerPendingResponse(connectionHandle.getHandle(), newTag, response, registrationStart);
+            return newTag;
+        } finally {
+            endRegistration(connectionHandle.getHandle());
+        }
+    }
+
+    /**
+     * Opens the window during which early responses to the given connection
+     * are kept.
+     *
+     * @return stamp of the last response received before the request is sent
+     */
+    private long beginRegistration(int handle) {
+        pendingRegistrations.merge(handle, 1, Integer::sum);
+        return responseCounter.get();
+    }
+
+    /**
+     * Closes the window opened by {@link #beginRegistration(int)}.
+     */
+    private void endRegistration(int handle) {
+        pendingRegistrations.computeIfPresent(handle, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Registers the future waiting for the response to the message sent with
+     * the given tag. If the response already arrived, completes the future
+     * immediately.
+     */
+    private void registerPendingResponse(int handle, int tag, CompletableFuture<IpmiResponse> response,
+            long registrationStart) {
+        if (tag < 0) {
+            return;
+        }
+
+        final ResponseKey key = new ResponseKey(handle, tag);
+        final PendingResponse waiting = new PendingResponse(response);
+
+        while (true) {
+            PendingResponse existing = pendingResponses.putIfAbsent(key, waiting);
+
+            if (existing == null) {
+                removeWhenDone(key, waiting);
+                return;
+            }
+
+            if (existing.future == null && existing.stamp > registrationStart) {
+                if (pendingResponses.remove(key, existing)) {
+                    existing.cancelExpiry();
+                    response.complete(existing.response);
+                    return;
+                }
+            } else if (pendingResponses.replace(key, existing, waiting)) {
+                // stale entry left by a previous message with the same tag
+                existing.cancelExpiry();
+                removeWhenDone(key, waiting);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the registered future once it is completed otherwise, e.g. by
+     * its deadline, instead of leaving it until the tag is reused.
+     */
+    private void removeWhenDone(final ResponseKey key, final PendingResponse waiting) {
+        waiting.future.whenComplete((answer, exception) -> pendingResponses.remove(key, waiting));
+    }
+
+    /**
+     * Completes the future waiting for the response, or keeps the response
+     * for a future that is about to be registered. A response kept but never
+     * claimed, e.g. the answer to a message sent without a future, is
+     * dropped after the timeout of the connection.
+     */
+    private void completePendingResponse(int handle, int tag, IpmiResponse response, int timeout) {
+        ResponseKey key = new ResponseKey(handle, tag);
+
+        PendingResponse pending = pendingResponses.remove(key);
+
+        if (pending != null && pending.future != null) {
+            pending.future.complete(response);
+            return;
+        }
+
+        if (pendingRegistrations.containsKey(handle)) {
+            PendingResponse early = new PendingResponse(response, responseCounter.incrementAndGet());
+            PendingResponse waiting = pendingResponses.putIfAbsent(key, early);
+
+            if (waiting == null) {
+                early.expiry = expire(key, early, timeout);
+            } else if (waiting.future != null && pendingResponses.remove(key, waiting)) {
+                waiting.future.complete(response);
+            }
+        }
+    }
+
+    /**
+     * Drops the early response if it is still unclaimed after the timeout.
+     *
+     * @return the task dropping the response, cancelled when it is claimed
+     */
+    private ScheduledFuture<?> expire(final ResponseKey key, final PendingResponse early, int timeout) {
+        try {
+            return connectionManager.getScheduler().schedule(() -> pendingResponses.remove(key, early), timeout,
+                    TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the connector is torn down
+            pendingResponses.remove(key, early);
+            return null;
+        }
+    }
+
+    /**
+     * Fails all futures waiting for responses on the given connection.
+     */
+    private void failPendingResponses(ConnectionHandle handle) {
+        for (Map.Entry<ResponseKey, PendingResponse> entry : pendingResponses.entrySet()) {
+            ResponseKey key = entry.getKey();
+            PendingResponse pending = entry.getValue();
+
+            if (key.handle == handle.getHandle() && pendingResponses.remove(key, pending)
+                    && pending.future != null) {
+                pending.future.complete(new IpmiError(new ConnectionException("Connection closed"), key.tag, handle));
+            }
+        }
+    }
+
     /**
      * Registers the listener so it will be notified of incoming messages.
+     * The listener is called by the thread receiving the messages and must
+     * not block.
      *
      * @param listener
      *            {@link IpmiResponseListener} to processResponse
@@ -472,9 +808,7 @@ public class IpmiAsyncConnector implements ConnectionListener {
      *             the {@link InboundMessageListener} to register.
      */
     public void registerIncomingPayloadListener(InboundMessageListener listener) {
-        synchronized (inboundMessageListeners) {
-            inboundMessageListeners.add(listener);
-        }
+        inboundMessageListeners.add(listener);
     }
 
     /**
@@ -484,9 +818,7 @@ public class IpmiAsyncConnector implements ConnectionListener {
      *             the {@link InboundMessageListener} to unregister.
      */
     public void unregisterIncomingPayloadListener(InboundMessageListener listener) {
-        synchronized (inboundMessageListeners) {
-            inboundMessageListeners.remove(listener);
-        }
+        inboundMessageListeners.remove(listener);
     }
 
     @Override
@@ -494,6 +826,12 @@ public class IpmiAsyncConnector implements ConnectionListener {
         IpmiResponse response = null;
         Connection connection = connectionManager.getConnection(handle);
 
+        if (connection == null) {
+            // the connection was closed while the message was in flight
+            logger.debug("Ignoring response with tag " + tag + " to closed connection " + handle);
+            return;
+        }
+
         if (responseData == null || exception != null) {
             Exception notNullException = exception != null ? exception : new Exception("Empty response");
 
@@ -504,6 +842,9 @@ public class IpmiAsyncConnector implements ConnectionListener {
                     new ConnectionHandle(handle, connection.getRemoteMachineAddress(), connection.getRemoteMachinePort()));
 
         }
+
+        completePendingResponse(handle, tag, response, connection.getTimeout());
+
         synchronized (responseListeners) {
             for (IpmiResponseListener listener : responseListeners) {
                 if (listener != null) {
@@ -522,13 +863,38 @@ public class IpmiAsyncConnector implements ConnectionListener {
         }
     }
 
+    @Override
+    public void processRequest(IpmiPayload payload, int handle) {
+        for (InboundMessageListener listener : inboundMessageListeners) {
+            if (listener.isPayloadSupported(payload, handle)) {
+                listener.notify(payload);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the session of the connection with the given handle is
+     * established and was not closed.
+     * @param handle
+     * - {@link ConnectionHandle} associated with the remote host.
+     * @return true if messages can be sent within the session
+     */
+    public boolean isSessionValid(ConnectionHandle handle) {
+        Connection connection = connectionManager.getConnection(handle.getHandle());
+        return connection != null && connection.isSessionValid();
+    }
+
     /**
      * Closes the connection with the given handle
      */
     public void closeConnection(ConnectionHandle handle) {
-        connectionManager.getConnection(handle.getHandle()).unregisterListener(
-                this);
+        Connection connection = connectionManager.getConnection(handle.getHandle());
+        if (connection == null) {
+            return;
+        }
+        connection.unregisterListener(this);
         connectionManager.closeConnection(handle.getHandle());
+        failPendingResponses(handle);
     }
 
     /**
@@ -549,4 +915,77 @@ public class IpmiAsyncConnector implements ConnectionListener {
         connectionManager.getConnection(handle.getHandle()).setTimeout(timeout);
     }
 
+    /**
+     * Changes the maximum number of messages waiting for an answer at the
+     * same time on the connection with the given handle.
+     * @param handle
+     * - {@link ConnectionHandle} associated with the remote host.
+     * @param windowSize
+     * - maximum number of messages in flight, at most 63
+     */
+    public void setWindowSize(ConnectionHandle handle, int windowSize) {
+        connectionManager.getConnection(handle.getHandle()).setWindowSize(windowSize);
+    }
+
+    /**
+     * Connection handle and tag of the awaited response.
+     */
+    private static final class ResponseKey {
+        private final int handle;
+        private final int tag;
+
+        ResponseKey(int handle, int tag) {
+            this.handle = handle;
+            this.tag = tag;
+        }
+
+        @Override
+        public int hashCode() {
+            return handle * 64 + tag;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ResponseKey)) {
+                return false;
+            }
+            ResponseKey other = (ResponseKey) obj;
+            return handle == other.handle && tag == other.tag;
+        }
+    }
+
+    /**
+     * Either the future waiting for the response, or the response that
+     * arrived first.
+     */
+    private static final class PendingResponse {
+        private final CompletableFuture<IpmiResponse> future;
+        private final IpmiResponse response;
+        private final long stamp;
+
+        /**
+         * Drops the early response if it is never claimed.
+         */
+        private volatile ScheduledFuture<?> expiry;
+
+        PendingResponse(CompletableFuture<IpmiResponse> future) {
+            this.future = future;
+            this.response = null;
+            this.stamp = 0;
+        }
+
+        PendingResponse(IpmiResponse response, long stamp) {
+            this.future = null;
+            this.response = response;
+            this.stamp = stamp;
+        }
+
+        void cancelExpiry() {
+            ScheduledFuture<?> task = expiry;
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+    }
+
 }
@@ -32,7 +32,9 @@ import org.sentrysoftware.ipmi.core.api.async.messages.IpmiResponseData;
 public interface IpmiResponseListener {
 
     /**
-     * Notifies listener of action that occurred.
+     * Notifies listener of action that occurred. Invoked by the thread
+     * receiving the messages of all the connections, so it must not block:
+     * slow processing has to be handed to an executor.
      *
      * @param response
      *            <ul><li>- {@link IpmiResponse} being notified </li>
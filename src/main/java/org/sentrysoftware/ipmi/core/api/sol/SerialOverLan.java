@@ -55,15 +55,24 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.ByteChannel;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 /**
  * Entry point for the Serial Over LAN (SOL) communication. Use all SOL operations through this class.
+ * <p>
+ * The read methods may be invoked by several threads: the reads are serialized and each received byte is returned
+ * to a single reader, so threads reading concurrently get interleaved parts of the console output.
  */
 public class SerialOverLan implements Closeable {
 
@@ -75,10 +84,14 @@ public class SerialOverLan implements Closeable {
     private final List<SolEventListener> eventListeners;
 
     private boolean isSessionInternal;
+    private boolean isConnectorInternal;
     private int payloadInstance;
     private int maxPayloadSize;
     private boolean closed;
 
+    private volatile SolOutboundBuffer outboundBuffer;
+    private ScheduledExecutorService writeScheduler;
+
     /**
      * Creates connection with IPMI using given {@link IpmiConnector}, connected to remote machine on given address and port,
      * and opens a new {@link Session} for SOL communication.
@@ -104,6 +117,7 @@ public class SerialOverLan implements Closeable {
         this(connector, SessionManager.establishSession(connector, remoteHost, remotePort, user, password, cipherSuiteSelectionHandler));
 
         this.isSessionInternal = true;
+        this.isConnectorInternal = true;
     }
 
     /**
@@ -154,6 +168,25 @@ public class SerialOverLan implements Closeable {
         this.closed = false;
     }
 
+    /**
+     * Uses the SOL payload already activated in the session, whose data is received by given listener.
+     * The listener is not registered in the connector.
+     *
+     * @param connector
+     *          {@link IpmiConnector} that will be used for communication
+     * @param session
+     *          Session in which SOL payload is activated
+     * @param inboundMessageListener
+     *          {@link InboundSolMessageListener} receiving the data of the remote serial port
+     */
+    SerialOverLan(IpmiConnector connector, Session session, InboundSolMessageListener inboundMessageListener) {
+        this.connector = connector;
+        this.session = session;
+        this.eventListeners = new LinkedList<SolEventListener>();
+        this.inboundMessageListener = inboundMessageListener;
+        this.closed = false;
+    }
+
     /**
      * Given potential session object, connection data and port on which SOL should be activated,
      * decides what session should be finally used to SOL communication.
@@ -180,7 +213,7 @@ public class SerialOverLan implements Closeable {
             if (alternativeSession == null) {
                 CipherSuiteSelectionHandler cipherSuiteSelector = new SpecificCipherSuiteSelector(connectionHandle.getCipherSuite());
 
-                alternativeSession = SessionManager.establishSession(connector, connectionHandle.getRemoteAddress().getHostAddress(),
+                alternativeSession = SessionManager.establishSharedSession(connector, connectionHandle.getRemoteAddress().getHostAddress(),
                         solPayloadPort, connectionHandle.getUser(), connectionHandle.getPassword(), cipherSuiteSelector);
                 this.isSessionInternal = true;
 
@@ -309,29 +342,139 @@ public class SerialOverLan implements Closeable {
      * @return true if all bytes were successfully sent and acknowledged by remote server, false otherwise.
      */
     public boolean writeBytes(byte[] buffer) {
-        boolean result = true;
+        return writeBytes(buffer, 0, buffer.length);
+    }
 
-        int maxBufferSize = maxPayloadSize - SolMessage.PAYLOAD_HEADER_LENGTH;
-        byte[] remainingBytes = buffer;
-        int currentIndex = 0;
+    /**
+     * Writes part of a bytes array to the port.
+     * This operation blocks until all data can be sent to remote server and is either accepted or rejected by the server.
+     *
+     * @param buffer
+     *          an array containing the bytes to write
+     * @param offset
+     *          position in the array of the first byte to write
+     * @param length
+     *          number of bytes to write
+     * @return true if all bytes were successfully sent and acknowledged by remote server, false otherwise.
+     */
+    public boolean writeBytes(byte[] buffer, int offset, int length) {
+        SolOutboundBuffer outbound = outboundBuffer;
 
-        while (remainingBytes.length - currentIndex > maxBufferSize) {
-            byte[] bufferChunk = Arrays.copyOfRange(remainingBytes, currentIndex, maxBufferSize);
-            currentIndex += maxBufferSize;
+        if (outbound != null) {
+            // Bytes written concurrently by other threads are sent in the same packets
+            boolean queued = outbound.write(buffer, offset, length);
+            return outbound.flush() && queued;
+        }
 
-            result &= sendMessage(bufferChunk);
+        return sendBytes(buffer, offset, length);
+    }
 
-            if (!result) {
+    /**
+     * Writes part of a bytes array to the port without coalescing, splitting it in packets of the maximum payload size.
+     * This operation blocks until all data is either accepted or rejected by the server.
+     *
+     * @param buffer
+     *          an array containing the bytes to write
+     * @param offset
+     *          position in the array of the first byte to write
+     * @param length
+     *          number of bytes to write
+     * @return true if all bytes were successfully sent and acknowledged by remote server, false otherwise.
+     */
+    boolean sendBytes(byte[] buffer, int offset, int length) {
+        int maxBufferSize = maxPayloadSize - SolMessage.PAYLOAD_HEADER_LENGTH;
+        int currentIndex = offset;
+        int end = offset + length;
+
+        while (end - currentIndex > 0) {
+            int chunkEnd = Math.min(currentIndex + maxBufferSize, end);
+            byte[] bufferChunk = Arrays.copyOfRange(buffer, currentIndex, chunkEnd);
+            currentIndex = chunkEnd;
+
+            if (!sendMessage(bufferChunk)) {
                 return false;
             }
         }
 
-        if (remainingBytes.length - currentIndex > 0) {
-            remainingBytes = Arrays.copyOfRange(remainingBytes, currentIndex, remainingBytes.length);
-            result &= sendMessage(remainingBytes);
+        return true;
+    }
+
+    /**
+     * Enables the coalescing of the written bytes, using a dedicated daemon thread to send them.
+     *
+     * @param delay
+     *          maximum time in milliseconds that written bytes wait for more bytes before being sent
+     * @see #enableWriteCoalescing(int, ScheduledExecutorService)
+     */
+    public synchronized void enableWriteCoalescing(int delay) {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ipmi-sol-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+
+        enableWriteCoalescing(delay, scheduler);
+
+        this.writeScheduler = scheduler;
+    }
+
+    /**
+     * Enables the coalescing of the written bytes. Bytes written with {@link #writeBuffered(byte[], int, int)} or through
+     * {@link #getOutputStream()} are queued, and sent when they fill a SOL payload or when they have waited for given delay,
+     * so that characters written one at a time share the same packets. While a packet waits for its acknowledgement,
+     * the following bytes are queued and sent together as soon as it is received.
+     * The blocking writes (e.g. {@link #writeBytes(byte[])}) still return when their bytes are acknowledged, but are sent
+     * with the queued bytes.
+     *
+     * @param delay
+     *          maximum time in milliseconds that written bytes wait for more bytes before being sent
+     * @param scheduler
+     *          {@link ScheduledExecutorService} sending the packets and waiting for their ACK. It is blocked while a packet
+     *          waits for its acknowledgement, so it should not be shared with short periodic tasks.
+     * @throws IllegalStateException if coalescing is already enabled
+     */
+    public synchronized void enableWriteCoalescing(int delay, ScheduledExecutorService scheduler) {
+        if (outboundBuffer != null) {
+            throw new IllegalStateException("Write coalescing is already enabled");
+        }
+
+        outboundBuffer = new SolOutboundBuffer(this::sendBytes, scheduler, delay, maxPayloadSize - SolMessage.PAYLOAD_HEADER_LENGTH);
+    }
+
+    /**
+     * Writes part of a bytes array to the port, without waiting for the data to be sent when coalescing is enabled
+     * (see {@link #enableWriteCoalescing(int)}). Otherwise, behaves like {@link #writeBytes(byte[], int, int)}.
+     *
+     * @param buffer
+     *          an array containing the bytes to write
+     * @param offset
+     *          position in the array of the first byte to write
+     * @param length
+     *          number of bytes to write
+     * @return false if bytes written previously were rejected by the remote server, true otherwise.
+     * Use {@link #flush()} to know if these bytes are accepted.
+     */
+    public boolean writeBuffered(byte[] buffer, int offset, int length) {
+        SolOutboundBuffer outbound = outboundBuffer;
+
+        if (outbound != null) {
+            return outbound.write(buffer, offset, length);
         }
 
-        return result;
+        return sendBytes(buffer, offset, length);
+    }
+
+    /**
+     * Sends the bytes queued by {@link #writeBuffered(byte[], int, int)} without waiting for the coalescing delay.
+     * This operation blocks until they are either accepted or rejected by the server.
+     *
+     * @return true if all bytes written so far were successfully sent and acknowledged by remote server, false otherwise.
+     */
+    public boolean flush() {
+        SolOutboundBuffer outbound = outboundBuffer;
+
+        return outbound == null || outbound.flush();
     }
 
     /**
@@ -430,6 +573,45 @@ public class SerialOverLan implements Closeable {
         return readBytes(byteCount);
     }
 
+    /**
+     * Reads at max given number of bytes from the port into given array, without allocating any memory.
+     * Returns immediately, without waiting for data to be available.
+     * Concurrent reads are serialized, so each byte is returned to a single reader.
+     *
+     * @param buffer
+     *          array where the bytes are copied
+     * @param offset
+     *          position in the array of the first byte read
+     * @param byteCount
+     *          maximum number of bytes that should be read
+     * @return number of bytes read, 0 if no bytes were available.
+     */
+    public int read(byte[] buffer, int offset, int byteCount) {
+        return inboundMessageListener.readBytes(buffer, offset, byteCount);
+    }
+
+    /**
+     * Reads at max given number of bytes from the port into given array, without allocating any memory.
+     * This operation blocks until given number of bytes is available to be read or until given timeout is hit.
+     * Concurrent reads are serialized, so each byte is returned to a single reader.
+     *
+     * @param buffer
+     *          array where the bytes are copied
+     * @param offset
+     *          position in the array of the first byte read
+     * @param byteCount
+     *          maximum number of bytes that should be read
+     * @param timeout
+     *          maximum time in milliseconds that we want to wait for all available bytes
+     * @return number of bytes read, but no more than byteCount.
+     * When the timeout is hit, reads just bytes that were available and returns 0 if no bytes were available.
+     */
+    public int read(byte[] buffer, int offset, int byteCount, int timeout) {
+        waitForData(byteCount, timeout);
+
+        return read(buffer, offset, byteCount);
+    }
+
     /**
      * Reads all available bytes from the port as integer (in range from 0 to 255) values array.
      * Returns immediately, without waiting for data to be available.
@@ -563,19 +745,123 @@ public class SerialOverLan implements Closeable {
     }
 
     private void waitForData(int wantedByteCount, int timeout) {
-        long startTime = System.currentTimeMillis();
+        inboundMessageListener.waitForData(wantedByteCount, timeout);
+    }
+
+    /**
+     * Reads at max given number of bytes from the port into given array, blocking until at least one byte is available.
+     *
+     * @param buffer
+     *          array where the bytes are copied
+     * @param offset
+     *          position in the array of the first byte read
+     * @param byteCount
+     *          maximum number of bytes that should be read
+     * @return number of bytes read, or -1 if this {@link SerialOverLan} is closed and all received bytes were read.
+     * @throws InterruptedIOException
+     *          when the thread is interrupted while waiting for data
+     */
+    int readBlocking(byte[] buffer, int offset, int byteCount) throws InterruptedIOException {
+        if (byteCount == 0) {
+            return 0;
+        }
 
-        while (isTooFewBytesAvailable(wantedByteCount) && timeoutNotHit(timeout, startTime)) {
-            // NOP, just waiting
+        while (true) {
+            int count = read(buffer, offset, byteCount);
+
+            if (count > 0) {
+                return count;
+            }
+
+            if (inboundMessageListener.isClosed()) {
+                return -1;
+            }
+
+            if (!inboundMessageListener.waitForData(1, Integer.MAX_VALUE) && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted while waiting for SOL data");
+            }
         }
     }
 
-    private boolean isTooFewBytesAvailable(int wantedByteCount) {
-        return inboundMessageListener.getAvailableBytesCount() < wantedByteCount;
+    /**
+     * Returns number of received bytes that can be read without blocking.
+     *
+     * @return number of available bytes to read
+     */
+    public int getAvailableBytesCount() {
+        return inboundMessageListener.getAvailableBytesCount();
     }
 
-    private boolean timeoutNotHit(int timeout, long startTime) {
-        return System.currentTimeMillis() - startTime < timeout;
+    /**
+     * Sets the callback invoked each time data is received from the remote serial port, so that many ports can be read
+     * without blocking a thread per port. The callback is invoked by the thread receiving the messages and must return quickly,
+     * typically by scheduling the read on another thread. It is also invoked once right away, in case data was already received.
+     *
+     * @param listener
+     *          callback to invoke, null to remove it
+     */
+    public void setDataListener(Runnable listener) {
+        inboundMessageListener.setDataListener(listener);
+
+        if (listener != null && getAvailableBytesCount() > 0) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Returns the {@link Session} used for SOL communication.
+     *
+     * @return the {@link Session} of this {@link SerialOverLan}
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Returns true if this {@link SerialOverLan} has been closed.
+     *
+     * @return true if {@link #close()} has been invoked
+     */
+    public boolean isClosed() {
+        return inboundMessageListener.isClosed();
+    }
+
+    /**
+     * Returns an {@link InputStream} reading the data received from the remote serial port. Reads block until data is available,
+     * and the end of the stream is reached when this {@link SerialOverLan} is closed.
+     * Data that is not read stays in the inbound buffer: when it is full, incoming packets are refused (NACK) and the remote
+     * server holds the data until the application reads again, so a slow consumer throttles the console.
+     * Closing the stream closes this {@link SerialOverLan}.
+     *
+     * @return {@link InputStream} of the remote serial port.
+     */
+    public InputStream getInputStream() {
+        return new SolInputStream(this);
+    }
+
+    /**
+     * Returns an {@link OutputStream} writing to the remote serial port. Each write blocks until the data is acknowledged
+     * by the remote server, and throws an {@link IOException} if it is rejected. When coalescing is enabled
+     * (see {@link #enableWriteCoalescing(int)}), writes are queued instead, and rejections are reported by the following
+     * write or by {@link OutputStream#flush()}.
+     * Closing the stream closes this {@link SerialOverLan}.
+     *
+     * @return {@link OutputStream} of the remote serial port.
+     */
+    public OutputStream getOutputStream() {
+        return new SolOutputStream(this);
+    }
+
+    /**
+     * Returns a {@link ByteChannel} reading from and writing to the remote serial port, for example to pipe the console to a
+     * {@link java.nio.channels.FileChannel} with {@link java.nio.channels.FileChannel#transferFrom}. The channel is blocking,
+     * with the same semantics and backpressure as {@link #getInputStream()} and {@link #getOutputStream()}.
+     * Closing the channel closes this {@link SerialOverLan}.
+     *
+     * @return {@link ByteChannel} of the remote serial port.
+     */
+    public ByteChannel getChannel() {
+        return new SolChannel(this);
     }
 
     /**
@@ -586,6 +872,9 @@ public class SerialOverLan implements Closeable {
      * @return true if operations were successfully sent and acknowledged by remote server, false otherwise.
      */
     public boolean invokeOperations(SolOperation... operations) {
+        // Operations apply after the characters already written
+        flush();
+
         Set<SolOperation> operationSet = new HashSet<SolOperation>();
 
         for (SolOperation operation : operations) {
@@ -680,6 +969,18 @@ public class SerialOverLan implements Closeable {
     @Override
     public synchronized void close() throws IOException {
         if (!closed) {
+            // Readers blocked in streams and channels reach the end of data
+            inboundMessageListener.close();
+            connector.unregisterIncomingMessageListener(inboundMessageListener);
+
+            if (!flush()) {
+                logger.warn("Data written before closing Serial over LAN was not acknowledged by the remote server");
+            }
+
+            if (writeScheduler != null) {
+                writeScheduler.shutdown();
+            }
+
             try {
                 ConnectionHandle connectionHandle = session.getConnectionHandle();
 
@@ -690,7 +991,13 @@ public class SerialOverLan implements Closeable {
 
                 if (isSessionInternal) {
                     connector.closeSession(connectionHandle);
-                    connector.tearDown();
+
+                    // The connector given with an existing session may be shared with other sessions
+                    if (isConnectorInternal) {
+                        connector.tearDown();
+                    } else {
+                        connector.closeConnection(connectionHandle);
+                    }
                 }
 
                 closed = true;
@@ -0,0 +1,128 @@
+package org.sentrysoftware.ipmi.core.api.sol;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * Blocking {@link ByteChannel} reading from and writing to the remote serial port of a {@link SerialOverLan}.
+ * Heap buffers are read and written in place, direct buffers go through a scratch array.
+ *
+ * @see SerialOverLan#getChannel()
+ */
+class SolChannel implements ByteChannel {
+
+    /**
+     * Size of the scratch arrays used with direct buffers.
+     */
+    private static final int SCRATCH_SIZE = 2048;
+
+    private final SerialOverLan serialOverLan;
+
+    /**
+     * Scratch arrays for direct buffers, one per direction as a read and a write may be in progress at the same time.
+     */
+    private byte[] readScratch;
+    private byte[] writeScratch;
+
+    SolChannel(SerialOverLan serialOverLan) {
+        this.serialOverLan = serialOverLan;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
+        if (dst.hasArray()) {
+            int count = serialOverLan.readBlocking(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+
+            if (count > 0) {
+                dst.position(dst.position() + count);
+            }
+
+            return count;
+        }
+
+        if (readScratch == null) {
+            readScratch = new byte[SCRATCH_SIZE];
+        }
+
+        byte[] bytes = readScratch;
+        int count = serialOverLan.readBlocking(bytes, 0, Math.min(bytes.length, dst.remaining()));
+
+        if (count > 0) {
+            dst.put(bytes, 0, count);
+        }
+
+        return count;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (serialOverLan.isClosed()) {
+            throw new ClosedChannelException();
+        }
+
+        int length = src.remaining();
+
+        if (src.hasArray()) {
+            write(src.array(), src.arrayOffset() + src.position(), length);
+            src.position(src.limit());
+        } else {
+            if (writeScratch == null) {
+                writeScratch = new byte[SCRATCH_SIZE];
+            }
+
+            byte[] bytes = writeScratch;
+
+            while (src.hasRemaining()) {
+                int chunk = Math.min(bytes.length, src.remaining());
+                src.get(bytes, 0, chunk);
+                write(bytes, 0, chunk);
+            }
+        }
+
+        return length;
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > 0 && !serialOverLan.writeBytes(bytes, offset, length)) {
+            throw new IOException("Data was not acknowledged by the remote server");
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !serialOverLan.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serialOverLan.close();
+    }
+}
@@ -0,0 +1,68 @@
+package org.sentrysoftware.ipmi.core.api.sol;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} reading the data received from the remote serial port of a {@link SerialOverLan}.
+ *
+ * @see SerialOverLan#getInputStream()
+ */
+class SolInputStream extends InputStream {
+
+    private final SerialOverLan serialOverLan;
+
+    SolInputStream(SerialOverLan serialOverLan) {
+        this.serialOverLan = serialOverLan;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] singleByte = new byte[1];
+
+        int count = read(singleByte, 0, 1);
+
+        return count < 0 ? -1 : singleByte[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return serialOverLan.readBlocking(b, off, len);
+    }
+
+    @Override
+    public int available() {
+        return serialOverLan.getAvailableBytesCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serialOverLan.close();
+    }
+}
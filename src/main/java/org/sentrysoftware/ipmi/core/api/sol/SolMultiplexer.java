@@ -0,0 +1,375 @@
+package org.sentrysoftware.ipmi.core.api.sol;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import org.sentrysoftware.ipmi.core.api.async.ConnectionHandle;
+import org.sentrysoftware.ipmi.core.api.sync.IpmiConnector;
+import org.sentrysoftware.ipmi.core.connection.Session;
+import org.sentrysoftware.ipmi.core.connection.SessionException;
+import org.sentrysoftware.ipmi.core.connection.SessionManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many Serial Over LAN consoles over a single {@link IpmiConnector}, i.e. one UDP socket and one receiving thread,
+ * and copies the data received from each console to its own sink (e.g. a {@link java.nio.channels.FileChannel} of the console log).
+ * <p>
+ * No thread is blocked per console: when data is received for a console, the console is scheduled on a small thread pool,
+ * which drains its inbound buffer into the sink. A console is never drained by two threads at the same time, so the data
+ * is written to the sink in order. When a sink is slower than the console, the inbound buffer fills up and the remote server
+ * holds the data (NACK) until it is drained.
+ * <p>
+ * The sinks must write all the given bytes before returning, as channels in blocking mode do. A sink that accepts no bytes
+ * (e.g. a full non-blocking channel) closes its console, rather than keeping a thread of the pool busy.
+ * <p>
+ * The consoles can also be written to, or receive SOL operations, through {@link Console#getSerialOverLan()}.
+ */
+public class SolMultiplexer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolMultiplexer.class);
+
+    /**
+     * Maximum number of bytes copied to a sink in a single write.
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    private final IpmiConnector connector;
+    private final ExecutorService executor;
+    private final boolean isExecutorInternal;
+
+    private final Set<Console> consoles = Collections.newSetFromMap(new ConcurrentHashMap<Console, Boolean>());
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a multiplexer draining the consoles with its own pool of daemon threads.
+     *
+     * @param connector
+     *          {@link IpmiConnector} shared by all the consoles
+     * @param threads
+     *          number of threads copying the received data to the sinks
+     */
+    public SolMultiplexer(IpmiConnector connector, int threads) {
+        this(connector, createExecutor(threads), true);
+    }
+
+    /**
+     * Creates a multiplexer draining the consoles with given {@link ExecutorService}, which is not shut down by {@link #close()}.
+     *
+     * @param connector
+     *          {@link IpmiConnector} shared by all the consoles
+     * @param executor
+     *          {@link ExecutorService} copying the received data to the sinks
+     */
+    public SolMultiplexer(IpmiConnector connector, ExecutorService executor) {
+        this(connector, executor, false);
+    }
+
+    private SolMultiplexer(IpmiConnector connector, ExecutorService executor, boolean isExecutorInternal) {
+        this.connector = connector;
+        this.executor = executor;
+        this.isExecutorInternal = isExecutorInternal;
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ipmi-sol-multiplexer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a new session with the remote server and activates SOL in it.
+     * The session is closed when the console is closed.
+     *
+     * @param remoteHost
+     *          IP address of the remote server
+     * @param remotePort
+     *          UDP port number of the remote server
+     * @param user
+     *          IPMI user name
+     * @param password
+     *          IPMI password
+     * @param cipherSuiteSelectionHandler
+     *          {@link CipherSuiteSelectionHandler} that will allow to select {@link org.sentrysoftware.ipmi.core.coding.security.CipherSuite}
+     *          among available ones.
+     * @param sink
+     *          channel in blocking mode where the data received from the console is written. It is not closed with the console.
+     * @return the opened {@link Console}
+     * @throws SOLException when SOL payload cannot be activated.
+     * @throws SessionException when the session cannot be established.
+     * @throws IllegalArgumentException when the sink is a channel in non-blocking mode.
+     */
+    public Console open(String remoteHost, int remotePort, String user, String password,
+                        CipherSuiteSelectionHandler cipherSuiteSelectionHandler, WritableByteChannel sink) throws SOLException, SessionException {
+        checkNotClosed();
+        checkBlocking(sink);
+
+        Session session = SessionManager.establishSharedSession(connector, remoteHost, remotePort, user, password,
+                cipherSuiteSelectionHandler);
+
+        return open(session, sink, true);
+    }
+
+    /**
+     * Activates SOL in an existing session, opened with the {@link IpmiConnector} of this multiplexer.
+     * The session is not closed when the console is closed.
+     *
+     * @param session
+     *          existing session that should be reused (if possible) for SOL communication.
+     * @param sink
+     *          channel in blocking mode where the data received from the console is written. It is not closed with the console.
+     * @return the opened {@link Console}
+     * @throws SOLException when SOL payload cannot be activated.
+     * @throws SessionException when a separate session is needed for SOL and cannot be established.
+     * @throws IllegalArgumentException when the sink is a channel in non-blocking mode.
+     */
+    public Console open(Session session, WritableByteChannel sink) throws SOLException, SessionException {
+        checkNotClosed();
+        checkBlocking(sink);
+
+        return open(session, sink, false);
+    }
+
+    private Console open(Session session, WritableByteChannel sink, boolean isSessionInternal) throws SOLException, SessionException {
+        SerialOverLan serialOverLan;
+
+        try {
+            serialOverLan = new SerialOverLan(connector, session);
+        } catch (SOLException | SessionException | RuntimeException e) {
+            if (isSessionInternal) {
+                closeSession(session.getConnectionHandle());
+            }
+            throw e;
+        }
+
+        return attach(serialOverLan, sink, isSessionInternal ? session : null);
+    }
+
+    /**
+     * Hosts the console of a {@link SerialOverLan} whose SOL payload is activated.
+     *
+     * @param serialOverLan
+     *          {@link SerialOverLan} of the console
+     * @param sink
+     *          channel in blocking mode where the data received from the console is written
+     * @param internalSession
+     *          session to close with the console, null if none
+     * @return the hosted {@link Console}
+     */
+    Console attach(SerialOverLan serialOverLan, WritableByteChannel sink, Session internalSession) {
+        Console console = new Console(serialOverLan, sink, internalSession);
+
+        consoles.add(console);
+
+        // The multiplexer may have been closed while SOL was activated
+        if (closed) {
+            console.close();
+            checkNotClosed();
+        }
+
+        serialOverLan.setDataListener(console::schedule);
+
+        return console;
+    }
+
+    private static void checkBlocking(WritableByteChannel sink) {
+        if (sink instanceof SelectableChannel && !((SelectableChannel) sink).isBlocking()) {
+            throw new IllegalArgumentException("SOL console sink must be in blocking mode");
+        }
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("SOL multiplexer is closed");
+        }
+    }
+
+    private void closeSession(ConnectionHandle connectionHandle) {
+        try {
+            connector.closeSession(connectionHandle);
+        } catch (Exception e) {
+            logger.warn("Cannot close SOL session", e);
+        }
+
+        connector.closeConnection(connectionHandle);
+    }
+
+    /**
+     * Returns the consoles currently open.
+     *
+     * @return unmodifiable view of the open {@link Console}s
+     */
+    public Collection<Console> getConsoles() {
+        return Collections.unmodifiableSet(consoles);
+    }
+
+    /**
+     * Closes all the consoles and, if it was created by this multiplexer, stops the thread pool.
+     * The {@link IpmiConnector} is not torn down.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        for (Console console : consoles) {
+            console.close();
+        }
+
+        if (isExecutorInternal) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A SOL console hosted by a {@link SolMultiplexer}.
+     */
+    public final class Console implements Closeable {
+
+        private final SerialOverLan serialOverLan;
+        private final WritableByteChannel sink;
+
+        /**
+         * Session opened for this console, null if the session was given by the application.
+         */
+        private final Session internalSession;
+
+        /**
+         * Set while the console is queued or drained by the thread pool.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private final byte[] chunk = new byte[CHUNK_SIZE];
+        private final ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+
+        private Console(SerialOverLan serialOverLan, WritableByteChannel sink, Session internalSession) {
+            this.serialOverLan = serialOverLan;
+            this.sink = sink;
+            this.internalSession = internalSession;
+        }
+
+        /**
+         * Returns the {@link SerialOverLan} of the console, to write to the remote serial port or invoke SOL operations.
+         * Data must not be read from it, as it is copied to the sink.
+         *
+         * @return the {@link SerialOverLan} of the console
+         */
+        public SerialOverLan getSerialOverLan() {
+            return serialOverLan;
+        }
+
+        /**
+         * Returns the channel where the data received from the console is written.
+         *
+         * @return the sink of the console
+         */
+        public WritableByteChannel getSink() {
+            return sink;
+        }
+
+        /**
+         * Invoked by the receiving thread when data is available.
+         */
+        private void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                int count;
+
+                while ((count = serialOverLan.read(chunk, 0, chunk.length)) > 0) {
+                    chunkBuffer.clear();
+                    chunkBuffer.limit(count);
+
+                    while (chunkBuffer.hasRemaining()) {
+                        // A blocking sink never returns 0, retrying would spin
+                        if (sink.write(chunkBuffer) == 0) {
+                            throw new IOException("The sink accepted no data, it must be in blocking mode");
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Cannot write the data received from SOL console of "
+                        + serialOverLan.getSession().getConnectionHandle().getRemoteAddress() + ", closing the console", e);
+                close();
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+
+            // Data received after the last read, while this console was still marked as scheduled
+            if (serialOverLan.getAvailableBytesCount() > 0) {
+                schedule();
+            }
+        }
+
+        /**
+         * Deactivates SOL and, if it was opened by the multiplexer, closes the session. The sink is not closed.
+         * Data received but not yet copied to the sink is discarded.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                consoles.remove(this);
+                serialOverLan.setDataListener(null);
+
+                try {
+                    serialOverLan.close();
+                } catch (IOException e) {
+                    logger.warn("Cannot close SOL console", e);
+                }
+
+                if (internalSession != null) {
+                    closeSession(internalSession.getConnectionHandle());
+                }
+            }
+        }
+    }
+}
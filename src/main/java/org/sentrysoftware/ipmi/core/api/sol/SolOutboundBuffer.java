@@ -0,0 +1,273 @@
+package org.sentrysoftware.ipmi.core.api.sol;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces the character data written to a {@link SerialOverLan}, Nagle-style, so that characters written one at a time
+ * do not each become an encrypted packet acknowledged separately by the remote server.
+ * <p>
+ * Written bytes are queued and the writer returns immediately. A packet is sent when the queue holds enough bytes to fill a SOL
+ * payload, or when the oldest queued byte has waited for the coalescing delay. SOL requires each packet with character data to be
+ * acknowledged before the next one is sent, so the bytes written while a packet waits for its ACK are sent together, as soon as the
+ * ACK is received. The sending and the ACK tracking are performed by a {@link ScheduledExecutorService}.
+ */
+class SolOutboundBuffer {
+
+    /**
+     * Number of full payloads that can be queued before writers are blocked.
+     */
+    static final int MAX_QUEUED_PAYLOADS = 16;
+
+    /**
+     * Sends a packet of character data, see {@link SerialOverLan#sendBytes(byte[], int, int)}.
+     */
+    interface Sender {
+
+        /**
+         * Sends given bytes and blocks until they are either accepted or rejected by the remote server.
+         *
+         * @return true if the bytes were acknowledged by the remote server, false otherwise.
+         */
+        boolean send(byte[] buffer, int offset, int length);
+    }
+
+    private final Sender sender;
+    private final ScheduledExecutorService scheduler;
+    private final long delay;
+    private final int payloadSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled each time a packet has been handled, to wake up the flushing and blocked writing threads.
+     */
+    private final Condition sent = lock.newCondition();
+
+    private byte[] queue;
+    private int queueLength;
+
+    /**
+     * Total number of bytes written to this buffer and total number of bytes sent (acknowledged or rejected).
+     */
+    private long writtenCount;
+    private long sentCount;
+
+    /**
+     * Set while a packet is being sent, or a send is scheduled.
+     */
+    private boolean sending;
+
+    /**
+     * Send waiting for the coalescing delay, null if none.
+     */
+    private ScheduledFuture<?> delayedSend;
+
+    /**
+     * Set when a packet has been rejected, until reported by {@link #write(byte[], int, int)} or {@link #flush()}.
+     */
+    private boolean failed;
+
+    /**
+     * @param sender
+     *          {@link Sender} sending the packets
+     * @param scheduler
+     *          {@link ScheduledExecutorService} sending the packets and waiting for their ACK
+     * @param delay
+     *          maximum time in milliseconds that written bytes wait for more bytes before being sent
+     * @param payloadSize
+     *          maximum number of bytes of character data in a single packet
+     */
+    SolOutboundBuffer(Sender sender, ScheduledExecutorService scheduler, long delay, int payloadSize) {
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.delay = delay;
+        this.payloadSize = payloadSize;
+        this.queue = new byte[payloadSize];
+    }
+
+    /**
+     * Queues given bytes to be sent. Blocks only when too many bytes are already queued.
+     *
+     * @param buffer
+     *          an array containing the bytes to write
+     * @param offset
+     *          position in the array of the first byte to write
+     * @param length
+     *          number of bytes to write
+     * @return false if previously written bytes were rejected by the remote server or the thread was interrupted, true otherwise.
+     */
+    boolean write(byte[] buffer, int offset, int length) {
+        lock.lock();
+        try {
+            while (queueLength >= MAX_QUEUED_PAYLOADS * payloadSize) {
+                sent.await();
+            }
+
+            if (queueLength + length > queue.length) {
+                queue = Arrays.copyOf(queue, Math.max(queue.length * 2, queueLength + length));
+            }
+
+            System.arraycopy(buffer, offset, queue, queueLength, length);
+            queueLength += length;
+            writtenCount += length;
+
+            scheduleSend(queueLength >= payloadSize);
+
+            return reportFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends the queued bytes without waiting for the coalescing delay, and blocks until they are acknowledged or rejected
+     * by the remote server.
+     *
+     * @return true if all the bytes written so far were accepted by the remote server, false otherwise.
+     */
+    boolean flush() {
+        lock.lock();
+        try {
+            long target = writtenCount;
+
+            scheduleSend(true);
+
+            while (sentCount < target) {
+                sent.await();
+            }
+
+            return reportFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Schedules the send of the queued bytes, unless it is already scheduled or in progress. Must be invoked with the lock held.
+     *
+     * @param now
+     *          true to send without waiting for the coalescing delay
+     */
+    private void scheduleSend(boolean now) {
+        if (queueLength == 0) {
+            return;
+        }
+
+        // A send waiting for the delay is brought forward
+        if (now && delayedSend != null && delayedSend.cancel(false)) {
+            delayedSend = null;
+            sending = false;
+        }
+
+        if (!sending) {
+            sending = true;
+
+            try {
+                if (now || delay <= 0) {
+                    scheduler.execute(this::send);
+                } else {
+                    delayedSend = scheduler.schedule(this::send, delay, TimeUnit.MILLISECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                sending = false;
+                discardQueue();
+            }
+        }
+    }
+
+    /**
+     * Sends the queued bytes, one packet at a time, until the queue is empty.
+     */
+    private void send() {
+        while (true) {
+            byte[] packet;
+
+            lock.lock();
+            try {
+                delayedSend = null;
+
+                if (queueLength == 0) {
+                    sending = false;
+                    return;
+                }
+
+                packet = Arrays.copyOf(queue, Math.min(queueLength, payloadSize));
+                queueLength -= packet.length;
+                System.arraycopy(queue, packet.length, queue, 0, queueLength);
+            } finally {
+                lock.unlock();
+            }
+
+            // Blocks until the remote server acknowledges the packet
+            boolean accepted = sender.send(packet, 0, packet.length);
+
+            lock.lock();
+            try {
+                sentCount += packet.length;
+
+                if (!accepted) {
+                    discardQueue();
+                }
+
+                sent.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drops the queued bytes after a failure, so that they are not sent after the rejected ones. Must be invoked with the lock held.
+     */
+    private void discardQueue() {
+        sentCount += queueLength;
+        queueLength = 0;
+        failed = true;
+        sent.signalAll();
+    }
+
+    /**
+     * Must be invoked with the lock held.
+     *
+     * @return false if a failure has to be reported, true otherwise
+     */
+    private boolean reportFailure() {
+        boolean result = !failed;
+        failed = false;
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package org.sentrysoftware.ipmi.core.api.sol;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link OutputStream} writing to the remote serial port of a {@link SerialOverLan}.
+ *
+ * @see SerialOverLan#getOutputStream()
+ */
+class SolOutputStream extends OutputStream {
+
+    private final SerialOverLan serialOverLan;
+
+    SolOutputStream(SerialOverLan serialOverLan) {
+        this.serialOverLan = serialOverLan;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (serialOverLan.isClosed()) {
+            throw new IOException("Serial over LAN is closed");
+        }
+
+        if (len > 0 && !serialOverLan.writeBuffered(b, off, len)) {
+            throw new IOException("Data was not acknowledged by the remote server");
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!serialOverLan.flush()) {
+            throw new IOException("Data was not acknowledged by the remote server");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serialOverLan.close();
+    }
+}
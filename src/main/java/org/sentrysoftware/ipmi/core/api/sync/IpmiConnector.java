@@ -25,6 +25,9 @@ package org.sentrysoftware.ipmi.core.api.sync;
 import org.sentrysoftware.ipmi.core.api.async.ConnectionHandle;
 import org.sentrysoftware.ipmi.core.api.async.InboundMessageListener;
 import org.sentrysoftware.ipmi.core.api.async.IpmiAsyncConnector;
+import org.sentrysoftware.ipmi.core.api.async.messages.IpmiError;
+import org.sentrysoftware.ipmi.core.api.async.messages.IpmiResponse;
+import org.sentrysoftware.ipmi.core.api.async.messages.IpmiResponseData;
 import org.sentrysoftware.ipmi.core.coding.PayloadCoder;
 import org.sentrysoftware.ipmi.core.coding.commands.PrivilegeLevel;
 import org.sentrysoftware.ipmi.core.coding.commands.ResponseData;
@@ -48,6 +51,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <p> Synchronous API for connecting to BMC via IPMI. </p> <br>Creating connection consists of the following steps:
@@ -299,6 +303,20 @@ public class IpmiConnector {
         return sendMessage(connectionHandle, request, true);
     }
 
+    /**
+     * Sends the IPMI message to the remote host without waiting for the
+     * response. The message is not retried.
+     * @param connectionHandle
+     * - {@link ConnectionHandle} associated with the remote host.
+     * @param request
+     * - {@link PayloadCoder} containing the request to be sent
+     * @return future {@link ResponseData} for the <b>request</b>
+     * @see IpmiAsyncConnector#submit(ConnectionHandle, PayloadCoder)
+     */
+    public CompletableFuture<ResponseData> submit(ConnectionHandle connectionHandle, PayloadCoder request) {
+        return asyncConnector.submit(connectionHandle, request);
+    }
+
     /**
      * Sends the IPMI message to the remote host and doesn't wait for any response.
      * @param connectionHandle
@@ -328,36 +346,14 @@ public class IpmiConnector {
      * when sending message to the managed system fails
      */
     public ResponseData retryMessage(ConnectionHandle connectionHandle, byte tag, PayloadType messagePayloadType) throws Exception {
-        MessageListener listener = new MessageListener(connectionHandle);
-        asyncConnector.registerListener(listener);
-
-        int retryResult = asyncConnector.retry(connectionHandle, tag, messagePayloadType);
+        CompletableFuture<IpmiResponse> response = new CompletableFuture<IpmiResponse>();
 
-        ResponseData data = retryResult != -1 ? listener.waitForAnswer(tag) : null;
+        int retryResult = asyncConnector.retry(connectionHandle, tag, messagePayloadType, response);
 
-        asyncConnector.unregisterListener(listener);
-
-        return data;
+        return retryResult != -1 ? waitForAnswer(response) : null;
     }
 
     private ResponseData sendMessage(ConnectionHandle connectionHandle, PayloadCoder request, boolean waitForResponse) throws Exception {
-        MessageListener listener = new MessageListener(connectionHandle);
-
-        if (waitForResponse) {
-            asyncConnector.registerListener(listener);
-        }
-
-        ResponseData data = sendThroughAsyncConnector(request, connectionHandle, listener, waitForResponse);
-
-        if (waitForResponse) {
-            asyncConnector.unregisterListener(listener);
-        }
-
-        return data;
-    }
-
-    private ResponseData sendThroughAsyncConnector(PayloadCoder request, ConnectionHandle connectionHandle,
-                                                   MessageListener listener, boolean waitForResponse) throws Exception {
         ResponseData responseData = null;
 
         int tries = 0;
@@ -368,18 +364,24 @@ public class IpmiConnector {
             try {
                 ++tries;
 
+                CompletableFuture<IpmiResponse> response = new CompletableFuture<IpmiResponse>();
+
                 if (tag >= 0) {
-                    tag = asyncConnector.retry(connectionHandle, tag, request.getSupportedPayloadType());
+                    tag = waitForResponse
+                            ? asyncConnector.retry(connectionHandle, tag, request.getSupportedPayloadType(), response)
+                            : asyncConnector.retry(connectionHandle, tag, request.getSupportedPayloadType());
                 }
 
-                if (tag < 0){
-                    tag = asyncConnector.sendMessage(connectionHandle, request, !waitForResponse);
+                if (tag < 0) {
+                    tag = waitForResponse
+                            ? asyncConnector.sendMessage(connectionHandle, request, response)
+                            : asyncConnector.sendMessage(connectionHandle, request, true);
                 }
 
                 logger.debug("Sending message with tag {}, try {}", tag, tries);
 
                 if (waitForResponse) {
-                    responseData = listener.waitForAnswer(tag);
+                    responseData = waitForAnswer(response);
                 }
 
                 messageSent = true;
@@ -395,6 +397,23 @@ public class IpmiConnector {
         return responseData;
     }
 
+    /**
+     * Blocks the invoking thread until the answer completes the future.
+     *
+     * @return {@link ResponseData} for message.
+     * @throws Exception
+     *             when message delivery fails
+     */
+    private static ResponseData waitForAnswer(CompletableFuture<IpmiResponse> response) throws Exception {
+        IpmiResponse answer = response.get();
+
+        if (answer instanceof IpmiResponseData) {
+            return ((IpmiResponseData) answer).getResponseData();
+        } else /* answer instanceof IpmiError */ {
+            throw ((IpmiError) answer).getException();
+        }
+    }
+
     private void handleRetriesWhenException(int tries, Exception e) throws Exception {
         if (tries > retries) {
             throw e;
@@ -428,6 +447,16 @@ public class IpmiConnector {
         asyncConnector.registerIncomingPayloadListener(listener);
     }
 
+    /**
+     * Unregisters {@link InboundMessageListener}, so that it no longer receives the requests sent from remote system.
+     *
+     * @param listener
+     *          listener to be unregistered.
+     */
+    public void unregisterIncomingMessageListener(InboundMessageListener listener) {
+        asyncConnector.unregisterIncomingPayloadListener(listener);
+    }
+
     /**
      * Closes the connection with the given handle
      */
@@ -442,6 +471,17 @@ public class IpmiConnector {
         asyncConnector.tearDown();
     }
 
+    /**
+     * Checks whether the session of the connection with the given handle is
+     * established and was not closed.
+     * @param handle
+     * - {@link ConnectionHandle} associated with the remote host.
+     * @return true if messages can be sent within the session
+     */
+    public boolean isSessionValid(ConnectionHandle handle) {
+        return asyncConnector.isSessionValid(handle);
+    }
+
     /**
      * Changes the timeout value for connection with the given handle.
      * @param handle
@@ -453,6 +493,18 @@ public class IpmiConnector {
         asyncConnector.setTimeout(handle, timeout);
     }
 
+    /**
+     * Changes the maximum number of messages waiting for an answer at the
+     * same time on the connection with the given handle.
+     * @param handle
+     * - {@link ConnectionHandle} associated with the remote host.
+     * @param windowSize
+     * - maximum number of messages in flight, at most 63
+     */
+    public void setWindowSize(ConnectionHandle handle, int windowSize) {
+        asyncConnector.setWindowSize(handle, windowSize);
+    }
+
     /**
      * Returns configured number of retries.
      *
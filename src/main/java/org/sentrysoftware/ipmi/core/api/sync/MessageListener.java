@@ -33,12 +33,17 @@ import org.sentrysoftware.ipmi.core.connection.Connection;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Listens to the {@link IpmiAsyncConnector} waiting for concrete message to
  * arrive. Must be registered via
  * {@link IpmiAsyncConnector#registerListener(IpmiResponseListener)} to receive
  * messages.
+ *
+ * @see IpmiAsyncConnector#sendMessage(ConnectionHandle,
+ *      org.sentrysoftware.ipmi.core.coding.PayloadCoder, java.util.concurrent.CompletableFuture)
  */
 public class MessageListener implements IpmiResponseListener {
 
@@ -57,6 +62,14 @@ public class MessageListener implements IpmiResponseListener {
      */
     private List<IpmiResponse> quickMessages;
 
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when the expected message arrives. Waiting on a
+     * {@link Condition} does not pin the carrier of a virtual thread.
+     */
+    private final Condition answered = lock.newCondition();
+
     /**
      * Initiates the {@link MessageListener}
      *
@@ -86,31 +99,49 @@ public class MessageListener implements IpmiResponseListener {
         if (tag < 0 || tag > 63) {
             throw new IllegalArgumentException("Corrupted message tag");
         }
-        this.tag = tag;
-        for (IpmiResponse quickResponse : quickMessages) {
-            this.notify(quickResponse);
-        }
+        IpmiResponse answer;
 
-        while (response == null) {
-            Thread.sleep(1);
-        }
-        if (response instanceof IpmiResponseData) {
-            this.tag = -1;
+        lock.lock();
+        try {
+            this.tag = tag;
+            for (IpmiResponse quickResponse : quickMessages) {
+                this.notify(quickResponse);
+            }
             quickMessages.clear();
-            return ((IpmiResponseData) response).getResponseData();
-        } else /* response instanceof IpmiError */{
-            throw ((IpmiError) response).getException();
+
+            while (response == null) {
+                answered.await();
+            }
+
+            answer = response;
+            response = null;
+            this.tag = -1;
+        } finally {
+            lock.unlock();
+        }
+
+        if (answer instanceof IpmiResponseData) {
+            return ((IpmiResponseData) answer).getResponseData();
+        } else /* answer instanceof IpmiError */{
+            throw ((IpmiError) answer).getException();
         }
     }
 
     @Override
-    public synchronized void notify(IpmiResponse response) {
-        if (response.getHandle().getHandle() == handle.getHandle()) {
+    public void notify(IpmiResponse response) {
+        if (response.getHandle().getHandle() != handle.getHandle()) {
+            return;
+        }
+        lock.lock();
+        try {
             if (tag == -1) {
                 quickMessages.add(response);
             } else if (response.getTag() == tag) {
                 this.response = response;
+                answered.signalAll();
             }
+        } finally {
+            lock.unlock();
         }
     }
 
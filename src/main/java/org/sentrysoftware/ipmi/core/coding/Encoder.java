@@ -22,12 +22,19 @@ package org.sentrysoftware.ipmi.core.coding;
  * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
  */
 
+import org.sentrysoftware.ipmi.core.coding.commands.IpmiVersion;
 import org.sentrysoftware.ipmi.core.coding.protocol.decoder.Protocolv15Decoder;
 import org.sentrysoftware.ipmi.core.coding.protocol.decoder.Protocolv20Decoder;
 import org.sentrysoftware.ipmi.core.coding.protocol.encoder.IpmiEncoder;
+import org.sentrysoftware.ipmi.core.coding.protocol.encoder.Protocolv20Encoder;
+import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpClassOfMessage;
 import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpEncoder;
 import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpIpmiMessage;
+import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpVersion;
+import org.sentrysoftware.ipmi.core.common.TypeConverter;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
@@ -72,6 +79,55 @@ public final class Encoder {
                         .encodePayload(messageSequenceNumber, sessionSequenceNumber, sessionId))));
     }
 
+    /**
+     * Encodes IPMI command specified by payloadCoder into the buffer. IPMI
+     * v2.0 messages are written directly into the buffer - RMCP header,
+     * session header, payload and session trailer - and their AuthCode is
+     * computed over the written bytes, so the message is neither encoded twice
+     * nor copied. Other messages are encoded with
+     * {@link #encode(IpmiEncoder, PayloadCoder, int, int, int)} and copied into
+     * the buffer.
+     *
+     * @param protcolEncoder
+     *            - instance of {@link IpmiEncoder} class for encoding of the
+     *            IPMI session header.
+     * @param payloadCoder
+     *            - instance of {@link PayloadCoder} class used for building
+     *            IPMI message payload.
+     * @param messageSequenceNumber
+     *            - A generated sequence number used for matching request and
+     *            response.
+     * @param sessionSequenceNumber
+     *            - Session Sequence Number of the message.
+     * @param sessionId
+     *            - ID of the managed system's session message is being sent in.
+     *            For sessionless commands should be set to 0.
+     * @param buffer
+     *            - buffer receiving the encoded command, typically pooled. On
+     *            return, positioned after the command.
+     * @throws BufferOverflowException
+     *             when the buffer is too small to hold the command
+     * @throws NoSuchAlgorithmException
+     *             - when authentication, confidentiality or integrity algorithm
+     *             fails.
+     * @throws InvalidKeyException
+     *             - when creating of the algorithm key fails
+     */
+    public static void encode(IpmiEncoder protcolEncoder, PayloadCoder payloadCoder,
+                              int messageSequenceNumber, int sessionSequenceNumber, int sessionId, ByteBuffer buffer)
+            throws NoSuchAlgorithmException, InvalidKeyException {
+        if (!(protcolEncoder instanceof Protocolv20Encoder) || payloadCoder.getIpmiVersion() != IpmiVersion.V20) {
+            buffer.put(encode(protcolEncoder, payloadCoder, messageSequenceNumber, sessionSequenceNumber, sessionId));
+            return;
+        }
+
+        RmcpEncoder.encodeHeader(RmcpVersion.RMCP1_0, TypeConverter.intToByte(0xff), RmcpClassOfMessage.Ipmi, buffer);
+
+        ((Protocolv20Encoder) protcolEncoder).encode(
+                payloadCoder.prepareV20Message(messageSequenceNumber, sessionSequenceNumber, sessionId),
+                payloadCoder.getCipherSuite().getIntegrityAlgorithm(), buffer);
+    }
+
     private Encoder() {
     }
 }
@@ -155,6 +155,21 @@ public abstract class PayloadCoder {
     }
 
     private Ipmiv20Message encodeV20Payload(int messageSequenceNumber, int sessionSequenceNumber, int sessionId) throws NoSuchAlgorithmException, InvalidKeyException {
+        Ipmiv20Message message = prepareV20Message(messageSequenceNumber, sessionSequenceNumber, sessionId);
+
+        message.setAuthCode(getCipherSuite()
+                .getIntegrityAlgorithm()
+                .generateAuthCode(message.getIntegrityAlgorithmBase(new Protocolv20Encoder())));
+
+        return message;
+    }
+
+    /**
+     * Prepares an IPMI v2.0 message without its AuthCode field, to be encoded
+     * by {@link Protocolv20Encoder#encode(Ipmiv20Message, org.sentrysoftware.ipmi.core.coding.security.IntegrityAlgorithm, java.nio.ByteBuffer)}
+     * which computes the AuthCode in place.
+     */
+    Ipmiv20Message prepareV20Message(int messageSequenceNumber, int sessionSequenceNumber, int sessionId) throws NoSuchAlgorithmException, InvalidKeyException {
         Ipmiv20Message message = new Ipmiv20Message(getCipherSuite()
                 .getConfidentialityAlgorithm());
 
@@ -174,10 +189,6 @@ public abstract class PayloadCoder {
 
         message.setPayload(preparePayload(messageSequenceNumber));
 
-        message.setAuthCode(getCipherSuite()
-                .getIntegrityAlgorithm()
-                .generateAuthCode(message.getIntegrityAlgorithmBase(new Protocolv20Encoder())));
-
         return message;
     }
 
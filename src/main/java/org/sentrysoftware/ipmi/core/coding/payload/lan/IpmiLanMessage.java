@@ -115,16 +115,40 @@ public abstract class IpmiLanMessage extends IpmiPayload {
     public abstract byte[] getPayloadData();
         
     protected byte getChecksum1(byte[] message) {
+        return getChecksum1(message, 0);
+    }
+
+    /**
+     * @param message
+     *            - array holding the message
+     * @param offset
+     *            - offset of the message in the array
+     * @return checksum of the header of the message
+     */
+    protected byte getChecksum1(byte[] message, int offset) {
         int checksum = 0;
-        for(int i = 0; i < 2; ++i) {
+        for(int i = offset; i < offset + 2; ++i) {
             checksum = (checksum + TypeConverter.byteToInt(message[i])) % 256;
         }
         return (byte) -TypeConverter.intToByte(checksum);
     }
     
     protected byte getChecksum2(byte[] message) {
+        return getChecksum2(message, 0, message.length);
+    }
+
+    /**
+     * @param message
+     *            - array holding the message
+     * @param offset
+     *            - offset of the message in the array
+     * @param length
+     *            - length of the message
+     * @return checksum of the body of the message
+     */
+    protected byte getChecksum2(byte[] message, int offset, int length) {
         int checksum = 0;
-        for(int i = 3; i < message.length-1; ++i) {
+        for(int i = offset + 3; i < offset + length - 1; ++i) {
             checksum = ((checksum + TypeConverter.byteToInt(message[i])) % 256);
         }
         return (byte)-TypeConverter.intToByte(checksum);
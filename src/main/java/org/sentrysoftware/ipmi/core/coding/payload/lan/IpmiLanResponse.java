@@ -25,6 +25,8 @@ package org.sentrysoftware.ipmi.core.coding.payload.lan;
 import org.sentrysoftware.ipmi.core.coding.payload.CompletionCode;
 import org.sentrysoftware.ipmi.core.common.TypeConverter;
 
+import java.util.Arrays;
+
 /**
  * A wrapper class for IPMB response message.
  */
@@ -49,31 +51,44 @@ public class IpmiLanResponse extends IpmiLanMessage {
      *             when checksum is corrupted
      */
     public IpmiLanResponse(byte[] rawData) {
-        setRequesterAddress(rawData[0]);
+        this(rawData, 0, rawData.length);
+    }
+
+    /**
+     * Builds IPMI LAN response message from a region of a byte array, e.g. the
+     * received packet. Only the response data is copied.
+     *
+     * @param rawData
+     *            - array holding the message
+     * @param offset
+     *            - offset of the message in the array
+     * @param length
+     *            - length of the message
+     * @throws IllegalArgumentException
+     *             when checksum is corrupted
+     */
+    public IpmiLanResponse(byte[] rawData, int offset, int length) {
+        setRequesterAddress(rawData[offset]);
         networkFunction = TypeConverter.intToByte((TypeConverter
-                .byteToInt(rawData[1]) & 0xfC) >> 2);
+                .byteToInt(rawData[offset + 1]) & 0xfC) >> 2);
         setRequesterLogicalUnitNumber(TypeConverter.intToByte(TypeConverter
-                .byteToInt(rawData[1]) & 0x03));
-        if (rawData[2] != getChecksum1(rawData)) {
+                .byteToInt(rawData[offset + 1]) & 0x03));
+        if (rawData[offset + 2] != getChecksum1(rawData, offset)) {
             throw new IllegalArgumentException("Checksum 1 failed");
         }
-        setResponderAddress(rawData[3]);
+        setResponderAddress(rawData[offset + 3]);
         setSequenceNumber(TypeConverter.intToByte((TypeConverter
-                .byteToInt(rawData[4]) & 0xfC) >> 2));
+                .byteToInt(rawData[offset + 4]) & 0xfC) >> 2));
         setResponderLogicalUnitNumber(TypeConverter.intToByte(TypeConverter
-                .byteToInt(rawData[4]) & 0x03));
-        setCommand(rawData[5]);
-        setCompletionCode(rawData[6]);
-
-        if (rawData.length > 8) {
-            byte[] data = new byte[rawData.length - 8];
-
-            System.arraycopy(rawData, 7, data, 0, rawData.length - 8);
+                .byteToInt(rawData[offset + 4]) & 0x03));
+        setCommand(rawData[offset + 5]);
+        setCompletionCode(rawData[offset + 6]);
 
-            setData(data);
+        if (length > 8) {
+            setData(Arrays.copyOfRange(rawData, offset + 7, offset + length - 1));
         }
 
-        if (rawData[rawData.length - 1] != getChecksum2(rawData)) {
+        if (rawData[offset + length - 1] != getChecksum2(rawData, offset, length)) {
             throw new IllegalArgumentException("Checksum 2 failed");
         }
     }
@@ -22,6 +22,8 @@ package org.sentrysoftware.ipmi.core.coding.payload.sol;
  * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
  */
 
+import java.util.Arrays;
+
 /**
  * Implementation of {@link SolMessage} for BMC -> Remote Console message.
  */
@@ -38,15 +40,28 @@ public class SolInboundMessage extends SolMessage {
     }
 
     public SolInboundMessage(byte[] rawData) {
-        super(rawData[0], rawData[1], rawData[2], rawData[3]);
+        this(rawData, 0, rawData.length);
+    }
+
+    /**
+     * Builds the message from a region of a byte array, e.g. the received
+     * packet. Only the character data is copied.
+     *
+     * @param rawData
+     *            - array holding the message
+     * @param offset
+     *            - offset of the message in the array
+     * @param length
+     *            - length of the message
+     */
+    public SolInboundMessage(byte[] rawData, int offset, int length) {
+        super(rawData[offset], rawData[offset + 1], rawData[offset + 2], rawData[offset + 3]);
 
-        if (rawData.length > PAYLOAD_HEADER_LENGTH) {
-            byte[] characterData = new byte[rawData.length - PAYLOAD_HEADER_LENGTH];
-            System.arraycopy(rawData, PAYLOAD_HEADER_LENGTH, characterData, 0, characterData.length);
-            setData(characterData);
+        if (length > PAYLOAD_HEADER_LENGTH) {
+            setData(Arrays.copyOfRange(rawData, offset + PAYLOAD_HEADER_LENGTH, offset + length));
         }
 
-        this.statusField = new SolInboundStatusField(rawData[3]);
+        this.statusField = new SolInboundStatusField(rawData[offset + 3]);
     }
 
     public SolInboundStatusField getStatusField() {
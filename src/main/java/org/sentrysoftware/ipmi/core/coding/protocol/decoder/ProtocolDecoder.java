@@ -31,6 +31,7 @@ import org.sentrysoftware.ipmi.core.coding.protocol.PayloadType;
 import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpClassOfMessage;
 import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpMessage;
 import org.sentrysoftware.ipmi.core.coding.security.ConfidentialityAlgorithm;
+import org.sentrysoftware.ipmi.core.coding.security.SecurityConstants;
 import org.sentrysoftware.ipmi.core.common.TypeConverter;
 
 /**
@@ -109,7 +110,7 @@ public abstract class ProtocolDecoder implements IpmiDecoder {
      */
     public static AuthenticationType decodeAuthenticationType(
             RmcpMessage message) {
-        return decodeAuthenticationType(message.getData()[0]);
+        return decodeAuthenticationType(message.getDataByte(0));
     }
 
     /**
@@ -122,11 +123,10 @@ public abstract class ProtocolDecoder implements IpmiDecoder {
      * @return Decoded integer
      */
     protected static int decodeInt(byte[] rawMessage, int offset) {
-        byte[] result = new byte[4];
-
-        System.arraycopy(rawMessage, offset, result, 0, 4);
-
-        return TypeConverter.littleEndianByteArrayToInt(result);
+        return (rawMessage[offset] & 0xff)
+                | (rawMessage[offset + 1] & 0xff) << 8
+                | (rawMessage[offset + 2] & 0xff) << 16
+                | (rawMessage[offset + 3] & 0xff) << 24;
     }
 
     /**
@@ -182,19 +182,25 @@ public abstract class ProtocolDecoder implements IpmiDecoder {
      */
     protected IpmiPayload decodePayload(byte[] rawData, int offset, int length,
             ConfidentialityAlgorithm confidentialityAlgorithm, PayloadType payloadType) {
-        byte[] payload = null;
-        if (length > 0) {
-            payload = new byte[length];
+        if (length <= 0) {
+            return payloadType == PayloadType.Sol ? new SolInboundMessage(null) : new IpmiLanResponse(null);
+        }
 
-            System.arraycopy(rawData, offset, payload, 0, length);
+        byte[] payload = rawData;
+        int payloadOffset = offset;
+        int payloadLength = length;
 
-            payload = confidentialityAlgorithm.decrypt(payload);
+        // a plain payload is decoded in place
+        if (confidentialityAlgorithm.getCode() != SecurityConstants.CA_NONE) {
+            payload = confidentialityAlgorithm.decrypt(rawData, offset, length);
+            payloadOffset = 0;
+            payloadLength = payload.length;
         }
 
         if (payloadType == PayloadType.Sol) {
-            return new SolInboundMessage(payload);
+            return new SolInboundMessage(payload, payloadOffset, payloadLength);
         } else {
-            return new IpmiLanResponse(payload);
+            return new IpmiLanResponse(payload, payloadOffset, payloadLength);
         }
     }
 }
@@ -77,20 +77,23 @@ public class Protocolv20Decoder extends ProtocolDecoder {
         Ipmiv20Message message = new Ipmiv20Message(
                 cipherSuite.getConfidentialityAlgorithm());
 
-        byte[] raw = rmcpMessage.getData();
+        // the fields are decoded in place from the received packet
+        byte[] raw = rmcpMessage.getDataBuffer();
+        int start = rmcpMessage.getDataOffset();
+        int end = start + rmcpMessage.getDataLength();
 
-        message.setAuthenticationType(decodeAuthenticationType(raw[0]));
+        message.setAuthenticationType(decodeAuthenticationType(raw[start]));
 
-        message.setPayloadEncrypted(decodeEncryption(raw[1]));
+        message.setPayloadEncrypted(decodeEncryption(raw[start + 1]));
 
-        message.setPayloadAuthenticated(decodeAuthentication(raw[1]));
+        message.setPayloadAuthenticated(decodeAuthentication(raw[start + 1]));
 
-        message.setPayloadType(decodePayloadType(raw[1]));
+        message.setPayloadType(decodePayloadType(raw[start + 1]));
 
-        int offset = 2;
+        int offset = start + 2;
 
         if (message.getPayloadType() == PayloadType.Oem) {
-            message.setOemIANA(decodeOEMIANA(raw));
+            message.setOemIANA(decodeOEMIANA(raw, start));
             offset += 4;
 
             message.setOemPayloadID(decodeOEMPayloadId(raw, offset));
@@ -107,6 +110,10 @@ public class Protocolv20Decoder extends ProtocolDecoder {
         int payloadLength = decodePayloadLength(raw, offset);
         offset += 2;
 
+        if (offset + payloadLength > end) {
+            throw new IndexOutOfBoundsException("Message is corrupted.");
+        }
+
         if (message.isPayloadEncrypted()) {
             message.setPayload(decodePayload(raw, offset, payloadLength,
                     message.getConfidentialityAlgorithm(), message.getPayloadType()));
@@ -121,9 +128,9 @@ public class Protocolv20Decoder extends ProtocolDecoder {
                 && !(message.getAuthenticationType() == AuthenticationType.RMCPPlus && !message
                         .isPayloadAuthenticated())
                 && message.getSessionID() != 0) {
-            offset = skipIntegrityPAD(raw, offset);
-            message.setAuthCode(decodeAuthCode(raw, offset));
-            if (!validateAuthCode(raw, offset)) {
+            offset = skipIntegrityPAD(raw, offset, end);
+            message.setAuthCode(decodeAuthCode(raw, offset, end));
+            if (!cipherSuite.getIntegrityAlgorithm().validateAuthCode(raw, start, offset, end)) {
                 logger.warn("Integrity check failed");
             }
         }
@@ -161,15 +168,14 @@ public class Protocolv20Decoder extends ProtocolDecoder {
      *
      * @param rawMessage
      *            - Byte array holding whole message data.
+     * @param start
+     *            - Offset of the message in the array.
      * @return OEM IANA number.
      */
-    private int decodeOEMIANA(byte[] rawMessage) {
-        byte[] oemIANA = new byte[4];
-
-        System.arraycopy(rawMessage, 3, oemIANA, 0, 3);
-        oemIANA[3] = 0;
-
-        return TypeConverter.littleEndianByteArrayToInt(oemIANA);
+    private int decodeOEMIANA(byte[] rawMessage, int start) {
+        return (rawMessage[start + 3] & 0xff)
+                | (rawMessage[start + 4] & 0xff) << 8
+                | (rawMessage[start + 5] & 0xff) << 16;
     }
 
     /**
@@ -192,12 +198,7 @@ public class Protocolv20Decoder extends ProtocolDecoder {
 
     @Override
     protected int decodePayloadLength(byte[] rawData, int offset) {
-        byte[] payloadLength = new byte[4];
-        System.arraycopy(rawData, offset, payloadLength, 0, 2);
-        payloadLength[2] = 0;
-        payloadLength[3] = 0;
-
-        return TypeConverter.littleEndianByteArrayToInt(payloadLength);
+        return (rawData[offset] & 0xff) | (rawData[offset + 1] & 0xff) << 8;
     }
 
     /**
@@ -207,23 +208,28 @@ public class Protocolv20Decoder extends ProtocolDecoder {
      *            - Byte array holding whole message data.
      * @param offset
      *            - Offset to integrity pad.
+     * @param end
+     *            - Offset following the last byte of the message.
      * @return Offset to Auth Code
      * @throws IndexOutOfBoundsException
      *             when message is corrupted and pad length does not appear
      *             after integrity pad or length is incorrect.
      */
-    private int skipIntegrityPAD(final byte[] rawMessage, final int offset) {
+    private int skipIntegrityPAD(final byte[] rawMessage, final int offset, final int end) {
         int skip = 0;
-        while (TypeConverter.byteToInt(rawMessage[offset + skip]) == 0xff) {
+        while (offset + skip < end && TypeConverter.byteToInt(rawMessage[offset + skip]) == 0xff) {
             ++skip;
         }
+        if (offset + skip >= end) {
+            throw new IndexOutOfBoundsException("Message is corrupted.");
+        }
         int length = TypeConverter.byteToInt(rawMessage[offset + skip]);
         if (length != skip) {
             throw new IndexOutOfBoundsException("Message is corrupted.");
         }
 
         int currentOffset = offset + skip + 2; // skip pad length and next header fields
-        if (currentOffset >= rawMessage.length) {
+        if (currentOffset >= end) {
             throw new IndexOutOfBoundsException("Message is corrupted.");
         }
         return currentOffset;
@@ -236,42 +242,12 @@ public class Protocolv20Decoder extends ProtocolDecoder {
      *            - Byte array holding whole message data.
      * @param offset
      *            - Offset to auth code.
+     * @param end
+     *            - Offset following the last byte of the message.
      * @return Auth Code
-     * @throws IndexOutOfBoundsException
-     *             when message is corrupted and pad length does not appear
-     *             after integrity pad or length is incorrect.
      */
-    private byte[] decodeAuthCode(byte[] rawMessage, int offset) {
-        byte[] authCode = new byte[rawMessage.length - offset];
-        System.arraycopy(rawMessage, offset, authCode, 0, authCode.length);
-        return authCode;
-    }
-
-    /**
-     * Checks if Auth Code of the received message is valid
-     *
-     * @param rawMessage
-     *            - received message
-     * @param offset
-     *            - offset to the AuthCode field in the message
-     * @return True if AuthCode is correct, false otherwise.
-     * @throws InvalidKeyException
-     *             - when initiation of the integrity algorithm fails
-     */
-    private boolean validateAuthCode(byte[] rawMessage, int offset) {
-        byte[] base = new byte[offset];
-
-        System.arraycopy(rawMessage, 0, base, 0, offset);
-
-        byte[] authCode = null;
-
-        if (rawMessage.length > offset) {
-            authCode = new byte[rawMessage.length - offset];
-            System.arraycopy(rawMessage, offset, authCode, 0, authCode.length);
-        }
-
-        return Arrays.equals(authCode, cipherSuite.getIntegrityAlgorithm()
-                .generateAuthCode(base));
+    private byte[] decodeAuthCode(byte[] rawMessage, int offset, int end) {
+        return Arrays.copyOfRange(rawMessage, offset, end);
     }
 
     /**
@@ -283,9 +259,12 @@ public class Protocolv20Decoder extends ProtocolDecoder {
      */
     public static int decodeSessionID(RmcpMessage message) {
         int offset = 2;
-        if (decodePayloadType(message.getData()[1]) == PayloadType.Oem) {
+        if (decodePayloadType(message.getDataByte(1)) == PayloadType.Oem) {
             offset += 6;
         }
-        return decodeSessionID(message.getData(), offset);
+        if (offset + 4 > message.getDataLength()) {
+            throw new IndexOutOfBoundsException("Message is too short");
+        }
+        return decodeSessionID(message.getDataBuffer(), message.getDataOffset() + offset);
     }
 }
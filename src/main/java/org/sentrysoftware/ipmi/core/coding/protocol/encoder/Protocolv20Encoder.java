@@ -26,8 +26,11 @@ import org.sentrysoftware.ipmi.core.coding.protocol.AuthenticationType;
 import org.sentrysoftware.ipmi.core.coding.protocol.IpmiMessage;
 import org.sentrysoftware.ipmi.core.coding.protocol.Ipmiv20Message;
 import org.sentrysoftware.ipmi.core.coding.protocol.PayloadType;
+import org.sentrysoftware.ipmi.core.coding.security.IntegrityAlgorithm;
 import org.sentrysoftware.ipmi.core.common.TypeConverter;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 
 /**
@@ -52,13 +55,7 @@ public class Protocolv20Encoder extends ProtocolEncoder {
         }
         Ipmiv20Message message = (Ipmiv20Message) ipmiMessage;
 
-        byte[] payload = message.getPayload().getEncryptedPayload();
-
-        if (payload == null) {
-            message.getPayload().encryptPayload(
-                    message.getConfidentialityAlgorithm());
-            payload = message.getPayload().getEncryptedPayload();
-        }
+        byte[] payload = getEncryptedPayload(message);
 
         byte[] raw = new byte[getMessageLength(message)];
 
@@ -103,6 +100,107 @@ public class Protocolv20Encoder extends ProtocolEncoder {
         return raw;
     }
 
+    /**
+     * Encodes the message at the position of the buffer without intermediate
+     * arrays. The session header, the payload and the session trailer are
+     * written directly into the buffer, then the AuthCode field is computed
+     * over the written bytes. The AuthCode set in the message is ignored.
+     *
+     * @param message
+     *            - IPMI message to be encoded
+     * @param integrityAlgorithm
+     *            - algorithm generating the AuthCode field, initialized with
+     *            the session keys
+     * @param buffer
+     *            - buffer receiving the message. On return, positioned after
+     *            the message.
+     * @throws IllegalArgumentException
+     *             when authentication type is incorrect.
+     * @throws BufferOverflowException
+     *             when the buffer is too small to hold the message
+     * @throws InvalidKeyException
+     *             - when initiation of the confidentiality algorithm fails
+     */
+    public void encode(Ipmiv20Message message, IntegrityAlgorithm integrityAlgorithm, ByteBuffer buffer)
+            throws InvalidKeyException {
+        if (message.getAuthenticationType() != AuthenticationType.RMCPPlus) {
+            throw new IllegalArgumentException(
+                    "Authentication type must be RMCP+ for IPMI v2.0");
+        }
+
+        byte[] payload = getEncryptedPayload(message);
+
+        int start = buffer.position();
+
+        buffer.put(encodeAuthenticationType(message.getAuthenticationType()));
+
+        buffer.put(encodePayloadType(message.isPayloadEncrypted(),
+                message.isPayloadAuthenticated(), message.getPayloadType()));
+
+        if (message.getPayloadType() == PayloadType.Oem) {
+            putInt(message.getOemIANA(), buffer);
+
+            byte[] oemPayloadId = new byte[2];
+            encodeOEMPayloadId(message.getOemPayloadID(), oemPayloadId, 0);
+            buffer.put(oemPayloadId);
+        }
+
+        putInt(message.getSessionID(), buffer);
+
+        putInt(message.getSessionSequenceNumber(), buffer);
+
+        buffer.put((byte) payload.length);
+        buffer.put((byte) (payload.length >>> 8));
+
+        buffer.put(payload);
+
+        if (message.isPayloadAuthenticated() && message.getSessionID() != 0) {
+            int authCodeLength = integrityAlgorithm.getAuthCodeLength();
+            int pad = (buffer.position() - start + authCodeLength + 2) % 4;
+
+            if (pad > 0) {
+                pad = 4 - pad;
+            }
+
+            for (int i = 0; i < pad; ++i) {
+                buffer.put(TypeConverter.intToByte(0xff));
+            }
+
+            buffer.put(TypeConverter.intToByte(pad));
+
+            // Next header - reserved
+            buffer.put(TypeConverter.intToByte(0x07));
+
+            integrityAlgorithm.generateAuthCode(buffer, start);
+        }
+    }
+
+    /**
+     * Returns the encrypted payload of the message, encrypting it first if
+     * needed.
+     */
+    private byte[] getEncryptedPayload(Ipmiv20Message message) throws InvalidKeyException {
+        byte[] payload = message.getPayload().getEncryptedPayload();
+
+        if (payload == null) {
+            message.getPayload().encryptPayload(
+                    message.getConfidentialityAlgorithm());
+            payload = message.getPayload().getEncryptedPayload();
+        }
+
+        return payload;
+    }
+
+    /**
+     * Writes integer value into the buffer using little endian convention.
+     */
+    private static void putInt(int value, ByteBuffer buffer) {
+        buffer.put((byte) value);
+        buffer.put((byte) (value >>> 8));
+        buffer.put((byte) (value >>> 16));
+        buffer.put((byte) (value >>> 24));
+    }
+
     /**
      * Calculates length of the IPMI message.
      *
@@ -55,7 +55,8 @@ public final class RmcpDecoder {
 
         message.setClassOfMessage(decodeClassOfMessage(rawMessage[3]));
 
-        message.setData(decodeData(rawMessage));
+        // the data stays in the received packet
+        message.setData(rawMessage, 4, rawMessage.length - 4);
 
         return message;
     }
@@ -77,10 +78,4 @@ public final class RmcpDecoder {
         // bits 5 and 6 are reserved so we need to get rid of them
     }
 
-    private static byte[] decodeData(byte[] rawMessage) {
-        byte[] data = new byte[rawMessage.length - 4];
-        System.arraycopy(rawMessage, 4, data, 0, data.length);
-        return data;
-    }
-
 }
@@ -24,6 +24,8 @@ package org.sentrysoftware.ipmi.core.coding.rmcp;
 
 import org.sentrysoftware.ipmi.core.common.TypeConverter;
 
+import java.nio.ByteBuffer;
+
 /**
  * Encodes RMCPMessage into RMCP packet.
  */
@@ -55,6 +57,31 @@ public final class RmcpEncoder {
         return data;
     }
 
+    /**
+     * Writes the RMCP header at the position of the buffer. The data of the
+     * message is expected to be written right after it.
+     *
+     * @param version
+     *            - RMCP version of the message
+     * @param sequenceNumber
+     *            - RMCP sequence number, 0xff if no ACK is desired
+     * @param classOfMessage
+     *            - class of the message
+     * @param buffer
+     *            - buffer receiving the header. On return, positioned after
+     *            the header.
+     */
+    public static void encodeHeader(RmcpVersion version, byte sequenceNumber,
+            RmcpClassOfMessage classOfMessage, ByteBuffer buffer) {
+        buffer.put(encodeVersion(version));
+
+        buffer.put((byte) 0); // reserved
+
+        buffer.put(encodeSequenceNumber(sequenceNumber));
+
+        buffer.put(encodeRMCPClassOfMessage(classOfMessage));
+    }
+
     private static byte encodeVersion(RmcpVersion version) {
         switch (version) {
         case RMCP1_0:
@@ -24,6 +24,8 @@ package org.sentrysoftware.ipmi.core.coding.rmcp;
 
 import org.sentrysoftware.ipmi.core.common.TypeConverter;
 
+import java.util.Arrays;
+
 /**
  * A wrapper class for RMCP message.
  */
@@ -33,6 +35,14 @@ public class RmcpMessage {
     private RmcpClassOfMessage classOfMessage;
     private byte[] data;
 
+    /**
+     * Offset of the data in {@link #data}, which may hold the whole received
+     * packet.
+     */
+    private int dataOffset;
+
+    private int dataLength;
+
     public RmcpMessage() {
         setSequenceNumber(0xff);
     }
@@ -71,9 +81,77 @@ public class RmcpMessage {
 
     public void setData(byte[] data) {
         this.data = data;
+        dataOffset = 0;
+        dataLength = data != null ? data.length : 0;
+    }
+
+    /**
+     * Sets the data as a region of a larger array, e.g. the received packet,
+     * without copying it.
+     *
+     * @param buffer
+     *            - array holding the data
+     * @param offset
+     *            - offset of the data in the array
+     * @param length
+     *            - length of the data
+     */
+    public void setData(byte[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException("Invalid data region");
+        }
+        this.data = buffer;
+        dataOffset = offset;
+        dataLength = length;
     }
 
+    /**
+     * Returns the data of the message. If the data was set as a region of a
+     * larger array, it is copied once into its own array. Decoders should
+     * rather use {@link #getDataBuffer()} and {@link #getDataOffset()}.
+     */
     public byte[] getData() {
+        if (data != null && (dataOffset != 0 || dataLength != data.length)) {
+            data = Arrays.copyOfRange(data, dataOffset, dataOffset + dataLength);
+            dataOffset = 0;
+        }
+        return data;
+    }
+
+    /**
+     * @return array holding the data, starting at {@link #getDataOffset()}.
+     *         Not copied, must not be modified.
+     */
+    public byte[] getDataBuffer() {
         return data;
     }
+
+    /**
+     * @return offset of the data in {@link #getDataBuffer()}
+     */
+    public int getDataOffset() {
+        return dataOffset;
+    }
+
+    /**
+     * @return length of the data
+     */
+    public int getDataLength() {
+        return dataLength;
+    }
+
+    /**
+     * Returns a byte of the data without copying the data.
+     *
+     * @param index
+     *            - index of the byte in the data
+     * @throws IndexOutOfBoundsException
+     *             when the data is shorter
+     */
+    public byte getDataByte(int index) {
+        if (index < 0 || index >= dataLength) {
+            throw new IndexOutOfBoundsException("Message is too short");
+        }
+        return data[dataOffset + index];
+    }
 }
@@ -44,9 +44,16 @@ public class ConfidentialityAesCbc128 extends ConfidentialityAlgorithm {
 		Arrays.fill(CONST2, (byte) 2);
 	}
 
-    private Cipher cipher;
+    private static final String CIPHER_TRANSFORMATION = "AES/CBC/NoPadding";
 
-    private SecretKeySpec cipherKey;
+    /**
+     * Ciphers of the session, so that several threads can encrypt and decrypt
+     * payloads at the same time. Each operation initializes the cipher it
+     * takes with the key and its own Initialization Vector.
+     */
+    private volatile InstancePool<Cipher> ciphers;
+
+    private volatile SecretKeySpec cipherKey;
 
     @Override
     public byte getCode() {
@@ -72,7 +79,9 @@ public class ConfidentialityAesCbc128 extends ConfidentialityAlgorithm {
 
         cipherKey = new SecretKeySpec(ciphKey, "AES");
 
-        cipher = Cipher.getInstance("AES/CBC/NoPadding");
+        final InstancePool<Cipher> instances = new InstancePool<>(() -> Cipher.getInstance(CIPHER_TRANSFORMATION));
+        instances.release(Cipher.getInstance(CIPHER_TRANSFORMATION));
+        ciphers = instances;
     }
 
     @Override
@@ -86,8 +95,6 @@ public class ConfidentialityAesCbc128 extends ConfidentialityAlgorithm {
 
         byte[] result = new byte[length - 16];
 
-        cipher.init(Cipher.ENCRYPT_MODE, cipherKey);
-
         System.arraycopy(data, 0, result, 0, data.length);
 
         for (int i = 0; i < pad; ++i) {
@@ -96,7 +103,11 @@ public class ConfidentialityAesCbc128 extends ConfidentialityAlgorithm {
 
         result[length - 17] = TypeConverter.intToByte(pad);
 
+        final InstancePool<Cipher> instances = ciphers;
+        final Cipher cipher = instances.acquire();
         try {
+            cipher.init(Cipher.ENCRYPT_MODE, cipherKey);
+
             byte[] encrypted = cipher.doFinal(result);
 
             result = new byte[encrypted.length + 16];
@@ -107,37 +118,39 @@ public class ConfidentialityAesCbc128 extends ConfidentialityAlgorithm {
                                                                 // vector
 
             return result;
+        } catch (InvalidKeyException e) {
+            throw e;
         } catch (Exception e) {
             throw new IllegalArgumentException(e.getMessage(), e);
+        } finally {
+            instances.release(cipher);
         }
     }
 
     @Override
     public byte[] decrypt(byte[] data) {
+        return decrypt(data, 0, data.length);
+    }
+
+    @Override
+    public byte[] decrypt(byte[] data, int offset, int length) {
 
         byte[] decrypted = null;
+        final InstancePool<Cipher> instances = ciphers;
+        final Cipher cipher = instances.acquire();
         try {
-            byte[] iv = new byte[16];
-
-            System.arraycopy(data, 0, iv, 0, 16);
-
-            byte[] encrypted = new byte[data.length - 16];
-
-            System.arraycopy(data, 16, encrypted, 0, encrypted.length);
-
-            cipher.init(Cipher.DECRYPT_MODE, cipherKey, new IvParameterSpec(iv));
-            decrypted = cipher.doFinal(encrypted);
+            // the Initialization Vector and the encrypted payload are read in place
+            cipher.init(Cipher.DECRYPT_MODE, cipherKey, new IvParameterSpec(data, offset, 16));
+            decrypted = cipher.doFinal(data, offset + 16, length - 16);
         } catch (Exception e) {
             throw new IllegalArgumentException("Decryption failed", e);
+        } finally {
+            instances.release(cipher);
         }
 
         int pad = TypeConverter.byteToInt(decrypted[decrypted.length - 1]);
 
-        byte[] result = new byte[decrypted.length - pad - 1];
-
-        System.arraycopy(decrypted, 0, result, 0, result.length);
-
-        return result;
+        return Arrays.copyOf(decrypted, decrypted.length - pad - 1);
     }
 
     @Override
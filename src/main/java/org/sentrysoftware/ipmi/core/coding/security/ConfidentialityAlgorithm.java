@@ -25,6 +25,7 @@ package org.sentrysoftware.ipmi.core.coding.security;
 import javax.crypto.NoSuchPaddingException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 /**
  * Interface for Confidentiality Algorithms. All classes extending this one must
@@ -82,6 +83,25 @@ public abstract class ConfidentialityAlgorithm {
      */
     public abstract byte[] decrypt(byte[] data);
 
+    /**
+     * Decrypts the data found in a region of a larger array, e.g. the received
+     * packet.
+     *
+     * @param data
+     *            - array holding the encrypted data encapsulated in
+     *            Confidentiality Header and Trailer.
+     * @param offset
+     *            - offset of the encrypted data in the array
+     * @param length
+     *            - length of the encrypted data
+     * @return decrypted data.
+     * @throws IllegalArgumentException
+     *             - when initiation of the algorithm fails
+     */
+    public byte[] decrypt(byte[] data, int offset, int length) {
+        return decrypt(Arrays.copyOfRange(data, offset, offset + length));
+    }
+
     /**
      * Calculates size of the confidentiality header and trailer specific for
      * the algorithm.
@@ -22,6 +22,8 @@ package org.sentrysoftware.ipmi.core.coding.security;
  * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
  */
 
+import java.util.Arrays;
+
 /**
  * Class representing no confidentiality algorithm.
  */
@@ -46,6 +48,11 @@ public class ConfidentialityNone extends ConfidentialityAlgorithm {
         return data;
     }
 
+    @Override
+    public byte[] decrypt(byte[] data, int offset, int length) {
+        return Arrays.copyOfRange(data, offset, offset + length);
+    }
+
     @Override
     public int getConfidentialityOverheadSize(int payloadSize) {
         return 0;
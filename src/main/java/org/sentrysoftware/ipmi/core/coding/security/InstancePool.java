@@ -0,0 +1,92 @@
+package org.sentrysoftware.ipmi.core.coding.security;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.security.GeneralSecurityException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Lock-free pool of the {@link javax.crypto.Mac} or {@link javax.crypto.Cipher}
+ * instances of a session. These instances are not thread-safe, so each thread
+ * encoding or decoding a message takes its own instance for the duration of
+ * the operation. Instances are created on demand, already keyed, and reused
+ * afterwards, so the number of instances follows the number of threads working
+ * on the session at the same time.
+ *
+ * @param <T>
+ *            - type of the pooled instances
+ */
+class InstancePool<T> {
+
+    /**
+     * Creates a ready to use instance.
+     */
+    interface Factory<T> {
+        T create() throws GeneralSecurityException;
+    }
+
+    private final Queue<T> idleInstances = new ConcurrentLinkedQueue<T>();
+
+    private final Factory<T> factory;
+
+    /**
+     * @param factory
+     *            - creates the instances when all of them are in use
+     */
+    InstancePool(Factory<T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Takes an idle instance, or creates one if all of them are in use.
+     *
+     * @return instance to give back with {@link #release(Object)}
+     * @throws IllegalStateException
+     *             when the instance cannot be created
+     */
+    T acquire() {
+        T instance = idleInstances.poll();
+
+        if (instance != null) {
+            return instance;
+        }
+
+        try {
+            return factory.create();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gives back an instance taken with {@link #acquire()}, in a state ready
+     * for the next operation.
+     *
+     * @param instance
+     *            - instance to reuse
+     */
+    void release(T instance) {
+        idleInstances.add(instance);
+    }
+}
@@ -25,11 +25,14 @@ package org.sentrysoftware.ipmi.core.coding.security;
 import org.sentrysoftware.ipmi.core.coding.commands.session.Rakp1;
 import org.sentrysoftware.ipmi.core.common.TypeConverter;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
 import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
 
 /**
@@ -44,8 +47,18 @@ public abstract class IntegrityAlgorithm {
 	}
 
 	protected byte[] sik;
+
+	/**
+	 * MAC used to derive the key of the session
+	 */
 	private final Mac mac;
 
+	/**
+	 * Keyed MAC instances of the session, so that requests and responses can be
+	 * authenticated by several threads at the same time
+	 */
+	private volatile InstancePool<MacInstance> macInstances;
+
 	/**
 	 * Constructs an integrity algorithm.
 	 */
@@ -68,16 +81,64 @@ public abstract class IntegrityAlgorithm {
 	 * @param sik - Session Integrity Key calculated during the opening of the
 	 *            session or user password if 'one-key' logins are enabled.
 	 */
-	public void initialize(byte[] sik) throws InvalidKeyException {
-		this.sik = sik;
+	public synchronized void initialize(byte[] sik) throws InvalidKeyException {
 		final String algorithmName = getAlgorithmName();
 		
 		SecretKeySpec k1 = new SecretKeySpec(sik, algorithmName);
 
 		mac.init(k1);
-		k1 = new SecretKeySpec(mac.doFinal(CONST1), algorithmName);
+		final SecretKeySpec k2 = new SecretKeySpec(mac.doFinal(CONST1), algorithmName);
 
-		mac.init(k1);
+		// Fail now rather than on the first message if the key is rejected
+		final Mac keyedMac = newMac(k2);
+
+		final InstancePool<MacInstance> instances = new InstancePool<>(() -> new MacInstance(newMac(k2)));
+		instances.release(new MacInstance(keyedMac));
+
+		// Written before the volatile pool, so a thread seeing the pool also sees the key
+		this.sik = sik;
+		macInstances = instances;
+	}
+
+	/**
+	 * @param key the key of the session
+	 * @return a new MAC of the same algorithm and provider, initialized with the given key
+	 */
+	private Mac newMac(final SecretKeySpec key) throws InvalidKeyException {
+		final Mac keyedMac;
+		try {
+			keyedMac = Mac.getInstance(mac.getAlgorithm(), mac.getProvider());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("Algorithm " + mac.getAlgorithm() + " is not available", e);
+		}
+		keyedMac.init(key);
+		return keyedMac;
+	}
+
+	/**
+	 * Takes a keyed MAC instance for the invoking thread
+	 *
+	 * @return instance to give back with {@link #release(MacInstance)}
+	 */
+	private MacInstance acquire() {
+		final InstancePool<MacInstance> instances = macInstances;
+		if (instances == null) {
+			throw new NullPointerException("Algorithm not initialized.");
+		}
+		final MacInstance instance = instances.acquire();
+		instance.pool = instances;
+		return instance;
+	}
+
+	/**
+	 * Gives back a MAC instance taken with {@link #acquire()}
+	 *
+	 * @param instance the instance to reuse
+	 */
+	private static void release(final MacInstance instance) {
+		// Clear any partial computation left by a failed operation
+		instance.mac.reset();
+		instance.pool.release(instance);
 	}
 
 	/**
@@ -96,10 +157,15 @@ public abstract class IntegrityAlgorithm {
 	 */
 	public byte[] generateAuthCode(final byte[] base) {
 
-		if (sik == null) {
-			throw new NullPointerException("Algorithm not initialized.");
+		final MacInstance instance = acquire();
+		try {
+			return generateAuthCode(instance.mac, base);
+		} finally {
+			release(instance);
 		}
-		
+	}
+
+	private byte[] generateAuthCode(final Mac mac, final byte[] base) {
 		final int authCodeLength = getAuthCodeLength();
 		final byte[] result = new byte[authCodeLength];
 		byte[] updatedBase;
@@ -115,6 +181,77 @@ public abstract class IntegrityAlgorithm {
 		return result;
 	}
 
+	/**
+	 * Creates AuthCode field for a message encoded in a buffer, without copying
+	 * the message. The session trailer preceding the AuthCode, including the
+	 * Integrity Pad, must already be written.
+	 *
+	 * @param message    - buffer positioned where the AuthCode field starts. On
+	 *                   return, positioned after the AuthCode field.
+	 * @param baseOffset - offset in the buffer of the AuthType/Format field
+	 * @throws BufferOverflowException when the buffer is too small to hold the
+	 *                                 AuthCode field
+	 */
+	public void generateAuthCode(final ByteBuffer message, final int baseOffset) {
+
+		final int authCodeLength = getAuthCodeLength();
+		if (message.remaining() < authCodeLength) {
+			throw new BufferOverflowException();
+		}
+
+		final MacInstance instance = acquire();
+		try {
+			final int end = message.position();
+			final int limit = message.limit();
+
+			message.position(baseOffset);
+			message.limit(end);
+			instance.mac.update(message);
+			message.limit(limit);
+
+			instance.doFinal();
+
+			message.put(instance.output, 0, authCodeLength);
+		} finally {
+			release(instance);
+		}
+	}
+
+	/**
+	 * Checks the AuthCode field of a received message without copying the
+	 * message.
+	 *
+	 * @param message        - array holding the received message
+	 * @param baseOffset     - offset of the AuthType/Format field
+	 * @param authCodeOffset - offset of the AuthCode field, right after the
+	 *                       session trailer
+	 * @param end            - offset following the last byte of the message
+	 * @return whether the AuthCode field matches the message
+	 */
+	public boolean validateAuthCode(final byte[] message, final int baseOffset, final int authCodeOffset, final int end) {
+
+		final int authCodeLength = getAuthCodeLength();
+		if (end - authCodeOffset != authCodeLength) {
+			return false;
+		}
+
+		final MacInstance instance = acquire();
+		try {
+			instance.mac.update(message, baseOffset, authCodeOffset - baseOffset);
+			instance.doFinal();
+
+			// Compare all the bytes, so the time spent does not depend on the first mismatch
+			int difference = 0;
+			for (int i = 0; i < authCodeLength; ++i) {
+				difference |= instance.output[i] ^ message[authCodeOffset + i];
+			}
+
+			return difference == 0;
+		} finally {
+			release(instance);
+		}
+	}
+
 	/**
 	 * Modifies the algorithm base since with null Auth Code during encoding
 	 * Integrity Pad isn't calculated.
@@ -163,4 +300,33 @@ public abstract class IntegrityAlgorithm {
 	 */
 	public abstract int getAuthCodeLength();
 
+	/**
+	 * Keyed MAC with its output buffer, used by one thread at a time
+	 */
+	private static class MacInstance {
+
+		private final Mac mac;
+		private final byte[] output;
+
+		/**
+		 * Pool the instance was taken from, the algorithm may have been initialized again since
+		 */
+		private InstancePool<MacInstance> pool;
+
+		private MacInstance(final Mac mac) {
+			this.mac = mac;
+			this.output = new byte[mac.getMacLength()];
+		}
+
+		/**
+		 * Completes the MAC computation into {@link #output}
+		 */
+		private void doFinal() {
+			try {
+				mac.doFinal(output, 0);
+			} catch (ShortBufferException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
 }
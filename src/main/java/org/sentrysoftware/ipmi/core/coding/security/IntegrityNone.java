@@ -22,6 +22,7 @@ package org.sentrysoftware.ipmi.core.coding.security;
  * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
  */
 
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 
 /**
@@ -51,6 +52,16 @@ public class IntegrityNone extends IntegrityAlgorithm {
 		return null;
 	}
 
+	@Override
+	public void generateAuthCode(ByteBuffer message, int baseOffset) {
+		// No AuthCode field
+	}
+
+	@Override
+	public boolean validateAuthCode(byte[] message, int baseOffset, int authCodeOffset, int end) {
+		return authCodeOffset >= end;
+	}
+
 	@Override
 	public String getAlgorithmName() {
 		return "";
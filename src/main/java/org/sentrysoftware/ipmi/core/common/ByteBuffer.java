@@ -22,6 +22,8 @@ package org.sentrysoftware.ipmi.core.common;
  * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
  */
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * {@link ByteBuffer} is a wrapper for byte[], and allows to safely read and write from the buffer.
  * {@link ByteBuffer} is thread safe and guarantees proper handling of subsequent reads and writes, if they are within availabla buffer size.
@@ -80,9 +82,41 @@ public class ByteBuffer {
 
         writeMarker += actualBytesToWrite;
 
+        if (actualBytesToWrite > 0) {
+            notifyAll();
+        }
+
         return actualBytesToWrite;
     }
 
+    /**
+     * Waits until this {@link ByteBuffer} contains at least given number of bytes or until given timeout is hit.
+     * Waiting threads are woken up by {@link #write(byte[])}, so that no CPU is used while no data is received.
+     *
+     * @param numberOfBytes
+     *          number of bytes that we want to be available to read
+     * @param timeout
+     *          maximum time in milliseconds that we want to wait for the bytes
+     * @return true if requested number of bytes is available, false if the timeout was hit first.
+     * @throws InterruptedException
+     *          when the thread is interrupted while waiting
+     */
+    public synchronized boolean waitForData(int numberOfBytes, long timeout) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        while (size() < numberOfBytes) {
+            long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0) {
+                return false;
+            }
+
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+
+        return true;
+    }
+
     /**
      * Attempts to read given number of bytes from this {@link ByteBuffer}.
      * If buffer currently contains less bytes than requested, this method reads only available number of bytes.
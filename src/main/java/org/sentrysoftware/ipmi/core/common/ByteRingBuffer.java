@@ -0,0 +1,272 @@
+package org.sentrysoftware.ipmi.core.common;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link ByteRingBuffer} is a circular byte buffer for one writing thread and one reading thread.
+ * Unlike {@link ByteBuffer}, it takes no lock, never moves the unread bytes and reads directly into arrays provided by the caller,
+ * so every byte is copied once when written and once when read.
+ * <p>
+ * {@link #write(byte[], int, int)} must only be invoked by a single thread at a time, and so must the reading methods.
+ * The reading thread and the writing thread may be different and run concurrently.
+ */
+public class ByteRingBuffer {
+
+    /**
+     * Main buffer, in which all data is stored.
+     */
+    private final byte[] buffer;
+
+    /**
+     * Total number of bytes written since the creation of the buffer. Only modified by the writing thread.
+     */
+    private volatile long writeCount;
+
+    /**
+     * Total number of bytes read since the creation of the buffer. Only modified by the reading thread.
+     */
+    private volatile long readCount;
+
+    /**
+     * Threads waiting in {@link #waitForData(int, long)}.
+     */
+    private final Queue<Thread> waitingReaders = new ConcurrentLinkedQueue<Thread>();
+
+    /**
+     * Set when no more data is expected, releases the waiting threads.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Allocate new {@link ByteRingBuffer} with given size.
+     *
+     * @param capacity
+     *          max capacity of constructed buffer.
+     */
+    public ByteRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Buffer must have positive capacity");
+        }
+
+        buffer = new byte[capacity];
+    }
+
+    /**
+     * Attempts to write given byte array to this {@link ByteRingBuffer}.
+     *
+     * @param bytes
+     *          bytes to write
+     *
+     * @return number of bytes that were actualy written
+     * @see #write(byte[], int, int)
+     */
+    public int write(byte[] bytes) {
+        return write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Attempts to write given part of a byte array to this {@link ByteRingBuffer}.
+     * Writes as many bytes as it can, so that partial data from given array can be written
+     * if not available space for whole array is found in buffer. Wakes up the threads waiting for data.
+     *
+     * @param bytes
+     *          array containing bytes to write
+     * @param offset
+     *          position of the first byte to write in the array
+     * @param length
+     *          number of bytes to write
+     *
+     * @return number of bytes that were actualy written
+     */
+    public int write(byte[] bytes, int offset, int length) {
+        final long write = writeCount;
+        final int count = (int) Math.min(length, buffer.length - (write - readCount));
+
+        if (count <= 0) {
+            return 0;
+        }
+
+        final int start = (int) (write % buffer.length);
+        final int firstPart = Math.min(count, buffer.length - start);
+
+        System.arraycopy(bytes, offset, buffer, start, firstPart);
+        System.arraycopy(bytes, offset + firstPart, buffer, 0, count - firstPart);
+
+        // Publishes the bytes to the reading thread
+        writeCount = write + count;
+
+        wakeUpReaders();
+
+        return count;
+    }
+
+    private void wakeUpReaders() {
+        for (Thread reader : waitingReaders) {
+            LockSupport.unpark(reader);
+        }
+    }
+
+    /**
+     * Reads at max given number of bytes from this {@link ByteRingBuffer} into given array.
+     * If buffer currently contains less bytes than requested, this method reads only available number of bytes.
+     *
+     * @param destination
+     *          array where the bytes are copied
+     * @param offset
+     *          position in the array of the first byte read
+     * @param length
+     *          requested number of bytes to read
+     * @return actual number of bytes read
+     */
+    public int read(byte[] destination, int offset, int length) {
+        final long read = readCount;
+        final int count = (int) Math.min(length, writeCount - read);
+
+        if (count <= 0) {
+            return 0;
+        }
+
+        final int start = (int) (read % buffer.length);
+        final int firstPart = Math.min(count, buffer.length - start);
+
+        System.arraycopy(buffer, start, destination, offset, firstPart);
+        System.arraycopy(buffer, 0, destination, offset + firstPart, count - firstPart);
+
+        // Frees the space for the writing thread
+        readCount = read + count;
+
+        return count;
+    }
+
+    /**
+     * Attempts to read given number of bytes from this {@link ByteRingBuffer}.
+     * If buffer currently contains less bytes than requested, this method reads only available number of bytes.
+     *
+     * @param numberOfBytes
+     *          requested number of bytes to read
+     * @return actual bytes that could be read from this buffer.
+     */
+    public byte[] read(int numberOfBytes) {
+        byte[] result = new byte[Math.max(0, Math.min(numberOfBytes, size()))];
+
+        read(result, 0, result.length);
+
+        return result;
+    }
+
+    /**
+     * Waits until this {@link ByteRingBuffer} contains at least given number of bytes, until given timeout is hit
+     * or until the buffer is closed. Waiting threads are woken up by the writes, so that no CPU is used while no data is received.
+     *
+     * @param numberOfBytes
+     *          number of bytes that we want to be available to read
+     * @param timeout
+     *          maximum time in milliseconds that we want to wait for the bytes
+     * @return true if requested number of bytes is available, false if the timeout was hit or the buffer was closed first.
+     * @throws InterruptedException
+     *          when the thread is interrupted while waiting
+     */
+    public boolean waitForData(int numberOfBytes, long timeout) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        final Thread reader = Thread.currentThread();
+
+        // Registered before checking the size, so that a write published in between wakes this thread up
+        waitingReaders.add(reader);
+        try {
+            while (size() < numberOfBytes) {
+                if (closed) {
+                    return false;
+                }
+
+                long remaining = deadline - System.nanoTime();
+
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                LockSupport.parkNanos(this, remaining);
+
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+
+            return true;
+        } finally {
+            waitingReaders.remove(reader);
+        }
+    }
+
+    /**
+     * Marks that no more data will be written, so that the threads waiting for data return immediately.
+     * Bytes already written can still be read.
+     */
+    public void close() {
+        closed = true;
+
+        wakeUpReaders();
+    }
+
+    /**
+     * @return true if {@link #close()} has been invoked
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns current size of the buffer (number of available data to read).
+     *
+     * @return size of the buffer in bytes
+     */
+    public int size() {
+        final long write = writeCount;
+        final long read = readCount;
+
+        // Both counters may be updated between the two reads
+        return (int) Math.max(0, Math.min(buffer.length, write - read));
+    }
+
+    /**
+     * Returns max capacity of the buffer (number of total data that can be stored in the buffer).
+     *
+     * @return capacity of the buffer in bytes
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Returns remainig space in the buffer (number of bytes that can still be written to this buffer until it gets full).
+     *
+     * @return remaining free space in this buffer
+     */
+    public int remainingSpace() {
+        return capacity() - size();
+    }
+}
@@ -41,7 +41,9 @@ import org.sentrysoftware.ipmi.core.coding.security.IntegrityHmacSha1_96;
 import org.sentrysoftware.ipmi.core.common.Constants;
 import org.sentrysoftware.ipmi.core.common.PropertiesManager;
 import org.sentrysoftware.ipmi.core.common.TypeConverter;
+import org.sentrysoftware.ipmi.core.connection.queue.MessageQueue;
 import org.sentrysoftware.ipmi.core.sm.MachineObserver;
+import org.sentrysoftware.ipmi.core.sm.MessageDispatcher;
 import org.sentrysoftware.ipmi.core.sm.StateMachine;
 import org.sentrysoftware.ipmi.core.sm.actions.ErrorAction;
 import org.sentrysoftware.ipmi.core.sm.actions.GetSikAction;
@@ -57,6 +59,7 @@ import org.sentrysoftware.ipmi.core.sm.events.GetChannelCipherSuitesPending;
 import org.sentrysoftware.ipmi.core.sm.events.OpenSessionAck;
 import org.sentrysoftware.ipmi.core.sm.events.Rakp2Ack;
 import org.sentrysoftware.ipmi.core.sm.events.StartSession;
+import org.sentrysoftware.ipmi.core.sm.events.StateMachineEvent;
 import org.sentrysoftware.ipmi.core.sm.events.Timeout;
 import org.sentrysoftware.ipmi.core.sm.states.Authcap;
 import org.sentrysoftware.ipmi.core.sm.states.Ciphers;
@@ -70,25 +73,34 @@ import org.slf4j.LoggerFactory;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.InetAddress;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A connection with the specific remote host.
  */
-public class Connection extends TimerTask implements MachineObserver {
+public class Connection implements Runnable, MachineObserver {
     private static final Logger logger = LoggerFactory.getLogger(Connection.class);
 
     private static final int DEFAULT_CIPHER_SUITE = 3;
     private static final int SESSION_SEQUENCE_NUMBER_UPPER_BOUND = Integer.MAX_VALUE / 4;
     private static final String ILLEGAL_CONNECTION_STATE_MESSAGE = "Illegal connection state: ";
 
+    /**
+     * Delay in ms before the no-op message is sent again if the message queue
+     * was full.
+     */
+    private static final int KEEP_ALIVE_RETRY_DELAY = 1000;
+
     private List<ConnectionListener> listeners;
     private StateMachine stateMachine;
 
@@ -96,7 +108,15 @@ public class Connection extends TimerTask implements MachineObserver {
      * Time in ms after which a message times out.
      */
     private int timeout = -1;
-    private StateMachineAction lastAction;
+
+    /**
+     * Maximum number of messages waiting for an answer at the same time.
+     */
+    private int windowSize = MessageQueue.DEFAULT_WINDOW_SIZE;
+    /**
+     * Completed with the outcome of the handshake request in progress.
+     */
+    private volatile CompletableFuture<StateMachineAction> pendingAction;
     private int sessionId;
     private int managedSystemSessionId;
     private byte[] sik;
@@ -109,7 +129,28 @@ public class Connection extends TimerTask implements MachineObserver {
 
     private Map<PayloadType, MessageHandler> messageHandlers;
 
-    private Timer timer;
+    /**
+     * Runs the keep-alive messages, the message queue sweeps and the
+     * handshake timeouts of the connection.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * True if the scheduler was created for this connection only and has to
+     * be shut down on {@link #disconnect()}.
+     */
+    private final boolean ownScheduler;
+
+    private ScheduledFuture<?> keepAlive;
+
+    /**
+     * Pending retry of a keep-alive message that could not be queued, guarded
+     * by {@link #keepAliveLock}. The periodic keep-alive is skipped while a
+     * retry is pending, so at most one retry chain runs.
+     */
+    private ScheduledFuture<?> keepAliveRetry;
+
+    private final Object keepAliveLock = new Object();
 
     private AtomicInteger currentSessionSequenceNumber;
 
@@ -125,6 +166,27 @@ public class Connection extends TimerTask implements MachineObserver {
         }
     }
 
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Sets the maximum number of messages waiting for an answer at the same
+     * time. It is bounded by the sequence numbers available for each payload
+     * type (63 for IPMI, 15 for SOL) and is reduced automatically while the
+     * managed system reports it is busy.
+     *
+     * @param windowSize
+     *            - maximum number of messages in flight
+     */
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+
+        for (MessageHandler messageHandler : messageHandlers.values()) {
+            messageHandler.setWindowSize(windowSize);
+        }
+    }
+
     /**
      * Creates the connection.
      *
@@ -135,7 +197,35 @@ public class Connection extends TimerTask implements MachineObserver {
      *            - id of the connection
      */
     public Connection(Messenger messenger, int handle) {
-        stateMachine = new StateMachine(messenger);
+        this(new StateMachine(messenger), ConnectionManager.createScheduler(), true, handle);
+    }
+
+    /**
+     * Creates the connection receiving its messages through the shared
+     * {@link MessageDispatcher} and running its periodic tasks on the shared
+     * scheduler.
+     *
+     * @param messenger
+     *            - {@link Messenger} associated with the proper
+     *            {@link Constants#IPMI_PORT}
+     * @param dispatcher
+     *            - {@link MessageDispatcher} registered in the messenger
+     * @param scheduler
+     *            - {@link ScheduledExecutorService} shared by the
+     *            connections, not shut down by the connection
+     * @param handle
+     *            - id of the connection
+     */
+    public Connection(Messenger messenger, MessageDispatcher dispatcher, ScheduledExecutorService scheduler,
+            int handle) {
+        this(new StateMachine(messenger, dispatcher), scheduler, false, handle);
+    }
+
+    private Connection(StateMachine stateMachine, ScheduledExecutorService scheduler, boolean ownScheduler,
+            int handle) {
+        this.stateMachine = stateMachine;
+        this.scheduler = scheduler;
+        this.ownScheduler = ownScheduler;
         this.handle = handle;
         listeners = new ArrayList<ConnectionListener>();
         timeout = Integer.parseInt(PropertiesManager.getInstance().getProperty("timeout"));
@@ -143,6 +233,14 @@ public class Connection extends TimerTask implements MachineObserver {
         currentSessionSequenceNumber = new AtomicInteger(0);
     }
 
+    /**
+     * @return {@link ScheduledExecutorService} running the periodic tasks of
+     *         the connection
+     */
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
     /**
      * Registers the listener so it will receive notifications from this
      * connection
@@ -204,11 +302,14 @@ public class Connection extends TimerTask implements MachineObserver {
         MessageHandler solMessageHandler = new SolMessageHandler(this, timeout);
         messageHandlers.put(PayloadType.Sol, solMessageHandler);
 
-		// If the pingPeriod greater than 0, start the timer otherwise don't start it
+        for (MessageHandler messageHandler : messageHandlers.values()) {
+            messageHandler.setWindowSize(windowSize);
+        }
+
+		// If the pingPeriod greater than 0, schedule the keep-alive otherwise don't schedule it
 		// means that the connection won't be kept alive by sending no-op messages
 		if (pingPeriod > 0) {
-			timer = new Timer();
-			timer.schedule(this, pingPeriod, pingPeriod);
+			keepAlive = scheduler.scheduleAtFixedRate(this, pingPeriod, pingPeriod, TimeUnit.MILLISECONDS);
 		}
 
         stateMachine.register(this);
@@ -227,15 +328,17 @@ public class Connection extends TimerTask implements MachineObserver {
      * @see #connect(InetAddress, int, int)
      */
     public void disconnect() {
-		if (timer != null) {
-			timer.cancel();
-		}
+		cancelKeepAlive();
 
         stateMachine.stop();
 
         for (MessageHandler messageHandler : messageHandlers.values()) {
             messageHandler.tearDown();
         }
+
+        if (ownScheduler) {
+            scheduler.shutdownNow();
+        }
     }
 
     /**
@@ -265,86 +368,122 @@ public class Connection extends TimerTask implements MachineObserver {
      *             when sending message to the managed system fails
      */
     public List<CipherSuite> getAvailableCipherSuites(int tag) throws Exception {
+        return await(getAvailableCipherSuitesAsync(tag));
+    }
 
+    /**
+     * Asynchronous version of {@link #getAvailableCipherSuites(int)}. The
+     * returned future is completed by the thread receiving the last response,
+     * or exceptionally when the request fails or times out.
+     *
+     * @param tag
+     *            - the integer from range 0-63 to match request with response
+     *
+     * @return future list of the {@link CipherSuite}s supported by the managed
+     *         system.
+     */
+    public CompletableFuture<List<CipherSuite>> getAvailableCipherSuitesAsync(int tag) {
         if (stateMachine.getCurrent().getClass() != Uninitialized.class) {
-            throw new ConnectionException(ILLEGAL_CONNECTION_STATE_MESSAGE + stateMachine.getCurrent().getClass().getSimpleName());
+            return failedFuture(new ConnectionException(ILLEGAL_CONNECTION_STATE_MESSAGE
+                    + stateMachine.getCurrent().getClass().getSimpleName()));
         }
 
-        boolean process = true;
-
-        ArrayList<byte[]> rawCipherSuites = new ArrayList<byte[]>();
-
-        while (process) {
+        return requestCipherSuites(tag, new ArrayList<byte[]>());
+    }
 
-            lastAction = null;
+    private CompletableFuture<List<CipherSuite>> requestCipherSuites(final int tag,
+            final List<byte[]> rawCipherSuites) {
+        return request(new GetChannelCipherSuitesPending(tag)).thenCompose(responseData -> {
 
-            stateMachine.doTransition(new GetChannelCipherSuitesPending(tag));
+            if (!(responseData instanceof GetChannelCipherSuitesResponseData)) {
+                stateMachine.doTransition(new Timeout());
+                throw new CompletionException(new ConnectionException(
+                        "Response data not matching Get Channel Cipher Suites command."));
+            }
 
-            waitForResponse();
+            byte[] cipherSuiteData = ((GetChannelCipherSuitesResponseData) responseData).getCipherSuiteData();
 
-            ResponseAction action = (ResponseAction) lastAction;
+            rawCipherSuites.add(cipherSuiteData);
 
-            if (!(action.getIpmiResponseData() instanceof GetChannelCipherSuitesResponseData)) {
-                stateMachine.doTransition(new Timeout());
-                throw new ConnectionException(
-                        "Response data not matching Get Channel Cipher Suites command.");
+            if (cipherSuiteData.length >= 16) {
+                return requestCipherSuites(tag, rawCipherSuites);
             }
 
-            GetChannelCipherSuitesResponseData responseData = (GetChannelCipherSuitesResponseData) action
-                    .getIpmiResponseData();
+            stateMachine.doTransition(new DefaultAck());
 
-            rawCipherSuites.add(responseData.getCipherSuiteData());
+            int length = 0;
 
-            if (responseData.getCipherSuiteData().length < 16) {
-                process = false;
+            for (byte[] partial : rawCipherSuites) {
+                length += partial.length;
             }
-        }
 
-        stateMachine.doTransition(new DefaultAck());
+            byte[] csRaw = new byte[length];
 
-        int length = 0;
+            int index = 0;
 
-        for (byte[] partial : rawCipherSuites) {
-            length += partial.length;
-        }
+            for (byte[] partial : rawCipherSuites) {
+                System.arraycopy(partial, 0, csRaw, index, partial.length);
+                index += partial.length;
+            }
 
-        byte[] csRaw = new byte[length];
+            return CompletableFuture.completedFuture(CipherSuite.getCipherSuites(csRaw));
+        });
+    }
 
-        int index = 0;
+    /**
+     * Performs the transition that sends a handshake request and returns the
+     * future response. The future is completed from
+     * {@link #notify(StateMachineAction)} when the state machine reports the
+     * response, or exceptionally on error or after {@link #getTimeout()} ms.
+     */
+    private CompletableFuture<ResponseData> request(StateMachineEvent event) {
+        final CompletableFuture<StateMachineAction> future = new CompletableFuture<StateMachineAction>();
+        pendingAction = future;
 
-        for (byte[] partial : rawCipherSuites) {
-            System.arraycopy(partial, 0, csRaw, index, partial.length);
-            index += partial.length;
-        }
+        final ScheduledFuture<?> timeoutTask = scheduler.schedule(() -> {
+            if (future.completeExceptionally(new ConnectionException("Command timed out"))) {
+                stateMachine.doTransition(new Timeout());
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
 
-        return CipherSuite.getCipherSuites(csRaw);
-    }
+        future.whenComplete((action, exception) -> timeoutTask.cancel(false));
 
-    private void waitForResponse() throws Exception {
-        int time = 0;
+        stateMachine.doTransition(event);
 
-        while (time < timeout && lastAction == null) {
-            try {
-                Thread.sleep(1);
-            } catch (InterruptedException e) {
-                logger.error(e.getMessage(), e);
+        return future.thenApply(action -> {
+            if (action instanceof ResponseAction) {
+                return ((ResponseAction) action).getIpmiResponseData();
             }
-            ++time;
-        }
+            if (action instanceof ErrorAction) {
+                throw new CompletionException(((ErrorAction) action).getException());
+            }
+            throw new CompletionException(new ConnectionException("Invalid StateMachine response: "
+                    + action.getClass().getSimpleName()));
+        });
+    }
 
-        if (lastAction == null) {
-            stateMachine.doTransition(new Timeout());
-            throw new ConnectionException("Command timed out");
-        }
-        if (!(lastAction instanceof ResponseAction || lastAction instanceof GetSikAction)) {
-            if (lastAction instanceof ErrorAction) {
-                throw ((ErrorAction) lastAction).getException();
+    /**
+     * Blocks until the future handshake result is available. The timeout is
+     * enforced by {@link #request(StateMachineEvent)}.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
             }
-            throw new ConnectionException("Invalid StateMachine response: "
-                    + lastAction.getClass().getSimpleName());
+            throw e;
         }
     }
 
+    private static <T> CompletableFuture<T> failedFuture(Exception exception) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        future.completeExceptionally(exception);
+        return future;
+    }
+
     /**
      * Queries the managed system for the details of the authentification
      * process. Must be performed after {@link #getAvailableCipherSuites(int)}
@@ -365,36 +504,45 @@ public class Connection extends TimerTask implements MachineObserver {
     public GetChannelAuthenticationCapabilitiesResponseData getChannelAuthenticationCapabilities(
             int tag, CipherSuite cipherSuite,
             PrivilegeLevel requestedPrivilegeLevel) throws Exception {
+        return await(getChannelAuthenticationCapabilitiesAsync(tag, cipherSuite, requestedPrivilegeLevel));
+    }
+
+    /**
+     * Asynchronous version of
+     * {@link #getChannelAuthenticationCapabilities(int, CipherSuite, PrivilegeLevel)}.
+     *
+     * @param tag
+     *            - the integer from range 0-63 to match request with response
+     * @param cipherSuite
+     *            - {@link CipherSuite} requested for the session
+     * @param requestedPrivilegeLevel
+     *            - {@link PrivilegeLevel} requested for the session
+     * @return future {@link GetChannelAuthenticationCapabilitiesResponseData}
+     */
+    public CompletableFuture<GetChannelAuthenticationCapabilitiesResponseData> getChannelAuthenticationCapabilitiesAsync(
+            int tag, CipherSuite cipherSuite,
+            final PrivilegeLevel requestedPrivilegeLevel) {
 
         if (stateMachine.getCurrent().getClass() != Ciphers.class) {
-            throw new ConnectionException(ILLEGAL_CONNECTION_STATE_MESSAGE
-                    + stateMachine.getCurrent().getClass().getSimpleName());
+            return failedFuture(new ConnectionException(ILLEGAL_CONNECTION_STATE_MESSAGE
+                    + stateMachine.getCurrent().getClass().getSimpleName()));
         }
 
-        lastAction = null;
-
-        stateMachine.doTransition(new Default(cipherSuite, tag,
-                requestedPrivilegeLevel));
-
-        waitForResponse();
+        return request(new Default(cipherSuite, tag, requestedPrivilegeLevel)).thenApply(responseData -> {
 
-        ResponseAction action = (ResponseAction) lastAction;
-
-        if (!(action.getIpmiResponseData() instanceof GetChannelAuthenticationCapabilitiesResponseData)) {
-            stateMachine.doTransition(new Timeout());
-            throw new ConnectionException(
-                    "Response data not matching Get Channel Authentication Capabilities command.");
-        }
-
-        GetChannelAuthenticationCapabilitiesResponseData responseData = (GetChannelAuthenticationCapabilitiesResponseData) action
-                .getIpmiResponseData();
+            if (!(responseData instanceof GetChannelAuthenticationCapabilitiesResponseData)) {
+                stateMachine.doTransition(new Timeout());
+                throw new CompletionException(new ConnectionException(
+                        "Response data not matching Get Channel Authentication Capabilities command."));
+            }
 
-        sessionId = SessionManager.generateSessionId();
+            sessionId = SessionManager.generateSessionId();
 
-        stateMachine.doTransition(new AuthenticationCapabilitiesReceived(
-                sessionId, requestedPrivilegeLevel));
+            stateMachine.doTransition(new AuthenticationCapabilitiesReceived(
+                    sessionId, requestedPrivilegeLevel));
 
-        return responseData;
+            return (GetChannelAuthenticationCapabilitiesResponseData) responseData;
+        });
     }
 
     /**
@@ -427,84 +575,93 @@ public class Connection extends TimerTask implements MachineObserver {
     public int startSession(int tag, CipherSuite cipherSuite,
             PrivilegeLevel privilegeLevel, String username, String password,
             byte[] bmcKey) throws Exception {
+        return await(startSessionAsync(tag, cipherSuite, privilegeLevel, username, password, bmcKey));
+    }
+
+    /**
+     * Asynchronous version of
+     * {@link #startSession(int, CipherSuite, PrivilegeLevel, String, String, byte[])}.
+     * Each step of the handshake is sent by the thread that received the
+     * previous response.
+     *
+     * @param tag
+     *            - the integer from range 0-63 to match request with response
+     * @param cipherSuite
+     *            - {@link CipherSuite} that will be used during the session
+     * @param privilegeLevel
+     *            - requested {@link PrivilegeLevel}
+     * @param username
+     *            - the username
+     * @param password
+     *            - the password matching the username
+     * @param bmcKey
+     *            - the key that should be provided if the two-key
+     *            authentication is enabled, null otherwise.
+     * @return future id of the new session
+     */
+    public CompletableFuture<Integer> startSessionAsync(final int tag, final CipherSuite cipherSuite,
+            final PrivilegeLevel privilegeLevel, final String username, final String password,
+            final byte[] bmcKey) {
         if (stateMachine.getCurrent().getClass() != Authcap.class) {
-            throw new ConnectionException(ILLEGAL_CONNECTION_STATE_MESSAGE
-                    + stateMachine.getCurrent().getClass().getSimpleName());
+            return failedFuture(new ConnectionException(ILLEGAL_CONNECTION_STATE_MESSAGE
+                    + stateMachine.getCurrent().getClass().getSimpleName()));
         }
 
-        lastAction = null;
-
         // Open Session
-        stateMachine.doTransition(new Authorize(cipherSuite, tag,
-                privilegeLevel, sessionId));
-
-        waitForResponse();
-
-        ResponseAction action = (ResponseAction) lastAction;
-
-        lastAction = null;
+        return request(new Authorize(cipherSuite, tag, privilegeLevel, sessionId)).thenCompose(responseData -> {
 
-        if (!(action.getIpmiResponseData() instanceof OpenSessionResponseData)) {
-            stateMachine.doTransition(new Timeout());
-            throw new ConnectionException(
-                    "Response data not matching OpenSession response data");
-        }
-
-        managedSystemSessionId = ((OpenSessionResponseData) action
-                .getIpmiResponseData()).getManagedSystemSessionId();
-
-        stateMachine.doTransition(new DefaultAck());
-
-        // RAKP 1
-        stateMachine.doTransition(new OpenSessionAck(cipherSuite,
-                privilegeLevel, tag, managedSystemSessionId, username,
-                password, bmcKey));
-
-        waitForResponse();
-
-        action = (ResponseAction) lastAction;
+            if (!(responseData instanceof OpenSessionResponseData)) {
+                stateMachine.doTransition(new Timeout());
+                throw new CompletionException(new ConnectionException(
+                        "Response data not matching OpenSession response data"));
+            }
 
-        lastAction = null;
+            managedSystemSessionId = ((OpenSessionResponseData) responseData).getManagedSystemSessionId();
 
-        if (!(action.getIpmiResponseData() instanceof Rakp1ResponseData)) {
-            stateMachine.doTransition(new Timeout());
-            throw new ConnectionException(
-                    "Response data not matching RAKP Message 2: "
-                            + action.getIpmiResponseData().getClass()
-                                    .getSimpleName());
-        }
+            stateMachine.doTransition(new DefaultAck());
 
-        Rakp1ResponseData rakp1ResponseData = (Rakp1ResponseData) action
-                .getIpmiResponseData();
+            // RAKP 1
+            return request(new OpenSessionAck(cipherSuite, privilegeLevel, tag, managedSystemSessionId,
+                    username, password, bmcKey));
 
-        stateMachine.doTransition(new DefaultAck());
+        }).thenCompose(responseData -> {
 
-        // RAKP 3
-        stateMachine.doTransition(new Rakp2Ack(cipherSuite, tag, (byte) 0,
-                managedSystemSessionId, rakp1ResponseData));
+            if (!(responseData instanceof Rakp1ResponseData)) {
+                stateMachine.doTransition(new Timeout());
+                throw new CompletionException(new ConnectionException(
+                        "Response data not matching RAKP Message 2: "
+                                + responseData.getClass().getSimpleName()));
+            }
 
-        waitForResponse();
+            stateMachine.doTransition(new DefaultAck());
 
-        action = (ResponseAction) lastAction;
+            // RAKP 3
+            return request(new Rakp2Ack(cipherSuite, tag, (byte) 0, managedSystemSessionId,
+                    (Rakp1ResponseData) responseData));
 
-        if (sik == null) {
-            throw new ConnectionException("Session Integrity Key is null");
-        }
+        }).thenApply(responseData -> {
 
-        cipherSuite.initializeAlgorithms(sik);
+            if (sik == null) {
+                throw new CompletionException(new ConnectionException("Session Integrity Key is null"));
+            }
 
-        lastAction = null;
+            try {
+                cipherSuite.initializeAlgorithms(sik);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
 
-        if (!(action.getIpmiResponseData() instanceof Rakp3ResponseData)) {
-            stateMachine.doTransition(new Timeout());
-            throw new ConnectionException(
-                    "Response data not matching RAKP Message 4");
-        }
+            if (!(responseData instanceof Rakp3ResponseData)) {
+                stateMachine.doTransition(new Timeout());
+                throw new CompletionException(new ConnectionException(
+                        "Response data not matching RAKP Message 4"));
+            }
 
-        stateMachine.doTransition(new DefaultAck());
-        stateMachine.doTransition(new StartSession(cipherSuite, sessionId));
+            stateMachine.doTransition(new DefaultAck());
+            stateMachine.doTransition(new StartSession(cipherSuite, sessionId));
 
-        return sessionId;
+            return sessionId;
+        });
     }
 
     /**
@@ -542,6 +699,45 @@ public class Connection extends TimerTask implements MachineObserver {
      *             messages. If this happens session needs to be restarted.
      */
     public int sendMessage(PayloadCoder payloadCoder, boolean isOneWay) throws ConnectionException {
+        return getMessageHandler(payloadCoder).sendMessage(payloadCoder, stateMachine, managedSystemSessionId, isOneWay);
+    }
+
+    /**
+     * Sends IPMI request to the managed system, waiting for room in the
+     * window if the maximum number of messages is already in flight.
+     *
+     * @param payloadCoder
+     *            - {@link PayloadCoder} representing the request
+     * @param admissionTimeout
+     *            - maximum time in ms to wait for room in the window
+     * @return ID of the message that will be also attached to the response to
+     *         pair request with response, -1 if the window stayed full.
+     * @throws ConnectionException
+     *             when connection isn't in state where sending commands is
+     *             allowed
+     * @throws InterruptedException
+     *             when the thread was interrupted while waiting
+     */
+    public int sendMessage(PayloadCoder payloadCoder, long admissionTimeout)
+            throws ConnectionException, InterruptedException {
+        return getMessageHandler(payloadCoder).sendMessage(payloadCoder, stateMachine, managedSystemSessionId,
+                admissionTimeout);
+    }
+
+    /**
+     * Runs the task as soon as the window used by the request has room for
+     * another message, so the request can be sent without blocking.
+     *
+     * @param payloadCoder
+     *            - {@link PayloadCoder} representing the request
+     * @param task
+     *            - task that will attempt to send the request
+     */
+    public void whenReadyToSend(PayloadCoder payloadCoder, Runnable task) {
+        getMessageHandler(payloadCoder).whenReadyToSend(task);
+    }
+
+    private MessageHandler getMessageHandler(PayloadCoder payloadCoder) {
         MessageHandler messageHandler = messageHandlers.get(payloadCoder.getSupportedPayloadType());
 
         if (messageHandler == null) {
@@ -549,7 +745,7 @@ public class Connection extends TimerTask implements MachineObserver {
             messageHandler = messageHandlers.get(PayloadType.Ipmi);
         }
 
-        return messageHandler.sendMessage(payloadCoder, stateMachine, managedSystemSessionId, isOneWay);
+        return messageHandler;
     }
 
     /**
@@ -589,7 +785,7 @@ public class Connection extends TimerTask implements MachineObserver {
     public void notifyRequestListeners(IpmiPayload payload) {
         for (ConnectionListener listener : listeners) {
             if (listener != null) {
-                listener.processRequest(payload);
+                listener.processRequest(payload, handle);
             }
         }
     }
@@ -599,7 +795,10 @@ public class Connection extends TimerTask implements MachineObserver {
         if (action instanceof GetSikAction) {
             sik = ((GetSikAction) action).getSik();
         } else if (!(action instanceof MessageAction)) {
-            lastAction = action;
+            CompletableFuture<StateMachineAction> future = pendingAction;
+            if (future != null) {
+                future.complete(action);
+            }
             if (action instanceof ErrorAction) {
                 ErrorAction errorAction = (ErrorAction) action;
                 logger.error(errorAction.getException().getMessage(), errorAction.getException());
@@ -610,32 +809,67 @@ public class Connection extends TimerTask implements MachineObserver {
     }
 
 	/**
-	 * {@link TimerTask} runner - periodically sends no-op messages to keep the
-	 * session up
+	 * Keep-alive task run by the scheduler - periodically sends no-op messages
+	 * to keep the session up. If the message could not be queued, it is tried
+	 * again after {@link #KEEP_ALIVE_RETRY_DELAY} ms.
 	 */
 	@Override
 	public void run() {
+		sendKeepAlive(false);
+	}
+
+	private void sendKeepAlive(boolean retry) {
+		synchronized (keepAliveLock) {
+			if (retry) {
+				keepAliveRetry = null;
+			} else if (keepAliveRetry != null) {
+				return;
+			}
+		}
+
+		if (keepAlive == null || keepAlive.isCancelled() || !(stateMachine.getCurrent() instanceof SessionValid)) {
+			return;
+		}
+
 		int result = -1;
-		while (
-			!Thread.currentThread().isInterrupted()
-			&& result <= 0
-			&& stateMachine.getCurrent() instanceof SessionValid
-		) {
-			try {
-
-				result = sendMessage(
-					new org.sentrysoftware.ipmi.core.coding.commands.session.GetChannelAuthenticationCapabilities(
-						IpmiVersion.V20, IpmiVersion.V20,
-						((SessionValid) stateMachine.getCurrent()).getCipherSuite(), PrivilegeLevel.Callback,
-						TypeConverter.intToByte(0xe)
-					),
-					false
-				);
-
-				Thread.sleep(1000);
-
-			} catch (Exception e) {
-				logger.error(e.getMessage(), e);
+
+		try {
+			result = sendMessage(
+				new org.sentrysoftware.ipmi.core.coding.commands.session.GetChannelAuthenticationCapabilities(
+					IpmiVersion.V20, IpmiVersion.V20,
+					((SessionValid) stateMachine.getCurrent()).getCipherSuite(), PrivilegeLevel.Callback,
+					TypeConverter.intToByte(0xe)
+				),
+				false
+			);
+		} catch (Exception e) {
+			logger.error(e.getMessage(), e);
+		}
+
+		if (result <= 0) {
+			synchronized (keepAliveLock) {
+				if (!keepAlive.isCancelled() && keepAliveRetry == null) {
+					keepAliveRetry = scheduler.schedule(() -> sendKeepAlive(true), KEEP_ALIVE_RETRY_DELAY,
+							TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops the keep-alive messages scheduled by
+	 * {@link #connect(InetAddress, int, long)}, including a pending retry.
+	 */
+	private void cancelKeepAlive() {
+		if (keepAlive == null) {
+			return;
+		}
+		keepAlive.cancel(false);
+
+		synchronized (keepAliveLock) {
+			if (keepAliveRetry != null) {
+				keepAliveRetry.cancel(false);
+				keepAliveRetry = null;
 			}
 		}
 	}
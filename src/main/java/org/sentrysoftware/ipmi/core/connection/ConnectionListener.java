@@ -51,4 +51,17 @@ public interface ConnectionListener {
                          Exception exception);
 
     void processRequest(IpmiPayload payload);
+
+    /**
+     * Notifies the {@link ConnectionListener}s of a request sent by the
+     * remote system (e.g. SOL character data).
+     *
+     * @param payload
+     *            - payload of the request
+     * @param handle
+     *            - the id of the connection that received the message
+     */
+    default void processRequest(IpmiPayload payload, int handle) {
+        processRequest(payload);
+    }
 }
@@ -26,25 +26,44 @@ import org.sentrysoftware.ipmi.core.coding.commands.PrivilegeLevel;
 import org.sentrysoftware.ipmi.core.coding.commands.session.GetChannelAuthenticationCapabilitiesResponseData;
 import org.sentrysoftware.ipmi.core.coding.security.CipherSuite;
 import org.sentrysoftware.ipmi.core.common.PropertiesManager;
+import org.sentrysoftware.ipmi.core.sm.MessageDispatcher;
 import org.sentrysoftware.ipmi.core.transport.Messenger;
 import org.sentrysoftware.ipmi.core.transport.UdpListener;
-import org.sentrysoftware.ipmi.core.transport.UdpMessenger;
+import org.sentrysoftware.ipmi.core.transport.NioUdpMessenger;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 /**
  * Manages multiple {@link Connection}s
  */
 public class ConnectionManager {
     private Messenger messenger;
+    private MessageDispatcher dispatcher;
     private List<Connection> connections;
 
-    private static final AtomicInteger sessionlessTag = new AtomicInteger(0);
-    private static List<Integer> reservedTags = new ArrayList<Integer>();
+    /**
+     * Runs the message queue sweeps, keep-alive messages and timeouts of all
+     * the connections, so they do not need threads of their own.
+     */
+    private ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * Tags used by {@link #generateSessionlessTag()}.
+     */
+    private static final TagBitmap sharedSessionlessTags = new TagBitmap();
+
+    /**
+     * Tags of the messages sent outside the session, per remote endpoint.
+     */
+    private final ConcurrentMap<InetSocketAddress, TagBitmap> sessionlessTags = new ConcurrentHashMap<InetSocketAddress, TagBitmap>();
 
     /**
      * Frequency of the no-op commands that will be sent to keep up the session
@@ -57,7 +76,7 @@ public class ConnectionManager {
 	 * @param port       the port at which {@link UdpListener} will work
 	 * @param pingPeriod frequency of the no-op commands that will be sent to keep
 	 *                   up the session. 0 to disable ping requests.
-	 * @throws IOException If UdpMessenger encountered an error
+	 * @throws IOException If the messenger socket could not be opened
 	 */
 	public ConnectionManager(int port, long pingPeriod) throws IOException {
 		this(port);
@@ -69,10 +88,10 @@ public class ConnectionManager {
      *
      * @param port
      *            - the port at which {@link UdpListener} will work
-     * @throws IOException If UdpMessenger encountered an error
+     * @throws IOException If the messenger socket could not be opened
      */
     public ConnectionManager(int port) throws IOException {
-        messenger = new UdpMessenger(port);
+        messenger = new NioUdpMessenger(port);
         initialize();
     }
 
@@ -83,10 +102,10 @@ public class ConnectionManager {
      *            - the port at which {@link UdpListener} will work
      * @param address
      *            - the IP interface {@link UdpListener} will bind to
-     * @throws IOException If UdpMessenger encountered an error
+     * @throws IOException If the messenger socket could not be opened
      */
     public ConnectionManager(int port, InetAddress address) throws IOException {
-        messenger = new UdpMessenger(port, address);
+        messenger = new NioUdpMessenger(port, address);
         initialize();
     }
 
@@ -102,8 +121,9 @@ public class ConnectionManager {
     }
 
     private void initialize() {
+        dispatcher = new MessageDispatcher(messenger);
+        scheduler = createScheduler();
         connections = new ArrayList<Connection>();
-        reservedTags = new ArrayList<Integer>();
         if (pingPeriod == -1) {
             pingPeriod = Long.parseLong(PropertiesManager.getInstance().getProperty("pingPeriod"));
         }
@@ -120,37 +140,44 @@ public class ConnectionManager {
                 }
             }
         }
+        dispatcher.close();
         messenger.closeConnection();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Creates the single-threaded daemon scheduler running the periodic tasks
+     * of the connections. Cancelled tasks are removed from its queue right
+     * away.
+     */
+    static ScheduledThreadPoolExecutor createScheduler() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ipmi-connection-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * @return {@link ScheduledExecutorService} shared by all the connections
+     *         of this manager
+     */
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
     }
 
     /**
      * The tag for messages sent outside the session generated by the
      * {@link ConnectionManager}. Auto-incremented.
+     *
+     * @deprecated tags are shared by all the remote hosts. Use
+     *             {@link #generateSessionlessTag(InetAddress, int)} instead.
      */
+    @Deprecated
     public static int generateSessionlessTag() {
-        synchronized (sessionlessTag) {
-            boolean wait = true;
-            while (wait) {
-                sessionlessTag.incrementAndGet();
-                sessionlessTag.set(sessionlessTag.get() % 60);
-                synchronized (reservedTags) {
-                    if (!reservedTags.contains(sessionlessTag.get())) {
-                        wait = false;
-                    }
-                }
-                if (wait) {
-                    try {
-                        sessionlessTag.wait(1);
-                    } catch (InterruptedException e) {
-                        // TODO log
-                    }
-                }
-            }
-            synchronized (reservedTags) {
-                reservedTags.add(sessionlessTag.get());
-            }
-            return sessionlessTag.get();
-        }
+        return sharedSessionlessTags.allocate();
     }
 
     /**
@@ -158,11 +185,61 @@ public class ConnectionManager {
      *
      * @param tag
      *            - tag to free
+     * @deprecated use {@link #freeTag(InetAddress, int, int)} instead.
      */
+    @Deprecated
     public static void freeTag(int tag) {
-        synchronized (reservedTags) {
-            reservedTags.remove((Integer) tag);
+        sharedSessionlessTags.release(tag);
+    }
+
+    /**
+     * Generates the tag for a message sent outside the session to the given
+     * remote endpoint. The tag is unique among the messages in flight to that
+     * endpoint only, so handshakes with different hosts do not compete for
+     * tags.
+     *
+     * @param address
+     *            - {@link InetAddress} of the remote host
+     * @param port
+     *            - remote UDP port
+     * @return tag from range 0-59
+     * @throws InterruptedException
+     *             when the thread is interrupted while all the tags of the
+     *             endpoint are in use
+     */
+    public int generateSessionlessTag(InetAddress address, int port) throws InterruptedException {
+        return getSessionlessTags(address, port).allocateInterruptibly();
+    }
+
+    /**
+     * Frees the sessionless tag of the remote endpoint for further use
+     *
+     * @param address
+     *            - {@link InetAddress} of the remote host
+     * @param port
+     *            - remote UDP port
+     * @param tag
+     *            - tag to free
+     */
+    public void freeTag(InetAddress address, int port, int tag) {
+        TagBitmap tags = sessionlessTags.get(new InetSocketAddress(address, port));
+        if (tags != null) {
+            tags.release(tag);
+        }
+    }
+
+    private TagBitmap getSessionlessTags(InetAddress address, int port) {
+        InetSocketAddress endpoint = new InetSocketAddress(address, port);
+
+        TagBitmap tags = sessionlessTags.get(endpoint);
+        if (tags == null) {
+            TagBitmap newTags = new TagBitmap();
+            tags = sessionlessTags.putIfAbsent(endpoint, newTags);
+            if (tags == null) {
+                tags = newTags;
+            }
         }
+        return tags;
     }
 
     /**
@@ -170,16 +247,66 @@ public class ConnectionManager {
      *
      * @param index
      *            - index of the connection to return
+     * @return {@link Connection} or null if it was closed with
+     *         {@link #closeConnection(int)}
      */
     public Connection getConnection(int index) {
-        return connections.get(index);
+        synchronized (connections) {
+            return connections.get(index);
+        }
     }
 
     /**
-     * Closes the connection with the given index.
+     * Returns the open {@link Connection} identified by index.
+     *
+     * @param index
+     *            - index of the connection to return
+     * @throws ConnectionException
+     *             when the connection was closed
+     */
+    private Connection getOpenConnection(int index) throws ConnectionException {
+        Connection connection = getConnection(index);
+        if (connection == null) {
+            throw new ConnectionException("Connection " + index + " is closed");
+        }
+        return connection;
+    }
+
+    /**
+     * Closes the connection with the given index and releases it, so
+     * long-running managers do not accumulate closed connections. The index
+     * is never given to another connection, so closing it again, or using a
+     * stale handle, does not reach another host. The sessionless tags of the
+     * remote endpoint are dropped with its last connection.
      */
     public void closeConnection(int index) {
-        connections.get(index).disconnect();
+        Connection connection;
+        synchronized (connections) {
+            connection = connections.set(index, null);
+            if (connection != null
+                    && !hasConnection(connection.getRemoteMachineAddress(), connection.getRemoteMachinePort())) {
+                sessionlessTags.remove(new InetSocketAddress(connection.getRemoteMachineAddress(),
+                        connection.getRemoteMachinePort()));
+            }
+        }
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Must be invoked with the lock of {@link #connections} held.
+     *
+     * @return whether a connection to the remote endpoint is registered
+     */
+    private boolean hasConnection(InetAddress address, int port) {
+        for (Connection connection : connections) {
+            if (connection != null && address.equals(connection.getRemoteMachineAddress())
+                    && connection.getRemoteMachinePort() == port) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -216,13 +343,7 @@ public class ConnectionManager {
      * - when properties file was not found
      */
     public int createConnection(InetAddress address, int port, int pingPeriod, boolean skipCiphers) throws IOException {
-        Connection connection = new Connection(messenger, 0);
-        connection.connect(address, port, pingPeriod, skipCiphers);
-
-        synchronized (connections) {
-            connections.add(connection);
-            return connections.size() - 1;
-        }
+        return openConnection(address, port, pingPeriod, skipCiphers);
     }
 
     /**
@@ -238,13 +359,7 @@ public class ConnectionManager {
      *             - when properties file was not found
      */
     public int createConnection(InetAddress address, int port, int pingPeriod) throws IOException {
-        Connection connection = new Connection(messenger, 0);
-        connection.connect(address, port, pingPeriod);
-
-        synchronized (connections) {
-            connections.add(connection);
-            return connections.size() - 1;
-        }
+        return openConnection(address, port, pingPeriod, false);
     }
 
     /**
@@ -258,14 +373,7 @@ public class ConnectionManager {
      *             when properties file was not found
      */
     public int createConnection(InetAddress address, int port) throws IOException {
-
-        synchronized (connections) {
-            Connection connection = new Connection(messenger,
-                    connections.size());
-            connection.connect(address, port, pingPeriod);
-            connections.add(connection);
-            return connections.size() - 1;
-        }
+        return openConnection(address, port, pingPeriod, false);
     }
 
     /**
@@ -279,11 +387,22 @@ public class ConnectionManager {
      * when properties file was not found
      */
     public int createConnection(InetAddress address, int port, boolean skipCiphers) throws IOException {
+        return openConnection(address, port, pingPeriod, skipCiphers);
+    }
+
+    /**
+     * Creates and initiates {@link Connection} to the remote host in a new
+     * index. Indices released by {@link #closeConnection(int)} are not
+     * reused, as the handles given out for them may still be in use.
+     */
+    private int openConnection(InetAddress address, int port, long pingPeriod, boolean skipCiphers)
+            throws IOException {
         synchronized (connections) {
-            Connection connection = new Connection(messenger, connections.size());
+            int index = connections.size();
+            Connection connection = new Connection(messenger, dispatcher, scheduler, index);
             connection.connect(address, port, pingPeriod, skipCiphers);
             connections.add(connection);
-            return connections.size() - 1;
+            return index;
         }
     }
 
@@ -303,15 +422,18 @@ public class ConnectionManager {
      */
     public List<CipherSuite> getAvailableCipherSuites(int connection)
             throws Exception {
-        int tag = generateSessionlessTag();
+        Connection remote = getOpenConnection(connection);
+        InetAddress address = remote.getRemoteMachineAddress();
+        int port = remote.getRemoteMachinePort();
+        int tag = generateSessionlessTag(address, port);
         List<CipherSuite> suites;
         try {
-            suites = connections.get(connection).getAvailableCipherSuites(tag);
+            suites = remote.getAvailableCipherSuites(tag);
         } catch (Exception e) {
-            freeTag(tag);
+            freeTag(address, port, tag);
             throw e;
         }
-        freeTag(tag);
+        freeTag(address, port, tag);
         return suites;
     }
 
@@ -336,17 +458,19 @@ public class ConnectionManager {
     public GetChannelAuthenticationCapabilitiesResponseData getChannelAuthenticationCapabilities(
             int connection, CipherSuite cipherSuite,
             PrivilegeLevel requestedPrivilegeLevel) throws Exception {
-        int tag = generateSessionlessTag();
+        Connection remote = getOpenConnection(connection);
+        InetAddress address = remote.getRemoteMachineAddress();
+        int port = remote.getRemoteMachinePort();
+        int tag = generateSessionlessTag(address, port);
         GetChannelAuthenticationCapabilitiesResponseData responseData;
         try {
-            responseData = connections.get(connection)
-                    .getChannelAuthenticationCapabilities(tag, cipherSuite,
-                            requestedPrivilegeLevel);
+            responseData = remote.getChannelAuthenticationCapabilities(tag, cipherSuite,
+                    requestedPrivilegeLevel);
         } catch (Exception e) {
-            freeTag(tag);
+            freeTag(address, port, tag);
             throw e;
         }
-        freeTag(tag);
+        freeTag(address, port, tag);
         return responseData;
     }
 
@@ -379,15 +503,18 @@ public class ConnectionManager {
             PrivilegeLevel privilegeLevel, String username, String password,
             byte[] bmcKey) throws Exception {
         int sessionId;
-        int tag = generateSessionlessTag();
+        Connection remote = getOpenConnection(connection);
+        InetAddress address = remote.getRemoteMachineAddress();
+        int port = remote.getRemoteMachinePort();
+        int tag = generateSessionlessTag(address, port);
         try {
-            sessionId = connections.get(connection).startSession(tag, cipherSuite,
+            sessionId = remote.startSession(tag, cipherSuite,
                     privilegeLevel, username, password, bmcKey);
         } catch (Exception e) {
-            freeTag(tag);
+            freeTag(address, port, tag);
             throw e;
         }
-        freeTag(tag);
+        freeTag(address, port, tag);
 
         return sessionId;
     }
@@ -399,8 +526,10 @@ public class ConnectionManager {
      *            - index of the {@link Connection} to listen to
      * @param listener
      *            - {@link ConnectionListener} to processResponse
+     * @throws ConnectionException
+     *             when the connection was closed
      */
-    public void registerListener(int connection, ConnectionListener listener) {
-        connections.get(connection).registerListener(listener);
+    public void registerListener(int connection, ConnectionListener listener) throws ConnectionException {
+        getOpenConnection(connection).registerListener(listener);
     }
 }
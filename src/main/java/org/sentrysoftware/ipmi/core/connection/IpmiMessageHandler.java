@@ -25,6 +25,8 @@ package org.sentrysoftware.ipmi.core.connection;
 import org.sentrysoftware.ipmi.core.coding.PayloadCoder;
 import org.sentrysoftware.ipmi.core.coding.commands.ResponseData;
 import org.sentrysoftware.ipmi.core.coding.commands.session.GetChannelAuthenticationCapabilities;
+import org.sentrysoftware.ipmi.core.coding.payload.CompletionCode;
+import org.sentrysoftware.ipmi.core.coding.payload.lan.IPMIException;
 import org.sentrysoftware.ipmi.core.coding.payload.lan.IpmiLanMessage;
 import org.sentrysoftware.ipmi.core.coding.protocol.Ipmiv20Message;
 
@@ -73,8 +75,12 @@ public class IpmiMessageHandler extends MessageHandler {
 
                 try {
                     ResponseData responseData = coder.getResponseData(message);
+                    messageQueue.onAnswer();
                     connection.notifyResponseListeners(connection.getHandle(), tag, responseData, null);
                 } catch (Exception e) {
+                    if (isBusy(e)) {
+                        messageQueue.onBusy();
+                    }
                     connection.notifyResponseListeners(connection.getHandle(), tag, null, e);
                 }
                 messageQueue.remove(lanMessagePayload.getSequenceNumber());
@@ -82,4 +88,17 @@ public class IpmiMessageHandler extends MessageHandler {
         }
     }
 
+    /**
+     * Checks if the remote system rejected the request because it has too
+     * many requests to handle.
+     */
+    private static boolean isBusy(Exception e) {
+        if (!(e instanceof IPMIException)) {
+            return false;
+        }
+        CompletionCode completionCode = ((IPMIException) e).getCompletionCode();
+
+        return completionCode == CompletionCode.NodeBusy || completionCode == CompletionCode.InsufficientResources;
+    }
+
 }
@@ -44,7 +44,8 @@ public abstract class MessageHandler {
     protected final Connection connection;
 
     public MessageHandler(Connection connection, int timeout, int minSequenceNumber, int maxSequenceNumber) {
-        this.messageQueue = new MessageQueue(connection, timeout, minSequenceNumber, maxSequenceNumber);
+        this.messageQueue = new MessageQueue(connection, timeout, minSequenceNumber, maxSequenceNumber,
+                connection.getScheduler());
         this.connection = connection;
     }
 
@@ -75,6 +76,45 @@ public abstract class MessageHandler {
         return seq;
     }
 
+    /**
+     * Sends message encoded by given {@link PayloadCoder} to the remote system,
+     * waiting for room in the window if it is full.
+     *
+     * @param payloadCoder
+     *          instance of {@link PayloadCoder} that will produce payload for the message being sent.
+     * @param stateMachine
+     *          {@link StateMachine} for the currenr connection.
+     * @param sessionId
+     *          ID of the current session.
+     * @param admissionTimeout
+     *          maximum time in ms to wait for room in the window
+     * @return sequence number of the sent message, -1 if the window stayed full
+     * @throws ConnectionException when could not send message due to some problems with connection
+     * @throws InterruptedException when the thread was interrupted while waiting
+     */
+    public int sendMessage(PayloadCoder payloadCoder, StateMachine stateMachine, int sessionId, long admissionTimeout)
+            throws ConnectionException, InterruptedException {
+        validateSessionState(stateMachine);
+
+        int seq = messageQueue.add(payloadCoder, admissionTimeout);
+        if (seq > 0) {
+            stateMachine.doTransition(new Sendv20Message(payloadCoder, sessionId, seq, connection.getNextSessionSequenceNumber()));
+        }
+
+        return seq;
+    }
+
+    /**
+     * Runs the task once the window has room for another message.
+     *
+     * @param task
+     *          task that will attempt to send the message
+     * @see MessageQueue#whenAvailable(Runnable)
+     */
+    public void whenReadyToSend(Runnable task) {
+        messageQueue.whenAvailable(task);
+    }
+
     /**
      * Attempts to retry sending message with given tag, assuming that this message exists in message queue.
      *
@@ -134,6 +174,10 @@ public abstract class MessageHandler {
         messageQueue.setTimeout(timeout);
     }
 
+    public void setWindowSize(int windowSize) {
+        messageQueue.setWindowSize(windowSize);
+    }
+
     public void tearDown() {
         messageQueue.tearDown();
     }
@@ -55,6 +55,22 @@ public class SessionManager {
 
     public static Session establishSession(IpmiConnector connector, String remoteHost, int remotePort, String user, String password,
                                            CipherSuiteSelectionHandler cipherSuiteSelectionHandler) throws SessionException {
+        return establishSession(connector, remoteHost, remotePort, user, password, cipherSuiteSelectionHandler, true);
+    }
+
+    /**
+     * Establishes a session like {@link #establishSession(IpmiConnector, String, int, String, String, CipherSuiteSelectionHandler)},
+     * through a connector shared with other sessions: on failure, only the new connection is closed and the connector remains usable.
+     */
+    public static Session establishSharedSession(IpmiConnector connector, String remoteHost, int remotePort, String user,
+                                                 String password, CipherSuiteSelectionHandler cipherSuiteSelectionHandler)
+            throws SessionException {
+        return establishSession(connector, remoteHost, remotePort, user, password, cipherSuiteSelectionHandler, false);
+    }
+
+    private static Session establishSession(IpmiConnector connector, String remoteHost, int remotePort, String user, String password,
+                                            CipherSuiteSelectionHandler cipherSuiteSelectionHandler, boolean tearDownOnFailure)
+            throws SessionException {
         ConnectionHandle handle = null;
 
         try {
@@ -71,17 +87,22 @@ public class SessionManager {
 
             return connector.openSession(handle, user, password, null);
         } catch (Exception e) {
-            closeConnection(connector, handle);
+            closeConnection(connector, handle, tearDownOnFailure);
 
             throw new SessionException("Cannot create new session due to exception", e);
         }
     }
 
-    private static void closeConnection(IpmiConnector connector, ConnectionHandle handle) {
+    private static void closeConnection(IpmiConnector connector, ConnectionHandle handle, boolean tearDown) {
         try {
             if (connector != null && handle != null) {
                 connector.closeSession(handle);
-                connector.tearDown();
+
+                if (tearDown) {
+                    connector.tearDown();
+                } else {
+                    connector.closeConnection(handle);
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot close connection after exception thrown during session establishment.", e);
@@ -0,0 +1,165 @@
+package org.sentrysoftware.ipmi.core.connection;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free allocator of message tags backed by a single bitmap. Bit n is set
+ * while the tag n is in use. Tags are handed out in a round-robin manner, so a
+ * freed tag is not reused immediately and late responses to the previous
+ * message are not mistaken for the new one.
+ */
+public class TagBitmap {
+
+    /**
+     * Number of available tags. Tags range from 0 to TAG_COUNT - 1.
+     */
+    public static final int TAG_COUNT = 60;
+
+    private static final long ALL_TAGS = (1L << TAG_COUNT) - 1;
+
+    private final AtomicLong reserved = new AtomicLong();
+
+    /**
+     * Threads waiting for a tag while all the tags are in use. They are parked
+     * until a tag is released.
+     */
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<Thread>();
+
+    /**
+     * Tag from which the search for a free tag starts.
+     */
+    private volatile int next;
+
+    /**
+     * Reserves a free tag. Waits if all tags are currently in use, even if
+     * the invoking thread is interrupted. The interrupt status is kept.
+     *
+     * @return reserved tag
+     */
+    public int allocate() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return allocateInterruptibly();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reserves a free tag. Waits if all tags are currently in use.
+     *
+     * @return reserved tag
+     * @throws InterruptedException
+     *             when the invoking thread is interrupted while waiting
+     */
+    public int allocateInterruptibly() throws InterruptedException {
+        while (true) {
+            long current = reserved.get();
+            long free = ~current & ALL_TAGS;
+
+            if (free == 0) {
+                awaitRelease();
+                continue;
+            }
+
+            long candidates = free & (-1L << next);
+            int tag = Long.numberOfTrailingZeros(candidates != 0 ? candidates : free);
+
+            if (reserved.compareAndSet(current, current | (1L << tag))) {
+                next = (tag + 1) % TAG_COUNT;
+                if ((free & ~(1L << tag)) != 0) {
+                    // several tags may have been released at once
+                    wakeUpWaiter();
+                }
+                return tag;
+            }
+        }
+    }
+
+    /**
+     * Parks the invoking thread until a tag is released.
+     *
+     * @throws InterruptedException
+     *             when the thread is interrupted, as parking would then
+     *             return immediately
+     */
+    private void awaitRelease() throws InterruptedException {
+        Thread current = Thread.currentThread();
+        waiters.add(current);
+
+        try {
+            // a tag may have been released before the thread was queued
+            if ((~reserved.get() & ALL_TAGS) == 0) {
+                LockSupport.park(this);
+            }
+        } finally {
+            waiters.remove(current);
+        }
+
+        if (Thread.interrupted()) {
+            // another waiter may take the tag this thread was woken up for
+            wakeUpWaiter();
+            throw new InterruptedException();
+        }
+    }
+
+    private void wakeUpWaiter() {
+        Thread waiter = waiters.peek();
+
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * Frees the tag for further use.
+     *
+     * @param tag
+     *            - tag to free
+     */
+    public void release(int tag) {
+        if (tag < 0 || tag >= TAG_COUNT) {
+            return;
+        }
+
+        long current;
+        do {
+            current = reserved.get();
+        } while (!reserved.compareAndSet(current, current & ~(1L << tag)));
+
+        wakeUpWaiter();
+    }
+}
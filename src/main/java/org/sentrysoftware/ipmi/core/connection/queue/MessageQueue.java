@@ -29,23 +29,91 @@ import org.sentrysoftware.ipmi.core.connection.ConnectionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Date;
-import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Queue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Queues messages to send and checks for timeouts.
+ * Queues messages to send and checks for timeouts.<br>
+ * Messages are stored in a fixed array indexed by their sequence number, so
+ * adding, finding and removing a message does not depend on the number of
+ * messages in flight. The order in which messages were added, needed by the
+ * sliding window, is kept in a ring of sequence numbers.<br>
+ * The number of messages in flight is limited by a window, configurable up to
+ * the number of available sequence numbers. The window is halved when the
+ * remote system reports it is busy and grows back by one message after each
+ * full window of answers.
  */
-public class MessageQueue extends TimerTask {
+public class MessageQueue implements Runnable {
+
+    /**
+     * Messages in flight indexed by their sequence number.
+     */
+    private final QueueElement[] slots;
+
+    /**
+     * Sequence numbers of the messages in the order they were added.
+     */
+    private final int[] order;
+
+    /**
+     * Position in {@link #order} of each message, indexed by sequence number.
+     */
+    private final int[] positions;
+
+    private int head;
+    private int size;
+
+    /**
+     * Bit n is set when the tag n is used by a message in the queue.
+     */
+    private long reservedTags;
+
+    /**
+     * Bit n is set when n is a valid tag for this queue.
+     */
+    private final long validTags;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when the window may have room for another message. A
+     * {@link Condition} rather than {@link Object#wait()} so that waiting
+     * virtual threads do not pin their carrier thread.
+     */
+    private final Condition windowAvailable = lock.newCondition();
+
+    /**
+     * Tasks waiting for room in the window, run in order when messages leave
+     * the queue.
+     */
+    private final Queue<Runnable> admissionQueue = new ArrayDeque<Runnable>();
+
+    /**
+     * Configured maximum number of messages in flight.
+     */
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+
+    /**
+     * Number of messages currently allowed in flight, between 1 and
+     * {@link #windowSize}.
+     */
+    private int currentWindowSize = DEFAULT_WINDOW_SIZE;
+
+    /**
+     * Answers received since the window was last resized.
+     */
+    private int answersSinceResize;
 
-    private List<QueueElement> queue;
     private int timeout;
-    private Timer timer;
+    private ScheduledFuture<?> sweep;
     private Connection connection;
     private int lastSequenceNumber;
-    private Object lastSequenceNumberLock = new Object();
     private int minSequenceNumber = 1;
     private int sequenceNumberUpperBound = 64;
 
@@ -57,11 +125,11 @@ public class MessageQueue extends TimerTask {
     private static int cleaningFrequency = 500;
 
     /**
-     * Size of the queue determined by IPMI sliding window algorithm
+     * Default size of the window determined by IPMI sliding window algorithm
      * specification. <br>
-     * When queue size is 16, BMC drops some of the messages under heavy load.
+     * When queue size is 16, some BMCs drop messages under heavy load.
      */
-    private static final int QUEUE_SIZE = 8;
+    public static final int DEFAULT_WINDOW_SIZE = 8;
 
     public int getTimeout() {
         return timeout;
@@ -71,16 +139,111 @@ public class MessageQueue extends TimerTask {
         this.timeout = timeout;
     }
 
-    public MessageQueue(Connection connection, int timeout, int minSequenceNumber, int maxSequenceNumber) {
+    /**
+     * @return configured maximum number of messages in flight
+     */
+    public int getWindowSize() {
+        lock.lock();
+        try {
+            return windowSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the maximum number of messages in flight. The value is bounded by
+     * the number of sequence numbers available to the queue.
+     *
+     * @param windowSize
+     *            - number of messages that can wait for an answer at the same
+     *            time
+     */
+    public void setWindowSize(int windowSize) {
+        lock.lock();
+        try {
+            this.windowSize = Math.max(1, Math.min(windowSize, Long.bitCount(validTags)));
+            currentWindowSize = this.windowSize;
+            answersSinceResize = 0;
+            windowAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        runAdmissionTasks();
+    }
+
+    /**
+     * Halves the number of messages allowed in flight. Invoked when the remote
+     * system reports it is busy or lacks resources.
+     */
+    public void onBusy() {
+        lock.lock();
+        try {
+            currentWindowSize = Math.max(1, currentWindowSize / 2);
+            answersSinceResize = 0;
+            logger.debug("Remote system busy, window reduced to " + currentWindowSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts a successful answer. After a full window of answers, allows one
+     * more message in flight, up to the configured window size.
+     */
+    public void onAnswer() {
+        lock.lock();
+        try {
+            if (currentWindowSize < windowSize && ++answersSinceResize >= currentWindowSize) {
+                ++currentWindowSize;
+                answersSinceResize = 0;
+                windowAvailable.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Creates the queue and schedules the timeout checks.
+     *
+     * @param connection
+     *            - {@link Connection} notified of timed out messages
+     * @param timeout
+     *            - time in ms after which a message times out
+     * @param minSequenceNumber
+     *            - lowest sequence number used as a tag
+     * @param maxSequenceNumber
+     *            - highest sequence number used as a tag, at most 63
+     * @param scheduler
+     *            - {@link ScheduledExecutorService} running the timeout
+     *            checks, shared by the connections
+     */
+    public MessageQueue(Connection connection, int timeout, int minSequenceNumber, int maxSequenceNumber,
+            ScheduledExecutorService scheduler) {
+        if (minSequenceNumber < 1 || maxSequenceNumber > 63 || minSequenceNumber > maxSequenceNumber) {
+            throw new IllegalArgumentException("Sequence numbers must be in range 1-63");
+        }
         this.minSequenceNumber = minSequenceNumber;
         sequenceNumberUpperBound = maxSequenceNumber + 1;
-        reservedTags = new ArrayList<Integer>();
+        validTags = (-1L >>> (63 - maxSequenceNumber)) & (-1L << minSequenceNumber);
+        slots = new QueueElement[sequenceNumberUpperBound];
+        order = new int[sequenceNumberUpperBound];
+        positions = new int[sequenceNumberUpperBound];
         lastSequenceNumber = minSequenceNumber - 1;
         this.connection = connection;
-        queue = new ArrayList<QueueElement>();
         setTimeout(timeout);
-        timer = new Timer();
-        timer.schedule(this, cleaningFrequency, cleaningFrequency);
+        sweep = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    MessageQueue.this.run();
+                } catch (RuntimeException e) {
+                    // keep the sweep scheduled on the shared scheduler
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        }, cleaningFrequency, cleaningFrequency, TimeUnit.MILLISECONDS);
     }
 
     private int incrementSequenceNumber(int currentSequenceNumber) {
@@ -97,35 +260,45 @@ public class MessageQueue extends TimerTask {
      * Stops the MessageQueue
      */
     public void tearDown() {
-        timer.cancel();
+        sweep.cancel(false);
     }
 
-    private List<Integer> reservedTags;
-
     /**
-     * Check if the tag is reserved.
+     * Finds the first tag that is not reserved, starting from the given one
+     * and wrapping around.
+     *
+     * @return free tag or -1 if all tags are reserved
      */
-    private synchronized boolean isReserved(int tag) {
-        return reservedTags.contains(tag);
+    private int nextFreeTag(int from) {
+        long free = ~reservedTags & validTags;
+
+        if (free == 0) {
+            return -1;
+        }
+
+        long candidates = free & (-1L << from);
+
+        return Long.numberOfTrailingZeros(candidates != 0 ? candidates : free);
     }
 
     /**
-     * Reserves given tag for the use of the invoker.
-     *
-     * @param tag
-     *            - tag to reserve
-     * @return true if tag was reserved successfully, false otherwise
+     * Returns the message with the given tag, including the already answered
+     * ones that still wait for the older messages to leave the queue.
      */
-    private synchronized boolean reserveTag(int tag) {
-        if (isReserved(tag)) {
-            reservedTags.add(tag);
-            return true;
-        }
-        return false;
+    private QueueElement element(int tag) {
+        return tag >= 0 && tag < slots.length ? slots[tag] : null;
     }
 
-    private synchronized void releaseTag(int tag) {
-        reservedTags.remove((Integer) tag);
+    /**
+     * Removes the oldest message from the queue and releases its tag.
+     */
+    private void removeHead() {
+        int tag = order[head];
+        slots[tag] = null;
+        reservedTags &= ~(1L << tag);
+        head = (head + 1) % order.length;
+        --size;
+        windowAvailable.signalAll();
     }
 
     /**
@@ -137,44 +310,123 @@ public class MessageQueue extends TimerTask {
      */
     public int add(PayloadCoder request) {
         run();
-        boolean first = true;
-        synchronized (queue) {
-            synchronized (lastSequenceNumberLock) {
-                if (queue.size() < QUEUE_SIZE) {
-                    int sequenceNumber = incrementSequenceNumber(lastSequenceNumber);
+        lock.lock();
+        try {
+            return tryAdd(request);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-                    while (isReserved(sequenceNumber)) {
-                        sequenceNumber = incrementSequenceNumber(sequenceNumber);
+    /**
+     * Adds request to the queue, waiting for room in the window if needed.
+     *
+     * @param request
+     *            - request to add
+     * @param timeout
+     *            - maximum time to wait in ms
+     * @return Sequence number of the message if it was added to the queue
+     *         before the timeout, -1 otherwise.
+     * @throws InterruptedException
+     *             when the thread was interrupted while waiting
+     */
+    public int add(PayloadCoder request, long timeout) throws InterruptedException {
+        run();
+        long deadline = System.currentTimeMillis() + timeout;
+        lock.lock();
+        try {
+            int sequenceNumber = tryAdd(request);
+            long remaining = timeout;
+
+            while (sequenceNumber < 0 && remaining > 0) {
+                windowAvailable.await(remaining, TimeUnit.MILLISECONDS);
+                sequenceNumber = tryAdd(request);
+                remaining = deadline - System.currentTimeMillis();
+            }
 
-                        if (!first) {
-                            try {
-                                lastSequenceNumberLock.wait(1);
-                            } catch (InterruptedException e) {
-                                // TODO log
-                            }
-                        }
+            return sequenceNumber;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-                        if (sequenceNumber == lastSequenceNumber) {
-                            //we checked all available sequence numbers, so return -1 (no available sequence numbers)
-                            return -1;
-                        }
+    /**
+     * Runs the task as soon as the window has room for another message, in
+     * the order the tasks were submitted. The task runs in the invoking
+     * thread if there is room already, otherwise in the thread that removes a
+     * message from the queue.
+     *
+     * @param task
+     *            - task that will attempt to {@link #add(PayloadCoder)} the
+     *            message
+     */
+    public void whenAvailable(Runnable task) {
+        lock.lock();
+        try {
+            if (size >= currentWindowSize || !admissionQueue.isEmpty()) {
+                admissionQueue.add(task);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        task.run();
+    }
 
-                        first = false;
-                    }
+    /**
+     * Runs the admission tasks that fit in the window. Must not be invoked
+     * while holding the lock.
+     */
+    private void runAdmissionTasks() {
+        while (true) {
+            Runnable task;
+
+            lock.lock();
+            try {
+                if (admissionQueue.isEmpty() || size >= currentWindowSize) {
+                    return;
+                }
+                task = admissionQueue.poll();
+            } finally {
+                lock.unlock();
+            }
 
-                    reserveTag(sequenceNumber);
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+    }
 
-                    lastSequenceNumber = sequenceNumber;
+    /**
+     * Adds request to the queue if the window has room. Must be invoked while
+     * holding the lock.
+     */
+    private int tryAdd(PayloadCoder request) {
+        if (size >= currentWindowSize) {
+            return -1;
+        }
 
-                    QueueElement element = new QueueElement(sequenceNumber, request);
+        int sequenceNumber = nextFreeTag(incrementSequenceNumber(lastSequenceNumber));
 
-                    queue.add(element);
-                    return sequenceNumber;
-                }
-            }
+        if (sequenceNumber < 0) {
+            // no available sequence numbers
+            return -1;
         }
-        return -1;
 
+        reservedTags |= 1L << sequenceNumber;
+
+        lastSequenceNumber = sequenceNumber;
+
+        slots[sequenceNumber] = new QueueElement(sequenceNumber, request);
+
+        int position = (head + size) % order.length;
+        order[position] = sequenceNumber;
+        positions[sequenceNumber] = position;
+        ++size;
+
+        return sequenceNumber;
     }
 
     /**
@@ -182,29 +434,26 @@ public class MessageQueue extends TimerTask {
      */
     public void remove(int tag) {
         run();
-        synchronized (queue) {
-            int i = 0;
-            int index = -1;
-            for (QueueElement element : queue) {
-                if (element.getId() == tag) {
-                    index = i;
-                    break;
-                }
-                ++i;
+        lock.lock();
+        try {
+            QueueElement element = element(tag);
+
+            if (element == null) {
+                return;
             }
-            if (index == 0) {
-                queue.remove(0);
-                releaseTag(tag);
-                while (!queue.isEmpty() && queue.get(0).getRequest() == null) {
-                    int additionalTag = queue.get(0).getId();
-                    queue.remove(0);
-                    releaseTag(additionalTag);
+
+            if (order[head] == tag) {
+                removeHead();
+                while (size > 0 && slots[order[head]].getRequest() == null) {
+                    removeHead();
                 }
-            } else if (index > 0) {
-                queue.get(index).setRequest(null);
+            } else {
+                element.setRequest(null);
             }
-
+        } finally {
+            lock.unlock();
         }
+        runAdmissionTasks();
     }
 
     /**
@@ -213,41 +462,49 @@ public class MessageQueue extends TimerTask {
      * @param index
      */
     public void removeAt(int index) {
-        if (index >= queue.size()) {
-            throw new IndexOutOfBoundsException("Index out of bounds : "
-                    + index);
+        int tag;
+
+        lock.lock();
+        try {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index out of bounds : "
+                        + index);
+            }
+            tag = order[(head + index) % order.length];
+        } finally {
+            lock.unlock();
         }
 
-        remove(queue.get(index).getId());
+        remove(tag);
     }
 
     /**
      * Checks if queue contains message with the given sequence number.
      */
     public boolean containsId(int sequenceNumber) {
-        synchronized (queue) {
-
-            for (QueueElement element : queue) {
-                if (element.getId() == sequenceNumber
-                        && element.getRequest() != null) {
-                    return true;
-                }
-            }
+        lock.lock();
+        try {
+            QueueElement element = element(sequenceNumber);
 
+            return element != null && element.getRequest() != null;
+        } finally {
+            lock.unlock();
         }
-        return false;
     }
 
     /**
      * Returns valid session sequence number that cannot be used as a tag though
      */
     public int getSequenceNumber() {
-        synchronized (lastSequenceNumberLock) {
+        lock.lock();
+        try {
             int sequenceNumber = incrementSequenceNumber(lastSequenceNumber);
 
             lastSequenceNumber = sequenceNumber;
 
             return sequenceNumber;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -256,14 +513,14 @@ public class MessageQueue extends TimerTask {
      * no message with the given tag is currently in the queue.
      */
     public PayloadCoder getMessageFromQueue(int tag) {
-        synchronized (queue) {
-            for (QueueElement element : queue) {
-                if (element.getId() == tag && element.getRequest() != null) {
-                    return element.getRequest();
-                }
-            }
+        lock.lock();
+        try {
+            QueueElement element = element(tag);
+
+            return element != null ? element.getRequest() : null;
+        } finally {
+            lock.unlock();
         }
-        return null;
     }
 
     /**
@@ -271,16 +528,18 @@ public class MessageQueue extends TimerTask {
      * queue or -1 if no message with the given tag is currently in the queue.
      */
     public int getMessageIndexFromQueue(int tag) {
-        synchronized (queue) {
-            int i = 0;
-            for (QueueElement element : queue) {
-                if (element.getId() == tag && element.getRequest() != null) {
-                    return i;
-                }
-                ++i;
+        lock.lock();
+        try {
+            QueueElement element = element(tag);
+
+            if (element == null || element.getRequest() == null) {
+                return -1;
             }
+
+            return (positions[tag] - head + order.length) % order.length;
+        } finally {
+            lock.unlock();
         }
-        return -1;
     }
 
     /**
@@ -291,14 +550,14 @@ public class MessageQueue extends TimerTask {
      */
     @Deprecated
     public int getMessageRetries(int tag) {
-        synchronized (queue) {
-            for (QueueElement element : queue) {
-                if (element.getId() == tag && element.getRequest() != null) {
-                    return element.getRetries();
-                }
-            }
+        lock.lock();
+        try {
+            QueueElement element = element(tag);
+
+            return element != null && element.getRequest() != null ? element.getRetries() : -1;
+        } finally {
+            lock.unlock();
         }
-        return -1;
     }
 
     /**
@@ -309,37 +568,38 @@ public class MessageQueue extends TimerTask {
      *            Tag of the message to find
      */
     public int getMessageSequenceNumber(int tag) {
-        synchronized (queue) {
-            for (QueueElement element : queue) {
-                if (element.getId() == tag && element.getRequest() != null) {
-                    return element.getId();
-                }
-            }
+        lock.lock();
+        try {
+            QueueElement element = element(tag);
+
+            return element != null && element.getRequest() != null ? element.getId() : -1;
+        } finally {
+            lock.unlock();
         }
-        return -1;
     }
 
     /**
-     * {@link TimerTask} runner - periodically checks queue for timed out
+     * Sweep run by the scheduler - periodically checks queue for timed out
      * messages.
      */
     @Override
     public void run() {
-        if (queue != null) {
-            synchronized (queue) {
-                boolean process = true;
-                while (process && !queue.isEmpty()) {
-                    QueueElement oldestQueueElement = queue.get(0);
-                    boolean done = oldestQueueElement.getRequest() == null;
-
-                    if (messageJustTimedOut(oldestQueueElement) || done) {
-                        processObsoleteMessage(oldestQueueElement, done);
-                    } else {
-                        process = false;
-                    }
+        lock.lock();
+        try {
+            while (size > 0) {
+                QueueElement oldestQueueElement = slots[order[head]];
+                boolean done = oldestQueueElement.getRequest() == null;
+
+                if (messageJustTimedOut(oldestQueueElement) || done) {
+                    processObsoleteMessage(oldestQueueElement, done);
+                } else {
+                    break;
                 }
             }
+        } finally {
+            lock.unlock();
         }
+        runAdmissionTasks();
     }
 
     private boolean messageJustTimedOut(QueueElement oldestQueueElement) {
@@ -353,9 +613,8 @@ public class MessageQueue extends TimerTask {
         boolean previouslyTimedOut = message.isTimedOut();
 
         if (previouslyTimedOut || done) {
-            queue.remove(0);
+            removeHead();
             logger.info("Removing message after timeout, tag: " + tag);
-            releaseTag(tag);
         } else {
             message.makeTimedOut();
             message.refreshTimestamp();
@@ -0,0 +1,258 @@
+package org.sentrysoftware.ipmi.core.sm;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import org.sentrysoftware.ipmi.core.coding.protocol.AuthenticationType;
+import org.sentrysoftware.ipmi.core.coding.protocol.decoder.ProtocolDecoder;
+import org.sentrysoftware.ipmi.core.coding.protocol.decoder.Protocolv20Decoder;
+import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpClassOfMessage;
+import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpDecoder;
+import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpMessage;
+import org.sentrysoftware.ipmi.core.transport.Messenger;
+import org.sentrysoftware.ipmi.core.transport.UdpListener;
+import org.sentrysoftware.ipmi.core.transport.UdpMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Routes messages received by a shared {@link Messenger} to the owning
+ * {@link StateMachine}. Each datagram is decoded once and looked up by remote
+ * address, remote port and session ID. Sessionless messages (handshake) are
+ * delivered to the state machines started for the remote address and port.
+ */
+public class MessageDispatcher implements UdpListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageDispatcher.class);
+
+    private final Messenger messenger;
+
+    /**
+     * State machines per remote endpoint - used for sessionless messages.
+     */
+    private final ConcurrentMap<Endpoint, List<StateMachine>> endpoints;
+
+    /**
+     * State machines per remote endpoint and session ID - used for messages
+     * sent within a session.
+     */
+    private final ConcurrentMap<SessionKey, StateMachine> sessions;
+
+    /**
+     * Session route of each bound state machine - used to remove the route
+     * without scanning {@link #sessions}.
+     */
+    private final ConcurrentMap<StateMachine, SessionKey> boundSessions;
+
+    /**
+     * Creates the dispatcher and registers it in the {@link Messenger}.
+     *
+     * @param messenger
+     *            - {@link Messenger} whose incoming messages will be routed
+     */
+    public MessageDispatcher(Messenger messenger) {
+        this.messenger = messenger;
+        endpoints = new ConcurrentHashMap<Endpoint, List<StateMachine>>();
+        sessions = new ConcurrentHashMap<SessionKey, StateMachine>();
+        boundSessions = new ConcurrentHashMap<StateMachine, SessionKey>();
+        messenger.register(this);
+    }
+
+    /**
+     * Unregisters the dispatcher from the {@link Messenger}.
+     */
+    public void close() {
+        messenger.unregister(this);
+    }
+
+    /**
+     * Registers state machine so it will receive messages from its remote
+     * endpoint.
+     *
+     * @param stateMachine
+     *            - started {@link StateMachine}
+     */
+    void register(StateMachine stateMachine) {
+        Endpoint endpoint = new Endpoint(stateMachine.getRemoteMachineAddress(), stateMachine.getRemoteMachinePort());
+
+        List<StateMachine> machines = endpoints.get(endpoint);
+        if (machines == null) {
+            List<StateMachine> newMachines = new CopyOnWriteArrayList<StateMachine>();
+            machines = endpoints.putIfAbsent(endpoint, newMachines);
+            if (machines == null) {
+                machines = newMachines;
+            }
+        }
+        machines.add(stateMachine);
+    }
+
+    /**
+     * Removes all routes to the state machine.
+     *
+     * @param stateMachine
+     *            - {@link StateMachine} to unregister
+     */
+    void unregister(StateMachine stateMachine) {
+        Endpoint endpoint = new Endpoint(stateMachine.getRemoteMachineAddress(), stateMachine.getRemoteMachinePort());
+
+        List<StateMachine> machines = endpoints.get(endpoint);
+        if (machines != null) {
+            machines.remove(stateMachine);
+        }
+        unbindSession(stateMachine);
+    }
+
+    /**
+     * Routes messages carrying the given session ID directly to the state
+     * machine.
+     *
+     * @param stateMachine
+     *            - {@link StateMachine} owning the session
+     * @param sessionId
+     *            - ID of the session as set by the remote system in the
+     *            messages it sends
+     */
+    void bindSession(StateMachine stateMachine, int sessionId) {
+        unbindSession(stateMachine);
+        SessionKey key = new SessionKey(stateMachine.getRemoteMachineAddress(), stateMachine.getRemoteMachinePort(),
+                sessionId);
+        boundSessions.put(stateMachine, key);
+        sessions.put(key, stateMachine);
+    }
+
+    /**
+     * Removes the session route of the state machine, if any.
+     *
+     * @param stateMachine
+     *            - {@link StateMachine} whose session ended
+     */
+    void unbindSession(StateMachine stateMachine) {
+        SessionKey key = boundSessions.remove(stateMachine);
+        if (key != null) {
+            sessions.remove(key, stateMachine);
+        }
+    }
+
+    @Override
+    public void notifyMessage(UdpMessage message) {
+        RmcpMessage rmcpMessage = RmcpDecoder.decode(message.getMessage());
+
+        int sessionId = decodeSessionId(rmcpMessage);
+
+        if (sessionId != 0) {
+            StateMachine stateMachine = sessions.get(new SessionKey(message.getAddress(), message.getPort(), sessionId));
+            if (stateMachine != null) {
+                stateMachine.handleMessage(rmcpMessage);
+                return;
+            }
+        }
+
+        List<StateMachine> machines = endpoints.get(new Endpoint(message.getAddress(), message.getPort()));
+
+        if (machines == null) {
+            logger.debug("No state machine for " + message.getAddress() + ":" + message.getPort()
+                    + ". Dropping message.");
+            return;
+        }
+
+        for (StateMachine stateMachine : machines) {
+            stateMachine.handleMessage(rmcpMessage);
+        }
+    }
+
+    /**
+     * @return ID of the IPMI v2.0 session the message belongs to, 0 for
+     *         sessionless or non IPMI v2.0 messages
+     */
+    private static int decodeSessionId(RmcpMessage message) {
+        if (message.getClassOfMessage() != RmcpClassOfMessage.Ipmi || message.getDataLength() < 10) {
+            return 0;
+        }
+        try {
+            if (ProtocolDecoder.decodeAuthenticationType(message) != AuthenticationType.RMCPPlus) {
+                return 0;
+            }
+            return Protocolv20Decoder.decodeSessionID(message);
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Remote address and port.
+     */
+    private static class Endpoint {
+        private final InetAddress address;
+        private final int port;
+
+        Endpoint(InetAddress address, int port) {
+            this.address = address;
+            this.port = port;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * address.hashCode() + port;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            Endpoint other = (Endpoint) obj;
+            return port == other.port && address.equals(other.address);
+        }
+    }
+
+    /**
+     * Remote address, port and session ID.
+     */
+    private static final class SessionKey extends Endpoint {
+        private final int sessionId;
+
+        SessionKey(InetAddress address, int port, int sessionId) {
+            super(address, port);
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * super.hashCode() + sessionId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return super.equals(obj) && sessionId == ((SessionKey) obj).sessionId;
+        }
+    }
+}
@@ -24,10 +24,12 @@ package org.sentrysoftware.ipmi.core.sm;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpDecoder;
+import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpMessage;
 import org.sentrysoftware.ipmi.core.common.Constants;
 import org.sentrysoftware.ipmi.core.sm.actions.StateMachineAction;
 import org.sentrysoftware.ipmi.core.sm.events.StateMachineEvent;
@@ -49,6 +51,7 @@ public class StateMachine implements UdpListener {
     private State current;
 
     private Messenger messenger;
+    private MessageDispatcher dispatcher;
     private InetAddress remoteMachineAddress;
     private int remoteMachinePort;
 
@@ -60,6 +63,13 @@ public class StateMachine implements UdpListener {
 
     public void setCurrent(State current) {
         this.current = current;
+        if (dispatcher != null && initialized) {
+            if (current instanceof SessionValid) {
+                dispatcher.bindSession(this, ((SessionValid) current).getSessionId());
+            } else {
+                dispatcher.unbindSession(this);
+            }
+        }
         current.onEnter(this);
     }
 
@@ -76,6 +86,22 @@ public class StateMachine implements UdpListener {
         initialized = false;
     }
 
+    /**
+     * Initializes the State Machine receiving its messages through a shared
+     * {@link MessageDispatcher} instead of listening to the {@link Messenger}
+     * directly.
+     *
+     * @param messenger
+     *            - {@link Messenger} connected to the
+     *            {@link Constants#IPMI_PORT}
+     * @param dispatcher
+     *            - {@link MessageDispatcher} registered in the messenger
+     */
+    public StateMachine(Messenger messenger, MessageDispatcher dispatcher) {
+        this(messenger);
+        this.dispatcher = dispatcher;
+    }
+
     /**
      * Sends message via {@link #messenger} to the managed system.
      *
@@ -92,6 +118,19 @@ public class StateMachine implements UdpListener {
         messenger.send(udpMessage);
     }
 
+    /**
+     * Sends the remaining bytes of the buffer via {@link #messenger} to the
+     * managed system. The buffer can be reused once the method returns.
+     *
+     * @param message
+     *            - buffer containing the encoded message
+     * @throws IOException
+     *             - when sending of the message fails
+     */
+    public void sendMessage(ByteBuffer message) throws IOException {
+        messenger.send(message, getRemoteMachineAddress(), getRemoteMachinePort());
+    }
+
     public InetAddress getRemoteMachineAddress() {
         return remoteMachineAddress;
     }
@@ -124,9 +163,13 @@ public class StateMachine implements UdpListener {
      * @see #stop()
      */
     public void start(InetAddress address, int port) {
-        messenger.register(this);
         remoteMachineAddress = address;
         this.remoteMachinePort = port;
+        if (dispatcher != null) {
+            dispatcher.register(this);
+        } else {
+            messenger.register(this);
+        }
         setCurrent(new Uninitialized());
         initialized = true;
     }
@@ -137,7 +180,11 @@ public class StateMachine implements UdpListener {
      * @see #start(InetAddress, int)
      */
     public void stop() {
-        messenger.unregister(this);
+        if (dispatcher != null) {
+            dispatcher.unregister(this);
+        } else {
+            messenger.unregister(this);
+        }
         initialized = false;
     }
 
@@ -170,10 +217,21 @@ public class StateMachine implements UdpListener {
     @Override
     public void notifyMessage(UdpMessage message) {
         if (message.getAddress().equals(getRemoteMachineAddress()) && message.getPort() == getRemoteMachinePort()) {
-            current.doAction(this, RmcpDecoder.decode(message.getMessage()));
+            handleMessage(RmcpDecoder.decode(message.getMessage()));
         }
     }
 
+    /**
+     * Passes already decoded message from the remote machine to the
+     * {@link #current} state.
+     *
+     * @param message
+     *            - {@link RmcpMessage} received from the remote machine
+     */
+    public void handleMessage(RmcpMessage message) {
+        current.doAction(this, message);
+    }
+
     /**
      * Registers the listener in the {@link StateMachine} so it will be notified
      * of the {@link StateMachineAction}s performed via
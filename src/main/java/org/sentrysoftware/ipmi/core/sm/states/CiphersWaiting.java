@@ -102,12 +102,12 @@ public class CiphersWaiting extends State {
         if(Protocolv20Decoder.decodeSessionID(message) != 0){
             return;    //this isn't sessionless message so we drop it
         }
-        if (Protocolv20Decoder.decodePayloadType(message.getData()[1]) != PayloadType.Ipmi) {
+        if (Protocolv20Decoder.decodePayloadType(message.getDataByte(1)) != PayloadType.Ipmi) {
             return;
         }
         Protocolv20Decoder decoder = new Protocolv20Decoder(
                 CipherSuite.getEmpty());
-        if(decoder.decodeAuthentication(message.getData()[1])) {
+        if(decoder.decodeAuthentication(message.getDataByte(1))) {
             return;    //message is authenticated so it does belong to the other session
         }
         IpmiMessage ipmiMessage = null;
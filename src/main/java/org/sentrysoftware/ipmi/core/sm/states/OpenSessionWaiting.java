@@ -75,7 +75,7 @@ public class OpenSessionWaiting extends State {
         }
         PlainCommandv20Decoder decoder = new PlainCommandv20Decoder(
                 CipherSuite.getEmpty());
-        if (Protocolv20Decoder.decodePayloadType(message.getData()[1]) != PayloadType.RmcpOpenSessionResponse) {
+        if (Protocolv20Decoder.decodePayloadType(message.getDataByte(1)) != PayloadType.RmcpOpenSessionResponse) {
             return;
         }
         IpmiMessage ipmiMessage = null;
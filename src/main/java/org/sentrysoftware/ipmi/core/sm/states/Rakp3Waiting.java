@@ -98,7 +98,7 @@ public class Rakp3Waiting extends State {
         }
         PlainCommandv20Decoder decoder = new PlainCommandv20Decoder(
                 CipherSuite.getEmpty());
-        if (Protocolv20Decoder.decodePayloadType(message.getData()[1]) != PayloadType.Rakp4) {
+        if (Protocolv20Decoder.decodePayloadType(message.getDataByte(1)) != PayloadType.Rakp4) {
             return;
         }
 
@@ -23,6 +23,7 @@ package org.sentrysoftware.ipmi.core.sm.states;
  */
 
 import org.sentrysoftware.ipmi.core.coding.Encoder;
+import org.sentrysoftware.ipmi.core.coding.PayloadCoder;
 import org.sentrysoftware.ipmi.core.coding.commands.IpmiVersion;
 import org.sentrysoftware.ipmi.core.coding.commands.PrivilegeLevel;
 import org.sentrysoftware.ipmi.core.coding.commands.session.CloseSession;
@@ -43,6 +44,10 @@ import org.sentrysoftware.ipmi.core.sm.events.Sendv20Message;
 import org.sentrysoftware.ipmi.core.sm.events.SessionUpkeep;
 import org.sentrysoftware.ipmi.core.sm.events.StateMachineEvent;
 import org.sentrysoftware.ipmi.core.sm.events.Timeout;
+import org.sentrysoftware.ipmi.core.transport.BufferPool;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 /**
  * {@link State} in which the session is valid and sending IPMI commands to the
@@ -65,6 +70,10 @@ public class SessionValid extends State {
         return cipherSuite;
     }
 
+    public int getSessionId() {
+        return sessionId;
+    }
+
     /**
      * Initiates the state.
      *
@@ -82,21 +91,19 @@ public class SessionValid extends State {
         if (machineEvent instanceof Sendv20Message) {
             Sendv20Message event = (Sendv20Message) machineEvent;
             try {
-                stateMachine.sendMessage(Encoder.encode(
-                        new Protocolv20Encoder(), event.getPayloadCoder(), event.getMessageSequenceNumber(),
-                        event.getSessionSequenceNumber(), event.getSessionId()));
+                sendMessage(stateMachine, event.getPayloadCoder(), event.getMessageSequenceNumber(),
+                        event.getSessionSequenceNumber(), event.getSessionId());
             } catch (Exception e) {
                 stateMachine.doExternalAction(new ErrorAction(e));
             }
         } else if (machineEvent instanceof SessionUpkeep) {
             SessionUpkeep event = (SessionUpkeep) machineEvent;
             try {
-                stateMachine.sendMessage(Encoder.encode(
-                        new Protocolv20Encoder(),
+                sendMessage(stateMachine,
                         new GetChannelAuthenticationCapabilities(
                                 IpmiVersion.V20, IpmiVersion.V20, cipherSuite,
                                 PrivilegeLevel.Callback, TypeConverter.intToByte(0xe)),
-                                event.getMessageSequenceNumber(), event.getSessionSequenceNumber(), event.getSessionId()));
+                                event.getMessageSequenceNumber(), event.getSessionSequenceNumber(), event.getSessionId());
             } catch (Exception e) {
                 stateMachine.doExternalAction(new ErrorAction(e));
             }
@@ -122,6 +129,33 @@ public class SessionValid extends State {
 
     }
 
+    /**
+     * Encodes the message in a pooled buffer and sends it.
+     */
+    private void sendMessage(StateMachine stateMachine, PayloadCoder payloadCoder, int messageSequenceNumber,
+            int sessionSequenceNumber, int sessionId) throws Exception {
+        BufferPool pool = BufferPool.getDefault();
+        ByteBuffer buffer = pool.acquire();
+
+        try {
+            Encoder.encode(new Protocolv20Encoder(), payloadCoder, messageSequenceNumber, sessionSequenceNumber,
+                    sessionId, buffer);
+        } catch (BufferOverflowException e) {
+            // Message larger than the pooled buffers
+            pool.release(buffer);
+            stateMachine.sendMessage(Encoder.encode(new Protocolv20Encoder(), payloadCoder, messageSequenceNumber,
+                    sessionSequenceNumber, sessionId));
+            return;
+        }
+
+        try {
+            buffer.flip();
+            stateMachine.sendMessage(buffer);
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
     @Override
     public void doAction(StateMachine stateMachine, RmcpMessage message) {
         if (ProtocolDecoder.decodeAuthenticationType(message) != AuthenticationType.RMCPPlus) {
@@ -131,7 +165,7 @@ public class SessionValid extends State {
             return; // this is a sessionless message so we drop it
         }
         Protocolv20Decoder decoder = new Protocolv20Decoder(cipherSuite);
-        PayloadType payloadType = Protocolv20Decoder.decodePayloadType(message.getData()[1]);
+        PayloadType payloadType = Protocolv20Decoder.decodePayloadType(message.getDataByte(1));
 
         if (payloadType != PayloadType.Ipmi && payloadType != PayloadType.Sol) {
             return;
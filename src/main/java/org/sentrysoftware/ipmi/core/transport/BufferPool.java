@@ -0,0 +1,107 @@
+package org.sentrysoftware.ipmi.core.transport;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct buffers in which the outgoing messages are encoded, so
+ * sending a message does not allocate its datagram. Direct buffers are also
+ * sent by the {@link java.nio.channels.DatagramChannel} without an
+ * intermediate copy.
+ */
+public class BufferPool {
+
+    /**
+     * Size of the pooled buffers, large enough for any IPMI message sent over
+     * LAN.
+     */
+    public static final int BUFFER_SIZE = 1024;
+
+    /**
+     * Maximum number of idle buffers kept by the default pool.
+     */
+    private static final int DEFAULT_MAX_IDLE_BUFFERS = 64;
+
+    private static final BufferPool defaultPool = new BufferPool(DEFAULT_MAX_IDLE_BUFFERS);
+
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    private final AtomicInteger idleBuffers = new AtomicInteger();
+
+    private final int maxIdleBuffers;
+
+    /**
+     * @param maxIdleBuffers
+     *            - number of released buffers kept for reuse, the following
+     *            ones are left to the garbage collector
+     */
+    public BufferPool(int maxIdleBuffers) {
+        this.maxIdleBuffers = maxIdleBuffers;
+    }
+
+    /**
+     * @return pool shared by all the connections
+     */
+    public static BufferPool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Takes a cleared buffer of {@link #BUFFER_SIZE} bytes from the pool,
+     * allocating one if the pool is empty.
+     *
+     * @return buffer to give back with {@link #release(ByteBuffer)}
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        idleBuffers.decrementAndGet();
+
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer taken with {@link #acquire()}. The buffer must no
+     * longer be used by the caller.
+     *
+     * @param buffer
+     *            - buffer to reuse
+     */
+    public void release(ByteBuffer buffer) {
+        if (idleBuffers.incrementAndGet() > maxIdleBuffers) {
+            idleBuffers.decrementAndGet();
+            return;
+        }
+
+        buffer.clear();
+        buffers.add(buffer);
+    }
+}
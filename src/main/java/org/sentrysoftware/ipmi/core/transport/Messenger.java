@@ -23,6 +23,8 @@ package org.sentrysoftware.ipmi.core.transport;
  */
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
 
 /**
  * Low level connection handler.
@@ -39,6 +41,30 @@ public interface Messenger {
      */
     void send(UdpMessage message) throws IOException;
 
+    /**
+     * Sends the remaining bytes of the buffer as a single datagram. The caller
+     * may reuse the buffer as soon as the method returns.
+     *
+     * @param data
+     *            - buffer containing the message to send
+     * @param address
+     *            - address of the remote host
+     * @param port
+     *            - port of the remote host
+     * @throws IOException
+     *             when sending of the message fails
+     */
+    default void send(ByteBuffer data, InetAddress address, int port) throws IOException {
+        byte[] message = new byte[data.remaining()];
+        data.get(message);
+
+        UdpMessage udpMessage = new UdpMessage();
+        udpMessage.setAddress(address);
+        udpMessage.setPort(port);
+        udpMessage.setMessage(message);
+        send(udpMessage);
+    }
+
     /**
      * Registers listener in the {@link Messenger} so it will be notified via
      * {@link UdpListener#notifyMessage(UdpMessage)} when new message arrives.
@@ -0,0 +1,289 @@
+package org.sentrysoftware.ipmi.core.transport;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Handles the UDP connection using a non-blocking {@link DatagramChannel}
+ * served by an {@link UdpEventLoop}. Many instances can share the same loop,
+ * so no thread is dedicated to a single socket.
+ */
+public class NioUdpMessenger implements Messenger {
+
+    private static Logger logger = LoggerFactory.getLogger(NioUdpMessenger.class);
+
+    private static final String DEFAULT_ADDRESS = "0.0.0.0";
+
+    /**
+     * Requested size of the socket receive buffer, so bursts of responses from
+     * many BMCs are not dropped by the kernel before the event loop drains them.
+     */
+    private static final int SOCKET_RECEIVE_BUFFER_SIZE = 1024 * 1024;
+
+    private final DatagramChannel channel;
+
+    private final UdpEventLoop eventLoop;
+
+    private final List<UdpListener> listeners;
+
+    /**
+     * Datagrams that could not be written immediately because the socket
+     * send buffer was full. Flushed by the event loop.
+     */
+    private final Queue<ByteBuffer> pendingWrites;
+
+    private final Queue<SocketAddress> pendingTargets;
+
+    private final Object writeLock = new Object();
+
+    private int port;
+
+    /**
+     * Initiates NioUdpMessenger on the shared {@link UdpEventLoop}, binds it
+     * to the specified port. Wildcard IP address will be used.
+     *
+     * @param port
+     *            - port to bind socket to. 0 to pick an ephemeral port.
+     * @throws IOException
+     *             if the socket could not be opened, or the socket could not
+     *             bind to the specified local port.
+     */
+    public NioUdpMessenger(int port) throws IOException {
+        this(port, InetAddress.getByName(DEFAULT_ADDRESS));
+    }
+
+    /**
+     * Initiates NioUdpMessenger on the shared {@link UdpEventLoop}, binds it
+     * to the specified port and IP address.
+     *
+     * @param port
+     *            - port to bind socket to. 0 to pick an ephemeral port.
+     * @param address
+     *            - IP address to bind socket to.
+     * @throws IOException
+     *             if the socket could not be opened, or the socket could not
+     *             bind to the specified local port.
+     */
+    public NioUdpMessenger(int port, InetAddress address) throws IOException {
+        this(port, address, UdpEventLoop.getDefault());
+    }
+
+    /**
+     * Initiates NioUdpMessenger on the given {@link UdpEventLoop}, binds it to
+     * the specified port and IP address.
+     *
+     * @param port
+     *            - port to bind socket to. 0 to pick an ephemeral port.
+     * @param address
+     *            - IP address to bind socket to.
+     * @param eventLoop
+     *            - started {@link UdpEventLoop} that will serve the socket
+     * @throws IOException
+     *             if the socket could not be opened, or the socket could not
+     *             bind to the specified local port.
+     */
+    public NioUdpMessenger(int port, InetAddress address, UdpEventLoop eventLoop) throws IOException {
+        this.eventLoop = eventLoop;
+        listeners = new ArrayList<UdpListener>();
+        pendingWrites = new ConcurrentLinkedQueue<ByteBuffer>();
+        pendingTargets = new ConcurrentLinkedQueue<SocketAddress>();
+
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_RECEIVE_BUFFER_SIZE);
+        channel.bind(new InetSocketAddress(address, port));
+        this.port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+
+        eventLoop.register(channel, this);
+    }
+
+    /**
+     * @return Local port the socket is bound to
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Sends {@link UdpMessage}. Does not block - if the socket send buffer
+     * is full the datagram is queued and sent by the event loop.
+     *
+     * @param message
+     *            - {@link UdpMessage} to send.
+     * @throws IOException
+     *             when sending of the message fails
+     */
+    @Override
+    public void send(UdpMessage message) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(message.getMessage());
+        SocketAddress target = new InetSocketAddress(message.getAddress(), message.getPort());
+
+        synchronized (writeLock) {
+            if (pendingWrites.isEmpty() && write(data, target) > 0) {
+                return;
+            }
+            pendingWrites.add(data);
+            pendingTargets.add(target);
+            eventLoop.setWriteInterest(channel, true);
+        }
+    }
+
+    /**
+     * Sends the remaining bytes of the buffer without copying them, unless
+     * the socket send buffer is full: the datagram is then copied, since the
+     * caller reuses the buffer, and sent by the event loop.
+     */
+    @Override
+    public void send(ByteBuffer data, InetAddress address, int port) throws IOException {
+        SocketAddress target = new InetSocketAddress(address, port);
+
+        synchronized (writeLock) {
+            if (pendingWrites.isEmpty() && write(data, target) > 0) {
+                return;
+            }
+            ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+            copy.put(data);
+            copy.flip();
+            pendingWrites.add(copy);
+            pendingTargets.add(target);
+            eventLoop.setWriteInterest(channel, true);
+        }
+    }
+
+    /**
+     * Sends the queued datagrams. Invoked by the {@link UdpEventLoop} when the
+     * socket becomes writable.
+     */
+    void flush() throws IOException {
+        synchronized (writeLock) {
+            ByteBuffer data;
+            while ((data = pendingWrites.peek()) != null) {
+                if (write(data, pendingTargets.peek()) == 0) {
+                    return;
+                }
+                pendingWrites.poll();
+                pendingTargets.poll();
+            }
+
+            // Cleared under the lock, so it cannot override the interest set
+            // by a datagram queued in the meantime
+            eventLoop.setWriteInterest(channel, false);
+        }
+    }
+
+    /**
+     * Writes one datagram to the socket.
+     *
+     * @param data
+     *            - content of the datagram
+     * @param target
+     *            - address of the remote host
+     * @return number of bytes sent, 0 if the socket send buffer is full
+     * @throws IOException
+     *             when sending of the datagram fails
+     */
+    int write(ByteBuffer data, SocketAddress target) throws IOException {
+        return channel.send(data, target);
+    }
+
+    /**
+     * Notifies listeners of the datagram received by the {@link UdpEventLoop}.
+     *
+     * @param sender
+     *            - address of the remote host
+     * @param data
+     *            - receive buffer positioned on the datagram content. Only
+     *            valid for the duration of the call.
+     */
+    void received(SocketAddress sender, ByteBuffer data) {
+        if (!(sender instanceof InetSocketAddress)) {
+            return;
+        }
+
+        UdpMessage message = new UdpMessage();
+        message.setAddress(((InetSocketAddress) sender).getAddress());
+        message.setPort(((InetSocketAddress) sender).getPort());
+        byte[] buffer = new byte[data.remaining()];
+        data.get(buffer);
+        message.setMessage(buffer);
+
+        notifyListeners(message);
+    }
+
+    private void notifyListeners(UdpMessage message) {
+        synchronized (listeners) {
+            for (UdpListener listener : listeners) {
+                if (listener != null) {
+                    try {
+                        listener.notifyMessage(message);
+                    } catch (Exception e) {
+                        logger.error(e.getMessage(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void register(UdpListener listener) {
+        synchronized (listeners) {
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void unregister(UdpListener listener) {
+        synchronized (listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Closes the socket and releases port. The {@link UdpEventLoop} keeps
+     * running for the other messengers.
+     */
+    @Override
+    public void closeConnection() {
+        eventLoop.unregister(channel);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+package org.sentrysoftware.ipmi.core.transport;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Single thread multiplexing any number of {@link NioUdpMessenger} sockets
+ * with one {@link Selector}. Datagrams are received into one reused direct
+ * buffer and handed to the owning messenger. At most
+ * {@link #MAX_DATAGRAMS_PER_SELECT} datagrams are read from a socket per
+ * select, so a busy socket does not starve the others.<br>
+ * The datagrams are decoded and dispatched to the listeners on this thread,
+ * for all the remote hosts of all the messengers sharing the loop. Listeners
+ * and futures completed by incoming messages must therefore not block: slow
+ * work has to be handed to an executor.
+ *
+ * @see NioUdpMessenger
+ */
+public class UdpEventLoop extends Thread {
+
+    private static Logger logger = LoggerFactory.getLogger(UdpEventLoop.class);
+
+    /**
+     * Size of the receive buffer. Big enough for any IPMI v1.5/v2.0 datagram.
+     */
+    private static final int RECEIVE_BUFFER_SIZE = 1024;
+
+    /**
+     * Maximum number of datagrams read from one socket before the other
+     * ready sockets are served.
+     */
+    private static final int MAX_DATAGRAMS_PER_SELECT = 64;
+
+    private static UdpEventLoop defaultLoop;
+
+    private final Selector selector;
+
+    private final ByteBuffer receiveBuffer;
+
+    private final Queue<Runnable> pendingTasks;
+
+    private volatile boolean closing = false;
+
+    /**
+     * Returns the event loop shared by all {@link NioUdpMessenger}s that were
+     * not given one explicitly. It is started on first use and runs as a
+     * daemon thread.
+     *
+     * @return shared {@link UdpEventLoop}
+     * @throws IOException
+     *             when the selector could not be opened
+     */
+    public static synchronized UdpEventLoop getDefault() throws IOException {
+        if (defaultLoop == null || !defaultLoop.isAlive()) {
+            defaultLoop = new UdpEventLoop();
+            defaultLoop.setDaemon(true);
+            defaultLoop.start();
+        }
+        return defaultLoop;
+    }
+
+    /**
+     * Creates new event loop. It has to be started via {@link #start()}
+     * before registering any messenger.
+     *
+     * @throws IOException
+     *             when the selector could not be opened
+     */
+    public UdpEventLoop() throws IOException {
+        super("ipmi-udp-event-loop");
+        selector = Selector.open();
+        receiveBuffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        pendingTasks = new ConcurrentLinkedQueue<Runnable>();
+    }
+
+    /**
+     * Registers the channel of the messenger in the selector. Registration is
+     * performed on the event loop thread.
+     *
+     * @param channel
+     *            - non-blocking {@link DatagramChannel} to register
+     * @param messenger
+     *            - {@link NioUdpMessenger} that will be notified of incoming
+     *            datagrams and write readiness
+     */
+    void register(final DatagramChannel channel, final NioUdpMessenger messenger) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    channel.register(selector, SelectionKey.OP_READ, messenger);
+                } catch (ClosedChannelException e) {
+                    logger.warn("Channel closed before registration", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Enables or disables the write interest of the channel, so the
+     * messenger is notified when pending datagrams can be flushed.
+     */
+    void setWriteInterest(final DatagramChannel channel, final boolean enabled) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                SelectionKey key = channel.keyFor(selector);
+                if (key != null && key.isValid()) {
+                    int ops = enabled ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+                    key.interestOps(ops);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels the registration of the channel.
+     */
+    void unregister(final DatagramChannel channel) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                SelectionKey key = channel.keyFor(selector);
+                if (key != null) {
+                    key.cancel();
+                }
+            }
+        });
+    }
+
+    private void execute(Runnable task) {
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the loop and closes the selector. Registered channels are not
+     * closed.
+     */
+    public void shutdown() {
+        closing = true;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (!closing) {
+            try {
+                selector.select();
+                runPendingTasks();
+                processSelectedKeys();
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+
+            NioUdpMessenger messenger = (NioUdpMessenger) key.attachment();
+
+            try {
+                if (key.isValid() && key.isWritable()) {
+                    messenger.flush();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    receive((DatagramChannel) key.channel(), messenger);
+                }
+            } catch (CancelledKeyException e) {
+                // channel was closed in the meantime
+            } catch (IOException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Reads the datagrams available in the channel, up to
+     * {@link #MAX_DATAGRAMS_PER_SELECT}. The remaining ones are read after the
+     * next select, which returns immediately as the channel stays readable.
+     */
+    private void receive(DatagramChannel channel, NioUdpMessenger messenger) throws IOException {
+        for (int i = 0; i < MAX_DATAGRAMS_PER_SELECT; i++) {
+            receiveBuffer.clear();
+            SocketAddress sender = channel.receive(receiveBuffer);
+
+            if (sender == null) {
+                return;
+            }
+
+            receiveBuffer.flip();
+            messenger.received(sender, receiveBuffer);
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -120,18 +121,18 @@ public class UdpMessenger extends Thread implements Messenger {
 
         boolean run = true;
 
-        while (run) {
-            DatagramPacket response = new DatagramPacket(new byte[512], 512);
+        // the receive buffer is reused, each datagram is copied once into its message
+        byte[] receiveBuffer = new byte[512];
+        DatagramPacket response = new DatagramPacket(receiveBuffer, receiveBuffer.length);
 
+        while (run) {
             try {
+                response.setData(receiveBuffer);
                 socket.receive(response);
                 UdpMessage message = new UdpMessage();
                 message.setAddress(response.getAddress());
                 message.setPort(response.getPort());
-                byte[] buffer = new byte[response.getLength()];
-                System.arraycopy(response.getData(), 0, buffer, 0,
-                        buffer.length);
-                message.setMessage(buffer);
+                message.setMessage(Arrays.copyOf(receiveBuffer, response.getLength()));
 
                 notifyListeners(message);
 
@@ -2,6 +2,7 @@
  * The UDP transport layer.
  * 
  * @see org.sentrysoftware.ipmi.core.transport.UdpMessenger
+ * @see org.sentrysoftware.ipmi.core.transport.NioUdpMessenger
  */
 package org.sentrysoftware.ipmi.core.transport;
 /*-
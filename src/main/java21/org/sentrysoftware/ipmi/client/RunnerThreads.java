@@ -0,0 +1,64 @@
+package org.sentrysoftware.ipmi.client;
+
+/*-
+ * ╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲
+ * IPMI Java Client
+ * ჻჻჻჻჻჻
+ * Copyright 2023 Verax Systems, Sentry Software
+ * ჻჻჻჻჻჻
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * ╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱╲╱
+ */
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.sentrysoftware.ipmi.client.runner.AbstractIpmiRunner;
+
+/**
+ * Creates the threads running the {@link AbstractIpmiRunner} callables.<br>
+ * Java 21 implementation of the multi-release JAR: each callable runs on its own virtual thread, so tens of thousands
+ * of hosts can be polled at the same time. The runners wait for the answers of the BMCs on futures and locks, which
+ * park the virtual thread and release its carrier.
+ */
+final class RunnerThreads {
+
+	private RunnerThreads() {}
+
+	/**
+	 * Create an {@link ExecutorService} for the runners
+	 *
+	 * @param name       The prefix of the names of the threads, followed by their number
+	 * @param maxThreads The maximum number of tasks running at the same time, further tasks wait on their (parked)
+	 *                   virtual thread
+	 * @return a new {@link ExecutorService} to shut down once the tasks are done
+	 */
+	static ExecutorService newExecutor(final String name, final int maxThreads) {
+		final Semaphore permits = new Semaphore(maxThreads);
+		final ThreadFactory virtualThreads = Thread.ofVirtual().name(name + "-", 1).factory();
+
+		return Executors.newThreadPerTaskExecutor(task -> virtualThreads.newThread(() -> {
+			// A task cancelled while waiting keeps its interrupt status and stops as soon as it starts
+			permits.acquireUninterruptibly();
+			try {
+				task.run();
+			} finally {
+				permits.release();
+			}
+		}));
+	}
+}
@@ -0,0 +1,167 @@
+package org.sentrysoftware.ipmi.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.sentrysoftware.ipmi.client.runner.AbstractIpmiRunner;
+
+class IpmiFleetPollerTest {
+
+	/**
+	 * Runner recording the number of hosts polled at the same time
+	 */
+	private static class SleepingRunner extends AbstractIpmiRunner<String> {
+
+		private final AtomicInteger running;
+		private final AtomicInteger maxRunning;
+		private final long sleep;
+
+		SleepingRunner(IpmiClientConfiguration ipmiConfiguration, AtomicInteger running, AtomicInteger maxRunning, long sleep) {
+			super(ipmiConfiguration);
+			this.running = running;
+			this.maxRunning = maxRunning;
+			this.sleep = sleep;
+		}
+
+		@Override
+		public String call() throws Exception {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(sleep);
+			} finally {
+				running.decrementAndGet();
+			}
+			return ipmiConfiguration.getHostname();
+		}
+
+		@Override
+		public void close() {
+			// No session
+		}
+	}
+
+	private static IpmiClientConfiguration configuration(String hostname, long timeout) {
+		return new IpmiClientConfiguration(hostname, "username", "password".toCharArray(), null, false, timeout);
+	}
+
+	@Test
+	void testGetSubnet() {
+		assertEquals(IpmiFleetPoller.getSubnet("10.0.1.1"), IpmiFleetPoller.getSubnet("10.0.1.254"));
+		assertNotEquals(IpmiFleetPoller.getSubnet("10.0.1.1"), IpmiFleetPoller.getSubnet("10.0.2.1"));
+		assertEquals(IpmiFleetPoller.getSubnet("fe80::1"), IpmiFleetPoller.getSubnet("fe80::2"));
+	}
+
+	@Test
+	void testConcurrencyLimits() throws Exception {
+		final List<IpmiClientConfiguration> configurations = new ArrayList<>();
+		for (int i = 1; i <= 10; i++) {
+			configurations.add(configuration("10.0.1." + i, 10));
+			configurations.add(configuration("10.0.2." + i, 10));
+		}
+
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final Map<String, String> results = new ConcurrentHashMap<>();
+
+		try (IpmiFleetPoller poller = new IpmiFleetPoller(null, 3, 2)) {
+			poller.poll(configurations,
+					configuration -> new SleepingRunner(configuration, running, maxRunning, 20),
+					result -> results.put(result.getConfiguration().getHostname(), result.getResult()))
+				.get(10, TimeUnit.SECONDS);
+		}
+
+		assertEquals(20, results.size());
+		assertEquals("10.0.2.5", results.get("10.0.2.5"));
+		assertTrue(maxRunning.get() <= 3);
+
+		// A single subnet is limited to 2 hosts at a time
+		maxRunning.set(0);
+		try (IpmiFleetPoller poller = new IpmiFleetPoller(null, 8, 2)) {
+			poller.poll(configurations.subList(0, 1),
+					configuration -> new SleepingRunner(configuration, running, maxRunning, 20),
+					result -> {})
+				.get(10, TimeUnit.SECONDS);
+
+			final List<IpmiClientConfiguration> sameSubnet = new ArrayList<>();
+			for (int i = 1; i <= 6; i++) {
+				sameSubnet.add(configuration("10.0.3." + i, 10));
+			}
+			poller.poll(sameSubnet,
+					configuration -> new SleepingRunner(configuration, running, maxRunning, 20),
+					result -> {})
+				.get(10, TimeUnit.SECONDS);
+		}
+		assertEquals(2, maxRunning.get());
+	}
+
+	@Test
+	void testTimeout() throws Exception {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final List<IpmiFleetPoller.HostResult<String>> results = new ArrayList<>();
+
+		try (IpmiFleetPoller poller = new IpmiFleetPoller(null, 2, 2)) {
+			final List<IpmiClientConfiguration> configurations = new ArrayList<>();
+			configurations.add(configuration("10.0.1.1", 1));
+
+			poller.poll(configurations,
+					configuration -> new SleepingRunner(configuration, running, maxRunning, 60000),
+					results::add)
+				.get(10, TimeUnit.SECONDS);
+		}
+
+		assertEquals(1, results.size());
+		assertFalse(results.get(0).isSuccess());
+		assertTrue(results.get(0).getException() instanceof TimeoutException);
+	}
+
+	@Test
+	void testClose() throws Exception {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final List<IpmiFleetPoller.HostResult<String>> results = new CopyOnWriteArrayList<>();
+
+		final List<IpmiClientConfiguration> configurations = new ArrayList<>();
+		for (int i = 1; i <= 5; i++) {
+			configurations.add(configuration("10.0.1." + i, 60));
+		}
+
+		final IpmiFleetPoller poller = new IpmiFleetPoller(null, 1, 1);
+		final CompletableFuture<Void> completion = poller.poll(configurations,
+				configuration -> new SleepingRunner(configuration, running, maxRunning, 60000),
+				results::add);
+
+		final long deadline = System.currentTimeMillis() + 10000;
+		while (running.get() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		poller.close();
+
+		// The dropped hosts are delivered, so the poll completes
+		completion.get(10, TimeUnit.SECONDS);
+
+		assertEquals(5, results.size());
+		int cancelled = 0;
+		for (IpmiFleetPoller.HostResult<String> result : results) {
+			assertFalse(result.isSuccess());
+			if (result.getException() instanceof CancellationException) {
+				cancelled++;
+			}
+		}
+		assertEquals(4, cancelled);
+	}
+}
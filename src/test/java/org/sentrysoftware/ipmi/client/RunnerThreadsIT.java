@@ -0,0 +1,37 @@
+package org.sentrysoftware.ipmi.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Run by the java21 profile against the packaged multi-release JAR
+ */
+class RunnerThreadsIT {
+
+	@Test
+	void testVirtualThreads() throws Exception {
+		final Method isVirtual = Thread.class.getMethod("isVirtual");
+
+		final ExecutorService executor = RunnerThreads.newExecutor("test-runner", 1);
+		try {
+			assertEquals(Boolean.TRUE, executor.submit(() -> isVirtual.invoke(Thread.currentThread())).get(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testMaxThreads() throws Exception {
+		final AtomicInteger maxRunning = new AtomicInteger();
+
+		assertEquals(20, RunnerThreadsTest.runLimited(maxRunning).size());
+		assertTrue(maxRunning.get() <= 3);
+	}
+}
@@ -0,0 +1,60 @@
+package org.sentrysoftware.ipmi.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class RunnerThreadsTest {
+
+	/**
+	 * Run 20 tasks on an executor limited to 3 threads
+	 *
+	 * @return the names of the threads that ran the tasks
+	 */
+	static List<String> runLimited(final AtomicInteger maxRunning) throws Exception {
+		final AtomicInteger running = new AtomicInteger();
+		final List<Future<String>> futures = new ArrayList<>();
+
+		final ExecutorService executor = RunnerThreads.newExecutor("test-runner", 3);
+		try {
+			for (int i = 0; i < 20; i++) {
+				futures.add(executor.submit(() -> {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try {
+						Thread.sleep(10);
+					} finally {
+						running.decrementAndGet();
+					}
+					return Thread.currentThread().getName();
+				}));
+			}
+
+			final List<String> threadNames = new ArrayList<>();
+			for (Future<String> future : futures) {
+				threadNames.add(future.get(10, TimeUnit.SECONDS));
+			}
+			return threadNames;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testMaxThreads() throws Exception {
+		final AtomicInteger maxRunning = new AtomicInteger();
+
+		final List<String> threadNames = runLimited(maxRunning);
+
+		assertEquals(20, threadNames.size());
+		assertTrue(maxRunning.get() <= 3);
+		assertTrue(threadNames.stream().allMatch(name -> name.matches("test-runner-[1-9][0-9]*")));
+	}
+}
@@ -0,0 +1,68 @@
+package org.sentrysoftware.ipmi.client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sentrysoftware.ipmi.core.coding.commands.sdr.GetSdrRepositoryInfoResponseData;
+
+class SdrCacheTest {
+
+	private static final String HOSTNAME = "fe80::1%eth0";
+
+	@TempDir
+	File directory;
+
+	private static GetSdrRepositoryInfoResponseData info(int recordCount, int addTimestamp, int delTimestamp) {
+		final GetSdrRepositoryInfoResponseData info = new GetSdrRepositoryInfoResponseData();
+		info.setRecordCount(recordCount);
+		info.setAddTimestamp(addTimestamp);
+		info.setDelTimestamp(delTimestamp);
+		return info;
+	}
+
+	@Test
+	void testGetInMemory() {
+		final SdrCache sdrCache = new SdrCache();
+		final List<byte[]> records = Arrays.asList(new byte[] { 1, 2, 3 }, new byte[] { 4, 5 });
+
+		assertNull(sdrCache.get(HOSTNAME, info(2, 10, 20)));
+
+		sdrCache.put(HOSTNAME, info(2, 10, 20), records);
+
+		assertEquals(2, sdrCache.get(HOSTNAME, info(2, 10, 20)).size());
+		assertNull(sdrCache.get("other", info(2, 10, 20)));
+
+		// Any change in the repository invalidates the entry
+		assertNull(sdrCache.get(HOSTNAME, info(3, 10, 20)));
+		assertNull(sdrCache.get(HOSTNAME, info(2, 11, 20)));
+		assertNull(sdrCache.get(HOSTNAME, info(2, 10, 21)));
+
+		sdrCache.invalidate(HOSTNAME);
+		assertNull(sdrCache.get(HOSTNAME, info(2, 10, 20)));
+	}
+
+	@Test
+	void testGetFromFile() {
+		final List<byte[]> records = Arrays.asList(new byte[] { 1, 2, 3 }, new byte[] { 4, 5 });
+
+		new SdrCache(directory).put(HOSTNAME, info(2, 10, 20), records);
+
+		// A new instance reads the entry written by the previous one
+		final List<byte[]> cached = new SdrCache(directory).get(HOSTNAME, info(2, 10, 20));
+		assertEquals(2, cached.size());
+		assertArrayEquals(records.get(0), cached.get(0));
+		assertArrayEquals(records.get(1), cached.get(1));
+
+		assertNull(new SdrCache(directory).get(HOSTNAME, info(2, 10, 21)));
+
+		new SdrCache(directory).invalidate(HOSTNAME);
+		assertNull(new SdrCache(directory).get(HOSTNAME, info(2, 10, 20)));
+	}
+}
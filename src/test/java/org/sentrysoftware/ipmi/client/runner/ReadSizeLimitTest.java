@@ -0,0 +1,56 @@
+package org.sentrysoftware.ipmi.client.runner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ReadSizeLimitTest {
+
+	private static final String HOSTNAME = "hostname";
+
+	/**
+	 * Request sizes from a BMC accepting at most <code>limit</code> bytes until the limit is found
+	 */
+	private static int negotiate(final ReadSizeLimit readSizeLimit, final int limit) {
+		for (int i = 0; i < 32; i++) {
+			final int size = readSizeLimit.nextSize(HOSTNAME);
+			if (size > limit) {
+				assertTrue(readSizeLimit.rejected(HOSTNAME, size));
+			} else {
+				readSizeLimit.accepted(HOSTNAME, size);
+			}
+		}
+		return readSizeLimit.nextSize(HOSTNAME);
+	}
+
+	@Test
+	void testNegotiate() {
+		assertEquals(8, negotiate(new ReadSizeLimit(8, 255), 8));
+		assertEquals(40, negotiate(new ReadSizeLimit(8, 255), 40));
+		assertEquals(255, negotiate(new ReadSizeLimit(8, 255), 255));
+	}
+
+	@Test
+	void testPerHost() {
+		final ReadSizeLimit readSizeLimit = new ReadSizeLimit(8, 255);
+		negotiate(readSizeLimit, 40);
+
+		assertEquals(132, readSizeLimit.nextSize("other"));
+	}
+
+	@Test
+	void testRejected() {
+		final ReadSizeLimit readSizeLimit = new ReadSizeLimit(8, 255);
+
+		// The minimal size cannot be decreased
+		assertFalse(readSizeLimit.rejected(HOSTNAME, 8));
+
+		// A size accepted earlier and now rejected restarts the search
+		assertEquals(40, negotiate(readSizeLimit, 40));
+		assertTrue(readSizeLimit.rejected(HOSTNAME, 40));
+		assertEquals(24, readSizeLimit.nextSize(HOSTNAME));
+		assertEquals(20, negotiate(readSizeLimit, 20));
+	}
+}
@@ -0,0 +1,201 @@
+package org.sentrysoftware.ipmi.core.api.sol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.sentrysoftware.ipmi.core.api.async.ConnectionHandle;
+import org.sentrysoftware.ipmi.core.api.async.InboundSolMessageListener;
+import org.sentrysoftware.ipmi.core.api.async.IpmiAsyncConnector;
+import org.sentrysoftware.ipmi.core.coding.payload.sol.SolInboundMessage;
+import org.sentrysoftware.ipmi.core.coding.payload.sol.SolMessage;
+import org.sentrysoftware.ipmi.core.connection.Session;
+
+class SolMultiplexerTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final SolMultiplexer multiplexer = new SolMultiplexer(null, executor);
+
+    @AfterEach
+    void tearDown() {
+        multiplexer.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sink recording the written data and the number of threads writing at the same time.
+     */
+    private static class RecordingSink implements WritableByteChannel {
+
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private final AtomicInteger writing = new AtomicInteger();
+        private final AtomicInteger maxWriting = new AtomicInteger();
+        private volatile boolean full;
+
+        @Override
+        public int write(ByteBuffer src) {
+            if (full) {
+                return 0;
+            }
+
+            maxWriting.accumulateAndGet(writing.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+                synchronized (received) {
+                    int count = src.remaining();
+                    while (src.hasRemaining()) {
+                        received.write(src.get());
+                    }
+                    return count;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            } finally {
+                writing.decrementAndGet();
+            }
+        }
+
+        String getReceived() {
+            synchronized (received) {
+                return new String(received.toByteArray(), StandardCharsets.US_ASCII);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+
+    /**
+     * @return SOL message with given character data, without sequence number so that no ACK is sent
+     */
+    private static SolInboundMessage message(String data) {
+        byte[] characters = data.getBytes(StandardCharsets.US_ASCII);
+        byte[] raw = new byte[SolMessage.PAYLOAD_HEADER_LENGTH + characters.length];
+        System.arraycopy(characters, 0, raw, SolMessage.PAYLOAD_HEADER_LENGTH, characters.length);
+        return new SolInboundMessage(raw);
+    }
+
+    private static ConnectionHandle connectionHandle(int handle) {
+        return new ConnectionHandle(handle, InetAddress.getLoopbackAddress(), 623);
+    }
+
+    private static InboundSolMessageListener listener(int handle) {
+        return new InboundSolMessageListener(null, connectionHandle(handle), new ArrayList<>());
+    }
+
+    private SolMultiplexer.Console attach(InboundSolMessageListener listener, WritableByteChannel sink, int handle) {
+        SerialOverLan serialOverLan = new SerialOverLan(null, new Session(0, connectionHandle(handle)), listener) {
+            @Override
+            public synchronized void close() {
+                listener.close();
+            }
+        };
+        return multiplexer.attach(serialOverLan, sink, null);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void testDrainInOrder() throws Exception {
+        InboundSolMessageListener listener = listener(1);
+        RecordingSink sink = new RecordingSink();
+        attach(listener, sink, 1);
+
+        // Messages keep arriving while the console is being drained
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            String data = i + ";";
+            expected.append(data);
+            listener.notify(message(data));
+            if (i % 20 == 0) {
+                Thread.sleep(1);
+            }
+        }
+
+        waitFor(() -> sink.getReceived().length() == expected.length());
+        assertEquals(expected.toString(), sink.getReceived());
+        assertEquals(1, sink.maxWriting.get());
+        assertEquals(0, listener.getAvailableBytesCount());
+    }
+
+    @Test
+    void testSinkAcceptingNoData() throws Exception {
+        InboundSolMessageListener listener = listener(1);
+        RecordingSink sink = new RecordingSink();
+        sink.full = true;
+        attach(listener, sink, 1);
+
+        listener.notify(message("data"));
+
+        // The console is closed instead of retrying the write forever
+        waitFor(() -> multiplexer.getConsoles().isEmpty());
+        assertTrue(listener.isClosed());
+    }
+
+    @Test
+    void testNonBlockingSink() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+
+            assertThrows(IllegalArgumentException.class, () -> multiplexer.open((Session) null, pipe.sink()));
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    void testPayloadRoutedByHandle() throws Exception {
+        IpmiAsyncConnector connector = new IpmiAsyncConnector(0);
+        try {
+            InboundSolMessageListener firstListener = listener(1);
+            InboundSolMessageListener secondListener = listener(2);
+            RecordingSink firstSink = new RecordingSink();
+            RecordingSink secondSink = new RecordingSink();
+            attach(firstListener, firstSink, 1);
+            attach(secondListener, secondSink, 2);
+            connector.registerIncomingPayloadListener(firstListener);
+            connector.registerIncomingPayloadListener(secondListener);
+
+            connector.processRequest(message("first"), 1);
+            connector.processRequest(message("second"), 2);
+            connector.processRequest(message("-unknown-"), 3);
+
+            waitFor(() -> firstSink.getReceived().length() == 5 && secondSink.getReceived().length() == 6);
+            Thread.sleep(20);
+            assertEquals("first", firstSink.getReceived());
+            assertEquals("second", secondSink.getReceived());
+        } finally {
+            connector.tearDown();
+        }
+    }
+}
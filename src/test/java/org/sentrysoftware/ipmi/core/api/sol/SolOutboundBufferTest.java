@@ -0,0 +1,169 @@
+package org.sentrysoftware.ipmi.core.api.sol;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SolOutboundBufferTest {
+
+    private static final int PAYLOAD_SIZE = 10;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService writers = Executors.newSingleThreadExecutor();
+
+    private final FakeSender sender = new FakeSender();
+
+    @AfterEach
+    void tearDown() {
+        sender.ack.release(1000);
+        scheduler.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    /**
+     * Records the sent packets, waits for an ACK when asked to and rejects the packets when asked to.
+     */
+    private static class FakeSender implements SolOutboundBuffer.Sender {
+
+        private final BlockingQueue<byte[]> packets = new LinkedBlockingQueue<>();
+        private final Semaphore ack = new Semaphore(100000);
+        private volatile int rejectedCount;
+
+        @Override
+        public boolean send(byte[] buffer, int offset, int length) {
+            packets.add(Arrays.copyOfRange(buffer, offset, offset + length));
+            ack.acquireUninterruptibly();
+            if (rejectedCount > 0) {
+                rejectedCount--;
+                return false;
+            }
+            return true;
+        }
+
+        byte[] nextPacket(long timeout) throws InterruptedException {
+            return packets.poll(timeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static byte[] bytes(int from, int count) {
+        byte[] result = new byte[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (byte) (from + i);
+        }
+        return result;
+    }
+
+    private static boolean write(SolOutboundBuffer buffer, byte[] bytes) {
+        return buffer.write(bytes, 0, bytes.length);
+    }
+
+    @Test
+    void testDelayedSend() throws Exception {
+        SolOutboundBuffer buffer = new SolOutboundBuffer(sender, scheduler, 100, PAYLOAD_SIZE);
+        long start = System.nanoTime();
+
+        assertTrue(write(buffer, bytes(1, 2)));
+        assertTrue(write(buffer, bytes(3, 1)));
+        assertNull(sender.nextPacket(20));
+
+        // The bytes written before the delay expires are sent together
+        assertArrayEquals(bytes(1, 3), sender.nextPacket(5000));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertNull(sender.nextPacket(150));
+    }
+
+    @Test
+    void testFullPayload() throws Exception {
+        SolOutboundBuffer buffer = new SolOutboundBuffer(sender, scheduler, 60000, PAYLOAD_SIZE);
+
+        assertTrue(write(buffer, bytes(1, PAYLOAD_SIZE + 3)));
+
+        // A full payload does not wait for the delay, the remaining bytes are sent right after it
+        assertArrayEquals(bytes(1, PAYLOAD_SIZE), sender.nextPacket(5000));
+        assertArrayEquals(bytes(1 + PAYLOAD_SIZE, 3), sender.nextPacket(5000));
+    }
+
+    @Test
+    void testFlush() throws Exception {
+        SolOutboundBuffer buffer = new SolOutboundBuffer(sender, scheduler, 60000, PAYLOAD_SIZE);
+
+        assertTrue(write(buffer, bytes(1, 4)));
+        assertNull(sender.nextPacket(20));
+
+        assertTrue(buffer.flush());
+        assertArrayEquals(bytes(1, 4), sender.nextPacket(0));
+
+        // Nothing left to send
+        assertTrue(buffer.flush());
+        assertNull(sender.nextPacket(20));
+    }
+
+    @Test
+    void testFailureReportedOnce() throws Exception {
+        SolOutboundBuffer buffer = new SolOutboundBuffer(sender, scheduler, 60000, PAYLOAD_SIZE);
+        sender.rejectedCount = 1;
+
+        assertTrue(write(buffer, bytes(1, 4)));
+        assertFalse(buffer.flush());
+
+        assertTrue(write(buffer, bytes(5, 4)));
+        assertTrue(buffer.flush());
+        assertArrayEquals(bytes(1, 4), sender.nextPacket(0));
+        assertArrayEquals(bytes(5, 4), sender.nextPacket(0));
+
+        // A failure of a send started by a write is reported by the next write
+        sender.rejectedCount = 1;
+        assertTrue(write(buffer, bytes(1, PAYLOAD_SIZE)));
+        // The scheduler runs its tasks in order: the send is over when this one runs
+        scheduler.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+        assertFalse(write(buffer, bytes(1, 1)));
+        assertTrue(write(buffer, bytes(2, 1)));
+        assertTrue(buffer.flush());
+    }
+
+    @Test
+    void testWritersBlockedWhenQueueFull() throws Exception {
+        SolOutboundBuffer buffer = new SolOutboundBuffer(sender, scheduler, 60000, PAYLOAD_SIZE);
+        sender.ack.drainPermits();
+
+        // The first packet waits for its ACK
+        assertTrue(write(buffer, bytes(0, PAYLOAD_SIZE)));
+        assertNotNull(sender.nextPacket(5000));
+
+        assertTrue(write(buffer, bytes(0, SolOutboundBuffer.MAX_QUEUED_PAYLOADS * PAYLOAD_SIZE)));
+
+        Future<Boolean> blocked = writers.submit(() -> write(buffer, bytes(0, 1)));
+        Thread.sleep(50);
+        assertFalse(blocked.isDone());
+
+        // Once a queued packet is sent, the writer resumes
+        sender.ack.release(2);
+        assertTrue(blocked.get(5, TimeUnit.SECONDS));
+
+        sender.ack.release(1000);
+        assertTrue(buffer.flush());
+        int sent = 0;
+        byte[] packet;
+        while ((packet = sender.nextPacket(0)) != null) {
+            sent += packet.length;
+        }
+        assertEquals(SolOutboundBuffer.MAX_QUEUED_PAYLOADS * PAYLOAD_SIZE + 1, sent);
+    }
+}
@@ -0,0 +1,177 @@
+package org.sentrysoftware.ipmi.core.coding.protocol.decoder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.sentrysoftware.ipmi.core.coding.payload.CompletionCode;
+import org.sentrysoftware.ipmi.core.coding.payload.PlainMessage;
+import org.sentrysoftware.ipmi.core.coding.payload.lan.IpmiLanResponse;
+import org.sentrysoftware.ipmi.core.coding.protocol.AuthenticationType;
+import org.sentrysoftware.ipmi.core.coding.protocol.Ipmiv20Message;
+import org.sentrysoftware.ipmi.core.coding.protocol.PayloadType;
+import org.sentrysoftware.ipmi.core.coding.protocol.encoder.Protocolv20Encoder;
+import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpClassOfMessage;
+import org.sentrysoftware.ipmi.core.coding.rmcp.RmcpMessage;
+import org.sentrysoftware.ipmi.core.coding.security.CipherSuite;
+import org.sentrysoftware.ipmi.core.coding.security.SecurityConstants;
+
+class Protocolv20DecoderTest {
+
+    private static final int SESSION_ID = 0x01020304;
+    private static final int SESSION_SEQUENCE_NUMBER = 0x0a0b0c0d;
+    private static final byte COMMAND = 0x2d;
+    private static final byte[] RESPONSE_DATA = { 0x11, 0x22, 0x33, 0x44, 0x55 };
+
+    /**
+     * Bytes placed before the message in the received packet
+     */
+    private static final int OFFSET = 7;
+
+    private static CipherSuite createCipherSuite(byte confidentialityAlgorithm) throws Exception {
+        CipherSuite cipherSuite = new CipherSuite((byte) 3, SecurityConstants.AA_RAKP_HMAC_SHA1,
+                confidentialityAlgorithm, SecurityConstants.IA_HMAC_SHA1_96);
+        byte[] sik = new byte[20];
+        Arrays.fill(sik, (byte) 0x5a);
+        cipherSuite.initializeAlgorithms(sik);
+        return cipherSuite;
+    }
+
+    /**
+     * @return IPMI LAN response to a command, with valid checksums
+     */
+    private static byte[] createLanResponse() {
+        byte[] response = new byte[8 + RESPONSE_DATA.length];
+        response[0] = (byte) 0x81; // requester address
+        response[1] = (byte) (0x07 << 2); // network function
+        response[2] = (byte) -(response[0] + response[1]);
+        response[3] = 0x20; // responder address
+        response[4] = (byte) (5 << 2); // sequence number
+        response[5] = COMMAND;
+        response[6] = 0; // completion code
+        System.arraycopy(RESPONSE_DATA, 0, response, 7, RESPONSE_DATA.length);
+        int checksum = 0;
+        for (int i = 3; i < response.length - 1; i++) {
+            checksum += response[i];
+        }
+        response[response.length - 1] = (byte) -checksum;
+        return response;
+    }
+
+    /**
+     * @return the encoded message
+     */
+    private static byte[] encode(CipherSuite cipherSuite) throws Exception {
+        Ipmiv20Message message = new Ipmiv20Message(cipherSuite.getConfidentialityAlgorithm());
+        message.setAuthenticationType(AuthenticationType.RMCPPlus);
+        message.setSessionID(SESSION_ID);
+        message.setSessionSequenceNumber(SESSION_SEQUENCE_NUMBER);
+        message.setPayloadType(PayloadType.Ipmi);
+        message.setPayloadAuthenticated(true);
+        message.setPayloadEncrypted(
+                cipherSuite.getConfidentialityAlgorithm().getCode() != SecurityConstants.CA_NONE);
+        message.setPayload(new PlainMessage(createLanResponse()));
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        new Protocolv20Encoder().encode(message, cipherSuite.getIntegrityAlgorithm(), buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * @return RMCP message holding the first length bytes of the encoded
+     *         message, in a larger packet at a non-zero offset
+     */
+    private static RmcpMessage receive(byte[] encoded, int length) {
+        byte[] packet = new byte[OFFSET + encoded.length + 9];
+        Arrays.fill(packet, (byte) 0xee);
+        System.arraycopy(encoded, 0, packet, OFFSET, length);
+
+        RmcpMessage rmcpMessage = new RmcpMessage();
+        rmcpMessage.setClassOfMessage(RmcpClassOfMessage.Ipmi);
+        rmcpMessage.setData(packet, OFFSET, length);
+        return rmcpMessage;
+    }
+
+    private static void assertRoundTrip(byte confidentialityAlgorithm) throws Exception {
+        CipherSuite cipherSuite = createCipherSuite(confidentialityAlgorithm);
+        byte[] encoded = encode(cipherSuite);
+
+        Ipmiv20Message message = (Ipmiv20Message) new Protocolv20Decoder(cipherSuite)
+                .decode(receive(encoded, encoded.length));
+
+        assertEquals(AuthenticationType.RMCPPlus, message.getAuthenticationType());
+        assertEquals(PayloadType.Ipmi, message.getPayloadType());
+        assertTrue(message.isPayloadAuthenticated());
+        assertEquals(confidentialityAlgorithm != SecurityConstants.CA_NONE, message.isPayloadEncrypted());
+        assertEquals(SESSION_ID, message.getSessionID());
+        assertEquals(SESSION_SEQUENCE_NUMBER, message.getSessionSequenceNumber());
+
+        int authCodeLength = cipherSuite.getIntegrityAlgorithm().getAuthCodeLength();
+        assertArrayEquals(Arrays.copyOfRange(encoded, encoded.length - authCodeLength, encoded.length),
+                message.getAuthCode());
+
+        IpmiLanResponse response = (IpmiLanResponse) message.getPayload();
+        assertEquals(COMMAND, response.getCommand());
+        assertEquals(5, response.getSequenceNumber());
+        assertEquals(CompletionCode.Ok, response.getCompletionCode());
+        assertArrayEquals(RESPONSE_DATA, response.getData());
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        assertRoundTrip(SecurityConstants.CA_NONE);
+    }
+
+    @Test
+    void testRoundTripEncrypted() throws Exception {
+        assertRoundTrip(SecurityConstants.CA_AES_CBC128);
+    }
+
+    @Test
+    void testValidateAuthCode() throws Exception {
+        CipherSuite cipherSuite = createCipherSuite(SecurityConstants.CA_NONE);
+        byte[] encoded = encode(cipherSuite);
+        int authCodeOffset = OFFSET + encoded.length - cipherSuite.getIntegrityAlgorithm().getAuthCodeLength();
+        int end = OFFSET + encoded.length;
+
+        byte[] packet = receive(encoded, encoded.length).getDataBuffer();
+        assertTrue(cipherSuite.getIntegrityAlgorithm().validateAuthCode(packet, OFFSET, authCodeOffset, end));
+
+        packet[authCodeOffset + 3] ^= 0x01;
+        assertFalse(cipherSuite.getIntegrityAlgorithm().validateAuthCode(packet, OFFSET, authCodeOffset, end));
+
+        // A corrupted AuthCode is reported, the message is still decoded
+        packet[authCodeOffset + 3] ^= 0x01;
+        packet[end - 1] ^= 0x01;
+        RmcpMessage rmcpMessage = new RmcpMessage();
+        rmcpMessage.setClassOfMessage(RmcpClassOfMessage.Ipmi);
+        rmcpMessage.setData(packet, OFFSET, encoded.length);
+        Ipmiv20Message message = (Ipmiv20Message) new Protocolv20Decoder(cipherSuite).decode(rmcpMessage);
+        assertEquals(SESSION_ID, message.getSessionID());
+        assertEquals(encoded[encoded.length - 1] ^ 0x01, message.getAuthCode()[message.getAuthCode().length - 1]);
+
+        // The AuthCode must have the length of the algorithm
+        assertFalse(cipherSuite.getIntegrityAlgorithm().validateAuthCode(packet, OFFSET, authCodeOffset, end - 1));
+    }
+
+    @Test
+    void testTruncated() throws Exception {
+        CipherSuite cipherSuite = createCipherSuite(SecurityConstants.CA_NONE);
+        byte[] encoded = encode(cipherSuite);
+        Protocolv20Decoder decoder = new Protocolv20Decoder(cipherSuite);
+
+        // Cut in the payload
+        assertThrows(IndexOutOfBoundsException.class, () -> decoder.decode(receive(encoded, 20)));
+
+        // Cut before the AuthCode
+        int authCodeLength = cipherSuite.getIntegrityAlgorithm().getAuthCodeLength();
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> decoder.decode(receive(encoded, encoded.length - authCodeLength)));
+    }
+}
@@ -0,0 +1,141 @@
+package org.sentrysoftware.ipmi.core.coding.protocol.encoder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.sentrysoftware.ipmi.core.coding.payload.PlainMessage;
+import org.sentrysoftware.ipmi.core.coding.protocol.AuthenticationType;
+import org.sentrysoftware.ipmi.core.coding.protocol.Ipmiv20Message;
+import org.sentrysoftware.ipmi.core.coding.protocol.PayloadType;
+import org.sentrysoftware.ipmi.core.coding.security.AuthenticationRakpHmacSha1;
+import org.sentrysoftware.ipmi.core.coding.security.ConfidentialityAesCbc128;
+import org.sentrysoftware.ipmi.core.coding.security.ConfidentialityAlgorithm;
+import org.sentrysoftware.ipmi.core.coding.security.ConfidentialityNone;
+import org.sentrysoftware.ipmi.core.coding.security.IntegrityAlgorithm;
+import org.sentrysoftware.ipmi.core.coding.security.IntegrityHmacSha1_96;
+import org.sentrysoftware.ipmi.core.coding.security.IntegrityNone;
+
+class Protocolv20EncoderTest {
+
+    private static final byte[] SIK = new byte[20];
+    static {
+        for (int i = 0; i < SIK.length; i++) {
+            SIK[i] = (byte) (i * 7 + 1);
+        }
+    }
+
+    private static final int OFFSET = 5;
+
+    private final Protocolv20Encoder encoder = new Protocolv20Encoder();
+
+    static Ipmiv20Message createMessage(ConfidentialityAlgorithm confidentialityAlgorithm,
+            IntegrityAlgorithm integrityAlgorithm, int payloadLength) {
+        byte[] data = new byte[payloadLength];
+        for (int i = 0; i < payloadLength; i++) {
+            data[i] = (byte) (i + 0x30);
+        }
+
+        Ipmiv20Message message = new Ipmiv20Message(confidentialityAlgorithm);
+        message.setAuthenticationType(AuthenticationType.RMCPPlus);
+        message.setSessionID(0x01020304);
+        message.setSessionSequenceNumber(0x0a0b0c0d);
+        message.setPayloadType(PayloadType.Ipmi);
+        message.setPayloadAuthenticated(!(integrityAlgorithm instanceof IntegrityNone));
+        message.setPayloadEncrypted(!(confidentialityAlgorithm instanceof ConfidentialityNone));
+        message.setPayload(new PlainMessage(data));
+        return message;
+    }
+
+    static IntegrityAlgorithm createHmacSha1() throws Exception {
+        IntegrityAlgorithm integrityAlgorithm = new IntegrityHmacSha1_96();
+        integrityAlgorithm.initialize(SIK);
+        return integrityAlgorithm;
+    }
+
+    static ConfidentialityAlgorithm createAes() throws Exception {
+        ConfidentialityAlgorithm confidentialityAlgorithm = new ConfidentialityAesCbc128();
+        confidentialityAlgorithm.initialize(SIK, new AuthenticationRakpHmacSha1());
+        return confidentialityAlgorithm;
+    }
+
+    /**
+     * Encodes the message like PayloadCoder does: AuthCode computed over the
+     * integrity base, then the whole message.
+     */
+    byte[] encodeArray(Ipmiv20Message message, IntegrityAlgorithm integrityAlgorithm) throws Exception {
+        if (message.isPayloadAuthenticated()) {
+            message.setAuthCode(integrityAlgorithm.generateAuthCode(message.getIntegrityAlgorithmBase(encoder)));
+        }
+        return encoder.encode(message);
+    }
+
+    /**
+     * Encodes the message in a buffer, after some leading bytes
+     */
+    byte[] encodeBuffer(Ipmiv20Message message, IntegrityAlgorithm integrityAlgorithm) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(512);
+        buffer.position(OFFSET);
+
+        encoder.encode(message, integrityAlgorithm, buffer);
+
+        byte[] result = new byte[buffer.position() - OFFSET];
+        buffer.position(OFFSET);
+        buffer.get(result);
+        return result;
+    }
+
+    /**
+     * @return size of the Integrity Pad of an authenticated message
+     */
+    static int getIntegrityPad(byte[] encoded, IntegrityAlgorithm integrityAlgorithm) {
+        return encoded[encoded.length - integrityAlgorithm.getAuthCodeLength() - 2];
+    }
+
+    @Test
+    void testAuthenticatedPaddings() throws Exception {
+        IntegrityAlgorithm integrityAlgorithm = createHmacSha1();
+        Set<Integer> pads = new HashSet<>();
+
+        for (int payloadLength = 1; payloadLength <= 8; payloadLength++) {
+            Ipmiv20Message message = createMessage(new ConfidentialityNone(), integrityAlgorithm, payloadLength);
+
+            byte[] array = encodeArray(message, integrityAlgorithm);
+
+            assertArrayEquals(array, encodeBuffer(message, integrityAlgorithm), "Payload length " + payloadLength);
+            pads.add(getIntegrityPad(array, integrityAlgorithm));
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3)), pads);
+    }
+
+    @Test
+    void testAuthenticatedEncrypted() throws Exception {
+        IntegrityAlgorithm integrityAlgorithm = createHmacSha1();
+        ConfidentialityAlgorithm aes = createAes();
+
+        for (int payloadLength = 1; payloadLength <= 40; payloadLength += 13) {
+            // The payload is encrypted once, with a random IV, and kept in the message
+            Ipmiv20Message message = createMessage(aes, integrityAlgorithm, payloadLength);
+
+            assertArrayEquals(encodeArray(message, integrityAlgorithm), encodeBuffer(message, integrityAlgorithm),
+                    "Payload length " + payloadLength);
+        }
+    }
+
+    @Test
+    void testNotAuthenticated() throws Exception {
+        IntegrityAlgorithm integrityAlgorithm = new IntegrityNone();
+
+        Ipmiv20Message message = createMessage(new ConfidentialityNone(), integrityAlgorithm, 7);
+        assertArrayEquals(encodeArray(message, integrityAlgorithm), encodeBuffer(message, integrityAlgorithm));
+
+        message = createMessage(createAes(), integrityAlgorithm, 7);
+        assertArrayEquals(encodeArray(message, integrityAlgorithm), encodeBuffer(message, integrityAlgorithm));
+    }
+}
@@ -0,0 +1,185 @@
+package org.sentrysoftware.ipmi.core.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ByteRingBufferTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] bytes(int from, int count) {
+        byte[] result = new byte[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (byte) (from + i);
+        }
+        return result;
+    }
+
+    @Test
+    void testCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteRingBuffer(0));
+
+        ByteRingBuffer buffer = new ByteRingBuffer(8);
+        assertEquals(8, buffer.capacity());
+        assertEquals(0, buffer.size());
+        assertEquals(8, buffer.remainingSpace());
+    }
+
+    @Test
+    void testEmpty() {
+        ByteRingBuffer buffer = new ByteRingBuffer(8);
+
+        assertEquals(0, buffer.read(new byte[4], 0, 4));
+        assertEquals(0, buffer.read(4).length);
+
+        buffer.write(bytes(1, 3));
+        assertArrayEquals(bytes(1, 3), buffer.read(10));
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.read(new byte[4], 0, 4));
+    }
+
+    @Test
+    void testFull() {
+        ByteRingBuffer buffer = new ByteRingBuffer(8);
+
+        assertEquals(8, buffer.write(bytes(1, 8)));
+        assertEquals(8, buffer.size());
+        assertEquals(0, buffer.remainingSpace());
+        assertEquals(0, buffer.write(bytes(9, 1)));
+
+        assertArrayEquals(bytes(1, 1), buffer.read(1));
+        assertEquals(1, buffer.write(bytes(9, 1)));
+        assertArrayEquals(bytes(2, 8), buffer.read(8));
+    }
+
+    @Test
+    void testPartialWrite() {
+        ByteRingBuffer buffer = new ByteRingBuffer(8);
+
+        assertEquals(5, buffer.write(bytes(1, 5)));
+        assertEquals(3, buffer.write(bytes(6, 10), 0, 10));
+        assertEquals(0, buffer.remainingSpace());
+
+        assertArrayEquals(bytes(1, 8), buffer.read(8));
+    }
+
+    @Test
+    void testWrapAround() {
+        ByteRingBuffer buffer = new ByteRingBuffer(8);
+        int next = 0;
+
+        // Each round starts at a different position in the array, so writes and reads are split at its end
+        for (int round = 0; round < 20; round++) {
+            assertEquals(5, buffer.write(bytes(next, 7), 1, 5));
+
+            byte[] destination = new byte[9];
+            assertEquals(5, buffer.read(destination, 2, 7));
+
+            byte[] expected = new byte[9];
+            System.arraycopy(bytes(next + 1, 5), 0, expected, 2, 5);
+            assertArrayEquals(expected, destination);
+            next += 5;
+        }
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testWaitForDataTimeout() throws Exception {
+        ByteRingBuffer buffer = new ByteRingBuffer(8);
+        buffer.write(bytes(1, 2));
+
+        long start = System.nanoTime();
+        assertFalse(buffer.waitForData(3, 50));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertTrue(buffer.waitForData(2, 0));
+    }
+
+    @Test
+    void testWaitForDataWakeUp() throws Exception {
+        ByteRingBuffer buffer = new ByteRingBuffer(8);
+        CountDownLatch waiting = new CountDownLatch(1);
+
+        Future<Boolean> result = executor.submit(() -> {
+            waiting.countDown();
+            return buffer.waitForData(3, 10000);
+        });
+
+        waiting.await();
+        buffer.write(bytes(1, 2));
+        Thread.sleep(20);
+        assertFalse(result.isDone());
+
+        buffer.write(bytes(3, 1));
+        assertTrue(result.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(bytes(1, 3), buffer.read(3));
+    }
+
+    @Test
+    void testClose() throws Exception {
+        ByteRingBuffer buffer = new ByteRingBuffer(8);
+        buffer.write(bytes(1, 2));
+        CountDownLatch waiting = new CountDownLatch(1);
+
+        Future<Boolean> result = executor.submit(() -> {
+            waiting.countDown();
+            return buffer.waitForData(3, 10000);
+        });
+
+        waiting.await();
+        buffer.close();
+        assertFalse(result.get(5, TimeUnit.SECONDS));
+        assertTrue(buffer.isClosed());
+
+        // The bytes already written can still be read
+        assertFalse(buffer.waitForData(3, 10000));
+        assertArrayEquals(bytes(1, 2), buffer.read(8));
+    }
+
+    @Test
+    void testConcurrentWriterAndReader() throws Exception {
+        ByteRingBuffer buffer = new ByteRingBuffer(7);
+        int total = 100000;
+
+        Future<?> writer = executor.submit(() -> {
+            byte[] data = bytes(0, 256);
+            int written = 0;
+            while (written < total) {
+                int length = Math.min(13, total - written);
+                int offset = written % 256;
+                written += buffer.write(data, offset, Math.min(length, 256 - offset));
+            }
+        });
+
+        byte[] destination = new byte[5];
+        int read = 0;
+        while (read < total) {
+            assertTrue(buffer.waitForData(1, 5000));
+            int count = buffer.read(destination, 0, destination.length);
+            for (int i = 0; i < count; i++) {
+                assertEquals((byte) (read + i), destination[i]);
+            }
+            read += count;
+        }
+
+        writer.get(5, TimeUnit.SECONDS);
+        assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,55 @@
+package org.sentrysoftware.ipmi.core.connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class TagBitmapTest {
+
+	private static TagBitmap exhausted() {
+		final TagBitmap tags = new TagBitmap();
+		for (int i = 0; i < TagBitmap.TAG_COUNT; i++) {
+			assertEquals(i, tags.allocate());
+		}
+		return tags;
+	}
+
+	@Test
+	void testAllocateInterruptiblyThrowsWhenInterrupted() throws Exception {
+		final TagBitmap tags = exhausted();
+
+		Thread.currentThread().interrupt();
+		try {
+			assertThrows(InterruptedException.class, tags::allocateInterruptibly);
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	void testAllocateWaitsAndKeepsTheInterruptStatus() throws Exception {
+		final TagBitmap tags = exhausted();
+		final AtomicBoolean interrupted = new AtomicBoolean();
+
+		final CompletableFuture<Integer> tag = new CompletableFuture<>();
+		final Thread waiter = new Thread(() -> {
+			Thread.currentThread().interrupt();
+			tag.complete(tags.allocate());
+			interrupted.set(Thread.currentThread().isInterrupted());
+		});
+		waiter.start();
+
+		Thread.sleep(50);
+		tags.release(7);
+
+		assertEquals(7, tag.get(5, TimeUnit.SECONDS));
+		waiter.join(5000);
+		assertTrue(interrupted.get());
+	}
+}
@@ -0,0 +1,128 @@
+package org.sentrysoftware.ipmi.core.transport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class NioUdpMessengerTest {
+
+    private static final InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+
+    /**
+     * Messenger whose socket send buffer is full for the given number of writes
+     */
+    private static class FullSocketMessenger extends NioUdpMessenger {
+
+        private final AtomicInteger refusedWrites;
+
+        FullSocketMessenger(UdpEventLoop eventLoop, int refusedWrites) throws IOException {
+            super(0, LOOPBACK, eventLoop);
+            this.refusedWrites = new AtomicInteger(refusedWrites);
+        }
+
+        @Override
+        int write(ByteBuffer data, SocketAddress target) throws IOException {
+            if (refusedWrites.getAndDecrement() > 0) {
+                return 0;
+            }
+            return super.write(data, target);
+        }
+    }
+
+    private static UdpEventLoop startEventLoop() throws IOException {
+        UdpEventLoop eventLoop = new UdpEventLoop();
+        eventLoop.setDaemon(true);
+        eventLoop.start();
+        return eventLoop;
+    }
+
+    private static BlockingQueue<byte[]> listen(NioUdpMessenger messenger) {
+        BlockingQueue<byte[]> received = new LinkedBlockingQueue<byte[]>();
+        messenger.register(message -> received.add(message.getMessage()));
+        return received;
+    }
+
+    private static UdpMessage message(int port, byte[] data) {
+        UdpMessage message = new UdpMessage();
+        message.setAddress(LOOPBACK);
+        message.setPort(port);
+        message.setMessage(data);
+        return message;
+    }
+
+    private static byte[] receive(BlockingQueue<byte[]> received) throws InterruptedException {
+        byte[] data = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(data, "datagram not received");
+        return data;
+    }
+
+    @Test
+    void testLoopback() throws Exception {
+        UdpEventLoop eventLoop = startEventLoop();
+        NioUdpMessenger receiver = new NioUdpMessenger(0, LOOPBACK, eventLoop);
+        NioUdpMessenger sender = new NioUdpMessenger(0, LOOPBACK, eventLoop);
+        try {
+            BlockingQueue<byte[]> received = listen(receiver);
+
+            sender.send(message(receiver.getPort(), new byte[] { 1, 2, 3 }));
+            assertArrayEquals(new byte[] { 1, 2, 3 }, receive(received));
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+            buffer.put(new byte[] { 4, 5 }).flip();
+            sender.send(buffer, LOOPBACK, receiver.getPort());
+            assertArrayEquals(new byte[] { 4, 5 }, receive(received));
+        } finally {
+            sender.closeConnection();
+            receiver.closeConnection();
+            eventLoop.shutdown();
+        }
+    }
+
+    @Test
+    void testQueuedWrites() throws Exception {
+        UdpEventLoop eventLoop = startEventLoop();
+        NioUdpMessenger receiver = new NioUdpMessenger(0, LOOPBACK, eventLoop);
+        NioUdpMessenger sender = new FullSocketMessenger(eventLoop, 3);
+        try {
+            BlockingQueue<byte[]> received = listen(receiver);
+
+            // Refused by the full socket, queued, then sent by the event loop in order
+            sender.send(message(receiver.getPort(), new byte[] { 1 }));
+            sender.send(message(receiver.getPort(), new byte[] { 2 }));
+
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            buffer.put((byte) 3).flip();
+            sender.send(buffer, LOOPBACK, receiver.getPort());
+
+            // The queued datagram is a copy, the caller may reuse its buffer
+            buffer.clear();
+            buffer.put((byte) 99);
+
+            assertArrayEquals(new byte[] { 1 }, receive(received));
+            assertArrayEquals(new byte[] { 2 }, receive(received));
+            assertArrayEquals(new byte[] { 3 }, receive(received));
+
+            // Writes keep going through once the queue has been flushed
+            for (int i = 4; i < 100; i++) {
+                sender.send(message(receiver.getPort(), new byte[] { (byte) i }));
+                assertArrayEquals(new byte[] { (byte) i }, receive(received));
+            }
+            assertTrue(received.isEmpty());
+        } finally {
+            sender.closeConnection();
+            receiver.closeConnection();
+            eventLoop.shutdown();
+        }
+    }
+}